@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.api;
+
+import co.cask.wrangler.api.annotations.PublicEvolving;
+
+/**
+ * A {@link Directive} that transforms the value of a single column, each row independently
+ * of the others.
+ *
+ * <p>Column directives don't filter or generate rows and don't touch any column but the one
+ * returned by {@link #getColumn()}. Consecutive column directives on the same column are
+ * fused by the pipeline, the column is resolved once per row and the values are passed
+ * through {@link #apply(Object)} of each directive in turn, the last one setting the value
+ * with {@link #applyTo(Row, int, Object)}. Rows that don't have the column
+ * are executed through {@code execute(List<Row>, ExecutorContext)}, which should produce the
+ * same result as {@link #apply(Object)} for rows that have it.</p>
+ */
+@PublicEvolving
+public interface ColumnDirective extends Directive {
+  /**
+   * @return name of the column transformed by the directive.
+   */
+  String getColumn();
+
+  /**
+   * Transforms the value of the column.
+   *
+   * @param value of the column in the row, can be null.
+   * @return new value of the column.
+   */
+  Object apply(Object value) throws DirectiveExecutionException;
+
+  /**
+   * Transforms the value and sets the result as the value of the column in the row. Directives
+   * producing int, long, float, double or boolean values can override it to set them unboxed
+   * without boxing them first.
+   *
+   * @param row holding the column.
+   * @param idx of the column in the row.
+   * @param value to be transformed, can differ from the value in the row when the directive
+   *              follows other directives on the column.
+   */
+  default void applyTo(Row row, int idx, Object value) throws DirectiveExecutionException {
+    row.setUnboxed(idx, apply(value));
+  }
+}
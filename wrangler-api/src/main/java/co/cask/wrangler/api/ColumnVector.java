@@ -0,0 +1,321 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.api;
+
+import co.cask.wrangler.api.annotations.PublicEvolving;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * ColumnVector holds the values of a column across the rows of a {@link RowBatch}.
+ *
+ * <p>Setting a value for a row that doesn't have the column adds the column at the
+ * end of the row, the same way {@link Row#addOrSet(String, Object)} does. Values are only
+ * gathered from the rows selected in the batch when the vector is created.</p>
+ */
+@PublicEvolving
+public final class ColumnVector {
+  // Position of the column in a row that doesn't have the column.
+  private static final int ABSENT = -1;
+
+  // Position of the column in a row to which the column is to be added.
+  private static final int ADDED = -2;
+
+  private final RowBatch batch;
+  private final String name;
+  private final Object[] values;
+  private final int[] positions;
+  private final BitSet modified;
+
+  // Kind of value and raw bits of the int, long, float, double and boolean values held unboxed,
+  // the same way the rows hold them. Allocated when the first value is held unboxed.
+  private byte[] kinds;
+  private long[] primitives;
+
+  ColumnVector(RowBatch batch, String name, List<Row> rows, int[] selection) {
+    this.batch = batch;
+    this.name = name;
+    this.values = new Object[rows.size()];
+    this.positions = new int[rows.size()];
+    this.modified = new BitSet(rows.size());
+    Arrays.fill(positions, ABSENT);
+
+    // Rows sharing the header have the column at the same position.
+    RowHeader header = null;
+    int position = ABSENT;
+    for (int i : selection) {
+      Row row = rows.get(i);
+      if (row.getHeader() != header) {
+        header = row.getHeader();
+        position = row.find(name);
+      }
+      positions[i] = position;
+      if (position == ABSENT) {
+        continue;
+      }
+      byte kind = row.kind(position);
+      if (kind == Row.OBJECT) {
+        values[i] = row.getValue(position);
+      } else {
+        hold(i, kind, row.bits(position));
+      }
+    }
+  }
+
+  /**
+   * @return name of the column.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return number of values in the vector, same as the number of rows in the batch.
+   */
+  public int size() {
+    return values.length;
+  }
+
+  /**
+   * @param idx of the row in the batch.
+   * @return true if the row has the column.
+   */
+  public boolean isPresent(int idx) {
+    return positions[idx] != ABSENT;
+  }
+
+  /**
+   * @param idx of the row in the batch.
+   * @return value of the column in the row, null if the row doesn't have the column.
+   */
+  public Object get(int idx) {
+    Object value = values[idx];
+    if (value == null && kind(idx) != Row.OBJECT) {
+      // Values held unboxed are boxed once, when first read as objects.
+      value = Row.box(kinds[idx], primitives[idx]);
+      values[idx] = value;
+    }
+    return value;
+  }
+
+  /**
+   * Returns the type of the value of the column in the row, without boxing values held unboxed.
+   *
+   * @param idx of the row in the batch.
+   * @return class of the value, null if the value is null.
+   */
+  public Class<?> getType(int idx) {
+    switch (kind(idx)) {
+      case Row.INT:
+        return Integer.class;
+      case Row.LONG:
+        return Long.class;
+      case Row.FLOAT:
+        return Float.class;
+      case Row.DOUBLE:
+        return Double.class;
+      case Row.BOOLEAN:
+        return Boolean.class;
+      default:
+        return values[idx] == null ? null : values[idx].getClass();
+    }
+  }
+
+  /**
+   * @param idx of the row in the batch.
+   * @return value of the column in the row as long.
+   */
+  public long getLong(int idx) {
+    byte kind = kind(idx);
+    if (kind == Row.INT || kind == Row.LONG) {
+      return primitives[idx];
+    }
+    if (kind == Row.FLOAT || kind == Row.DOUBLE) {
+      return (long) Double.longBitsToDouble(primitives[idx]);
+    }
+    return ((Number) values[idx]).longValue();
+  }
+
+  /**
+   * @param idx of the row in the batch.
+   * @return value of the column in the row as double.
+   */
+  public double getDouble(int idx) {
+    byte kind = kind(idx);
+    if (kind == Row.INT || kind == Row.LONG) {
+      return primitives[idx];
+    }
+    if (kind == Row.FLOAT || kind == Row.DOUBLE) {
+      return Double.longBitsToDouble(primitives[idx]);
+    }
+    return ((Number) values[idx]).doubleValue();
+  }
+
+  /**
+   * @param idx of the row in the batch.
+   * @return value of the column in the row as boolean.
+   */
+  public boolean getBoolean(int idx) {
+    if (kind(idx) == Row.BOOLEAN) {
+      return primitives[idx] != 0;
+    }
+    return (Boolean) values[idx];
+  }
+
+  /**
+   * Sets the value of the column in the row, adding the column if the row doesn't have it.
+   *
+   * @param idx of the row in the batch.
+   * @param value to be set.
+   */
+  public void set(int idx, Object value) {
+    values[idx] = value;
+    if (kinds != null) {
+      kinds[idx] = Row.OBJECT;
+    }
+    modified(idx);
+  }
+
+  /**
+   * Sets the value of the column in the row the same way {@link #set(int, Object)} does, int,
+   * long, float, double and boolean values being held unboxed.
+   *
+   * @param idx of the row in the batch.
+   * @param value to be set.
+   */
+  public void setUnboxed(int idx, Object value) {
+    if (value instanceof Integer) {
+      setInt(idx, (Integer) value);
+    } else if (value instanceof Long) {
+      setLong(idx, (Long) value);
+    } else if (value instanceof Float) {
+      setFloat(idx, (Float) value);
+    } else if (value instanceof Double) {
+      setDouble(idx, (Double) value);
+    } else if (value instanceof Boolean) {
+      setBoolean(idx, (Boolean) value);
+    } else {
+      set(idx, value);
+    }
+  }
+
+  /**
+   * Sets the value of the column in the row to an int held unboxed.
+   *
+   * @param idx of the row in the batch.
+   * @param value to be set.
+   */
+  public void setInt(int idx, int value) {
+    setPrimitive(idx, Row.INT, value);
+  }
+
+  /**
+   * Sets the value of the column in the row to a long held unboxed.
+   *
+   * @param idx of the row in the batch.
+   * @param value to be set.
+   */
+  public void setLong(int idx, long value) {
+    setPrimitive(idx, Row.LONG, value);
+  }
+
+  /**
+   * Sets the value of the column in the row to a float held unboxed.
+   *
+   * @param idx of the row in the batch.
+   * @param value to be set.
+   */
+  public void setFloat(int idx, float value) {
+    setPrimitive(idx, Row.FLOAT, Double.doubleToRawLongBits(value));
+  }
+
+  /**
+   * Sets the value of the column in the row to a double held unboxed.
+   *
+   * @param idx of the row in the batch.
+   * @param value to be set.
+   */
+  public void setDouble(int idx, double value) {
+    setPrimitive(idx, Row.DOUBLE, Double.doubleToRawLongBits(value));
+  }
+
+  /**
+   * Sets the value of the column in the row to a boolean held unboxed.
+   *
+   * @param idx of the row in the batch.
+   * @param value to be set.
+   */
+  public void setBoolean(int idx, boolean value) {
+    setPrimitive(idx, Row.BOOLEAN, value ? 1 : 0);
+  }
+
+  private void setPrimitive(int idx, byte kind, long bits) {
+    values[idx] = null;
+    hold(idx, kind, bits);
+    modified(idx);
+  }
+
+  private void hold(int idx, byte kind, long bits) {
+    if (kinds == null) {
+      kinds = new byte[values.length];
+      primitives = new long[values.length];
+    }
+    kinds[idx] = kind;
+    primitives[idx] = bits;
+  }
+
+  private byte kind(int idx) {
+    return kinds == null ? Row.OBJECT : kinds[idx];
+  }
+
+  private void modified(int idx) {
+    modified.set(idx);
+    if (positions[idx] == ABSENT) {
+      positions[idx] = ADDED;
+      batch.added(this);
+    }
+  }
+
+  void writeValues(List<Row> rows) {
+    for (int i = modified.nextSetBit(0); i >= 0; i = modified.nextSetBit(i + 1)) {
+      if (positions[i] >= 0) {
+        write(rows.get(i), positions[i], i);
+      }
+    }
+  }
+
+  void writeAdditions(List<Row> rows) {
+    for (int i = modified.nextSetBit(0); i >= 0; i = modified.nextSetBit(i + 1)) {
+      if (positions[i] == ADDED) {
+        Row row = rows.get(i);
+        row.add(name, null);
+        write(row, row.length() - 1, i);
+      }
+    }
+  }
+
+  private void write(Row row, int position, int idx) {
+    byte kind = kind(idx);
+    if (kind == Row.OBJECT) {
+      row.setValue(position, values[idx]);
+    } else {
+      row.setPrimitive(position, kind, primitives[idx]);
+    }
+  }
+}
@@ -18,6 +18,10 @@ package co.cask.wrangler.api;
 
 /**
  * Exception throw when the record needs to emitted to error collector.
+ *
+ * <p>The exception is thrown for every record sent to error, it doesn't capture a stack trace.
+ * Directives sending records to error with the same message can create it once and throw the
+ * same instance for every record.</p>
  */
 public class ErrorRowException extends Exception {
   // Message as to why the record errored.
@@ -27,6 +31,7 @@ public class ErrorRowException extends Exception {
   private int code;
 
   public ErrorRowException(String message, int code) {
+    super(message, null, false, false);
     this.message = message;
     this.code = code;
   }
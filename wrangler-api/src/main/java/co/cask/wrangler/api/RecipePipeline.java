@@ -20,6 +20,8 @@ import co.cask.cdap.api.data.schema.Schema;
 import co.cask.wrangler.api.annotations.PublicEvolving;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -52,6 +54,27 @@ public interface RecipePipeline<I, O, E> extends Serializable {
    */
   List<I> execute(List<I> input) throws RecipeException;
 
+  /**
+   * Executes the pipeline on the input as it's iterated. By default the whole input is
+   * consumed and executed as a list, pipelines can override this to consume the input
+   * only as the returned iterator is advanced, allowing the caller to stop early.
+   *
+   * @param input Iterator of input record of type I.
+   * @return Iterator of parsed output record of type I
+   * @throws IllegalStateException if the execution fails, caused by a {@link RecipeException}.
+   */
+  default Iterator<I> execute(Iterator<I> input) {
+    List<I> rows = new ArrayList<>();
+    while (input.hasNext()) {
+      rows.add(input.next());
+    }
+    try {
+      return execute(rows).iterator();
+    } catch (RecipeException e) {
+      throw new IllegalStateException(e.getMessage(), e);
+    }
+  }
+
   /**
    * Returns records that are errored out.
    *
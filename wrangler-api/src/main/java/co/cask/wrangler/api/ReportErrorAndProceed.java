@@ -19,7 +19,8 @@ package co.cask.wrangler.api;
 /**
  * Exception throw when the record needs to emitted to error collector.
  * This class is similar to {@link ErrorRowException}, but, with a difference
- * that it reports error and continues processing.
+ * that it reports error and continues processing. As {@link ErrorRowException}, it doesn't
+ * capture a stack trace and can be thrown repeatedly.
  */
 public class ReportErrorAndProceed extends Exception {
   // Message as to why the record errored.
@@ -29,6 +30,7 @@ public class ReportErrorAndProceed extends Exception {
   private int code;
 
   public ReportErrorAndProceed(String message, int code) {
+    super(message, null, false, false);
     this.message = message;
     this.code = code;
   }
@@ -20,23 +20,76 @@ import co.cask.wrangler.api.annotations.PublicEvolving;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Row defines the schema and data on which the wrangler will operate upon.
+ *
+ * <p>Names of the columns are held in a {@link RowHeader} that is shared by the rows
+ * having the same columns.</p>
+ *
+ * <p>Values of type int, long, float, double and boolean can be stored unboxed using the
+ * typed setters (e.g. {@link #setLong(int, long)}) and read back using the typed getters
+ * (e.g. {@link #getLong(int)}) without any allocation. {@link #getValue(int)} returns such
+ * values boxed, so directives unaware of the typed storage see no difference.</p>
+ *
+ * <p>A row can also be created over a {@link ValueLoader}, the values of its columns being
+ * loaded only when first read.</p>
  */
 @PublicEvolving
 public final class Row implements Serializable {
   private static final Logger LOG = LoggerFactory.getLogger(Row.class);
+  private static final long serialVersionUID = -6113040670211398942L;
+
+  // Serialized form of the row, kept as list of column names and list of values.
+  private static final ObjectStreamField[] serialPersistentFields = {
+    new ObjectStreamField("columns", List.class),
+    new ObjectStreamField("values", List.class)
+  };
 
   // Name of the columns held by the row.
-  private List<String> columns = new ArrayList<>();
+  private transient RowHeader header = RowHeader.EMPTY;
+
+  // Kind of value stored in a column, values of primitive kinds are held in 'primitives'.
+  static final byte OBJECT = 0;
+  static final byte INT = 1;
+  static final byte LONG = 2;
+  static final byte FLOAT = 3;
+  static final byte DOUBLE = 4;
+  static final byte BOOLEAN = 5;
+
+  // Values of the columns not loaded yet, by index of the column in the header the row was
+  // created with. Shared by all the rows, grown as rows with more columns are created.
+  private static volatile Unloaded[] unloaded = new Unloaded[0];
 
   // Values held by the row.
   private List<Object> values = new ArrayList<>();
 
+  // Kind of value and raw bits of primitive value of each column, allocated when the
+  // first primitive value is set. Columns past the length of the arrays hold objects.
+  private transient byte[] kinds;
+  private transient long[] primitives;
+
+  // Loader of the values not loaded yet and source they are loaded from.
+  private transient ValueLoader<Object> loader;
+  private transient Object source;
+
+  // Index of the input row of a batch the row was generated from, -1 if unknown.
+  private transient int origin = -1;
+
+  // Results of the computations made on the row by the directives, allocated when the first
+  // result is kept. Not copied with the row.
+  private transient Map<String, Object> computed;
+
   public Row() {
   }
 
@@ -47,7 +100,14 @@ public final class Row implements Serializable {
    */
   public Row(Row row) {
     this.values = new ArrayList<>(row.values);
-    this.columns = new ArrayList<>(row.columns);
+    this.header = row.header;
+    this.loader = row.loader;
+    this.source = row.source;
+    this.origin = row.origin;
+    if (row.kinds != null) {
+      this.kinds = row.kinds.clone();
+      this.primitives = row.primitives.clone();
+    }
   }
 
   /**
@@ -56,7 +116,29 @@ public final class Row implements Serializable {
    * @param columns to set in the row.
    */
   public Row(List<String> columns) {
-    this.columns = new ArrayList<>(columns);
+    this.header = RowHeader.of(columns);
+  }
+
+  /**
+   * Initializes a row with the columns of the header, the values of the columns are loaded
+   * from the source by the loader when first read. Values are loaded by index of the column
+   * in the header.
+   *
+   * @param header columns of the row.
+   * @param loader of the values of the columns, can be shared by the rows having the header.
+   * @param source from which the values are loaded.
+   */
+  @SuppressWarnings("unchecked")
+  public <S> Row(RowHeader header, ValueLoader<S> loader, S source) {
+    int size = header.size();
+    Unloaded[] placeholders = unloaded(size);
+    this.header = header;
+    this.loader = (ValueLoader<Object>) loader;
+    this.source = source;
+    this.values = new ArrayList<>(size);
+    for (int i = 0; i < size; ++i) {
+      values.add(placeholders[i]);
+    }
   }
 
   /**
@@ -66,9 +148,8 @@ public final class Row implements Serializable {
    * @param value for the column defined above.
    */
   public Row(String name, Object value) {
-    this.columns = new ArrayList<>();
+    this.header = RowHeader.EMPTY.add(name);
     this.values = new ArrayList<>();
-    this.columns.add(name);
     this.values.add(value);
   }
 
@@ -79,7 +160,7 @@ public final class Row implements Serializable {
    * @return name of the column.
    */
   public String getColumn(int idx) {
-    return columns.get(idx);
+    return header.getName(idx);
   }
 
   /**
@@ -89,7 +170,7 @@ public final class Row implements Serializable {
    * @param name of the column to be set at idx.
    */
   public void setColumn(int idx, String name) {
-    columns.set(idx, name);
+    header = header.rename(idx, name);
   }
 
   /**
@@ -99,7 +180,37 @@ public final class Row implements Serializable {
    * @return value at index (idx).
    */
   public Object getValue(int idx) {
-    return values.get(idx);
+    Object value = loaded(idx);
+    if (value == null && kind(idx) != OBJECT) {
+      // Values stored unboxed are boxed once, when first read as objects.
+      value = box(kinds[idx], primitives[idx]);
+      values.set(idx, value);
+    }
+    return value;
+  }
+
+  /**
+   * Returns the type of the value at the index, without boxing values stored unboxed.
+   *
+   * @param idx of the value.
+   * @return class of the value at index (idx), null if the value is null.
+   */
+  public Class<?> getType(int idx) {
+    switch (kind(idx)) {
+      case INT:
+        return Integer.class;
+      case LONG:
+        return Long.class;
+      case FLOAT:
+        return Float.class;
+      case DOUBLE:
+        return Double.class;
+      case BOOLEAN:
+        return Boolean.class;
+      default:
+        Object value = loaded(idx);
+        return value == null ? null : value.getClass();
+    }
   }
 
   /**
@@ -112,7 +223,7 @@ public final class Row implements Serializable {
     if (col != null && !col.isEmpty()) {
       int idx = find(col);
       if (idx != -1) {
-        return values.get(idx);
+        return getValue(idx);
       }
     }
     return null;
@@ -126,9 +237,245 @@ public final class Row implements Serializable {
    */
   public Row setValue(int idx, Object value) {
     values.set(idx, value);
+    if (kinds != null && idx < kinds.length) {
+      kinds[idx] = OBJECT;
+    }
     return this;
   }
 
+  /**
+   * Checks if the value of the row at index idx is null.
+   *
+   * @param idx index of the value.
+   * @return true if the value at index (idx) is null.
+   */
+  public boolean isNull(int idx) {
+    return kind(idx) == OBJECT && loaded(idx) == null;
+  }
+
+  /**
+   * Gets the value at index idx as int.
+   *
+   * @param idx from where the value should be retrieved.
+   * @return value at index (idx) as int.
+   */
+  public int getInt(int idx) {
+    byte kind = kind(idx);
+    if (kind == INT || kind == LONG) {
+      return (int) primitives[idx];
+    }
+    if (kind == FLOAT || kind == DOUBLE) {
+      return (int) Double.longBitsToDouble(primitives[idx]);
+    }
+    return ((Number) getValue(idx)).intValue();
+  }
+
+  /**
+   * Gets the value at index idx as long.
+   *
+   * @param idx from where the value should be retrieved.
+   * @return value at index (idx) as long.
+   */
+  public long getLong(int idx) {
+    byte kind = kind(idx);
+    if (kind == INT || kind == LONG) {
+      return primitives[idx];
+    }
+    if (kind == FLOAT || kind == DOUBLE) {
+      return (long) Double.longBitsToDouble(primitives[idx]);
+    }
+    return ((Number) getValue(idx)).longValue();
+  }
+
+  /**
+   * Gets the value at index idx as float.
+   *
+   * @param idx from where the value should be retrieved.
+   * @return value at index (idx) as float.
+   */
+  public float getFloat(int idx) {
+    return (float) getDouble(idx);
+  }
+
+  /**
+   * Gets the value at index idx as double.
+   *
+   * @param idx from where the value should be retrieved.
+   * @return value at index (idx) as double.
+   */
+  public double getDouble(int idx) {
+    byte kind = kind(idx);
+    if (kind == INT || kind == LONG) {
+      return primitives[idx];
+    }
+    if (kind == FLOAT || kind == DOUBLE) {
+      return Double.longBitsToDouble(primitives[idx]);
+    }
+    return ((Number) getValue(idx)).doubleValue();
+  }
+
+  /**
+   * Gets the value at index idx as boolean.
+   *
+   * @param idx from where the value should be retrieved.
+   * @return value at index (idx) as boolean.
+   */
+  public boolean getBoolean(int idx) {
+    if (kind(idx) == BOOLEAN) {
+      return primitives[idx] != 0;
+    }
+    return (Boolean) getValue(idx);
+  }
+
+  /**
+   * Updates the value of the row at index idx with an int stored unboxed.
+   *
+   * @param idx index at which the value needs to be updated.
+   * @param value value to be updated at index (idx).
+   */
+  public Row setInt(int idx, int value) {
+    return setPrimitive(idx, INT, value);
+  }
+
+  /**
+   * Updates the value of the row at index idx with a long stored unboxed.
+   *
+   * @param idx index at which the value needs to be updated.
+   * @param value value to be updated at index (idx).
+   */
+  public Row setLong(int idx, long value) {
+    return setPrimitive(idx, LONG, value);
+  }
+
+  /**
+   * Updates the value of the row at index idx with a float stored unboxed.
+   *
+   * @param idx index at which the value needs to be updated.
+   * @param value value to be updated at index (idx).
+   */
+  public Row setFloat(int idx, float value) {
+    return setPrimitive(idx, FLOAT, Double.doubleToRawLongBits(value));
+  }
+
+  /**
+   * Updates the value of the row at index idx with a double stored unboxed.
+   *
+   * @param idx index at which the value needs to be updated.
+   * @param value value to be updated at index (idx).
+   */
+  public Row setDouble(int idx, double value) {
+    return setPrimitive(idx, DOUBLE, Double.doubleToRawLongBits(value));
+  }
+
+  /**
+   * Updates the value of the row at index idx with a boolean stored unboxed.
+   *
+   * @param idx index at which the value needs to be updated.
+   * @param value value to be updated at index (idx).
+   */
+  public Row setBoolean(int idx, boolean value) {
+    return setPrimitive(idx, BOOLEAN, value ? 1 : 0);
+  }
+
+  /**
+   * Updates the value of the row at index idx, storing int, long, float, double and boolean
+   * values unboxed.
+   *
+   * @param idx index at which the value needs to be updated.
+   * @param value value to be updated at index (idx).
+   */
+  public Row setUnboxed(int idx, Object value) {
+    if (value instanceof Integer) {
+      return setInt(idx, (Integer) value);
+    }
+    if (value instanceof Long) {
+      return setLong(idx, (Long) value);
+    }
+    if (value instanceof Float) {
+      return setFloat(idx, (Float) value);
+    }
+    if (value instanceof Double) {
+      return setDouble(idx, (Double) value);
+    }
+    if (value instanceof Boolean) {
+      return setBoolean(idx, (Boolean) value);
+    }
+    return setValue(idx, value);
+  }
+
+  Row setPrimitive(int idx, byte kind, long bits) {
+    values.set(idx, null);
+    if (kinds == null || kinds.length < values.size()) {
+      int size = Math.max(values.size(), kinds == null ? 8 : kinds.length * 2);
+      kinds = kinds == null ? new byte[size] : Arrays.copyOf(kinds, size);
+      primitives = primitives == null ? new long[size] : Arrays.copyOf(primitives, size);
+    }
+    kinds[idx] = kind;
+    primitives[idx] = bits;
+    return this;
+  }
+
+  byte kind(int idx) {
+    if (kinds == null || idx >= kinds.length) {
+      return OBJECT;
+    }
+    return kinds[idx];
+  }
+
+  /**
+   * @return raw bits of the value stored unboxed at the index.
+   */
+  long bits(int idx) {
+    return primitives[idx];
+  }
+
+  static Object box(byte kind, long bits) {
+    switch (kind) {
+      case INT:
+        return (int) bits;
+      case LONG:
+        return bits;
+      case FLOAT:
+        return (float) Double.longBitsToDouble(bits);
+      case DOUBLE:
+        return Double.longBitsToDouble(bits);
+      case BOOLEAN:
+        return bits != 0;
+      default:
+        throw new IllegalArgumentException("Value of kind " + kind + " is not stored unboxed.");
+    }
+  }
+
+  /**
+   * @return object value at the index, loading it if it's not loaded yet.
+   */
+  private Object loaded(int idx) {
+    Object value = values.get(idx);
+    if (value instanceof Unloaded) {
+      value = loader.load(source, ((Unloaded) value).idx);
+      values.set(idx, value);
+    }
+    return value;
+  }
+
+  private static Unloaded[] unloaded(int size) {
+    Unloaded[] placeholders = unloaded;
+    if (placeholders.length < size) {
+      synchronized (Row.class) {
+        placeholders = unloaded;
+        if (placeholders.length < size) {
+          int length = placeholders.length;
+          placeholders = Arrays.copyOf(placeholders, Math.max(size, length * 2));
+          for (int i = length; i < placeholders.length; ++i) {
+            placeholders[i] = new Unloaded(i);
+          }
+          unloaded = placeholders;
+        }
+      }
+    }
+    return placeholders;
+  }
+
   /**
    * Adds a value into row with name.
    *
@@ -136,7 +483,7 @@ public final class Row implements Serializable {
    * @param value to be added to row.
    */
   public Row add(String name, Object value) {
-    columns.add(name);
+    header = header.add(name);
     values.add(value);
     return this;
   }
@@ -147,8 +494,13 @@ public final class Row implements Serializable {
    * @param idx for which the value and column are removed.
    */
   public Row remove(int idx) {
-    columns.remove(idx);
+    header = header.remove(idx);
     values.remove(idx);
+    if (kinds != null && idx < kinds.length) {
+      System.arraycopy(kinds, idx + 1, kinds, idx, kinds.length - idx - 1);
+      System.arraycopy(primitives, idx + 1, primitives, idx, primitives.length - idx - 1);
+      kinds[kinds.length - 1] = OBJECT;
+    }
     return this;
   }
 
@@ -159,21 +511,53 @@ public final class Row implements Serializable {
    * @return null if not present, else the index at which the column is found.
    */
   public int find(String col) {
-    int idx = 0;
-    for (String name : columns) {
-      if (col.equalsIgnoreCase(name)) {
-        return idx;
-      }
-      idx++;
-    }
-    return -1;
+    return header.find(col);
   }
 
   /**
    * @return  Length of the row.
    */
   public int length() {
-    return columns.size();
+    return header.size();
+  }
+
+  /**
+   * Returns the index of the input row of a batch this row was generated from. Rows copied
+   * from a row keep its origin, so errors raised on generated rows can be traced back to the
+   * input row.
+   *
+   * @return index of the input row, -1 if unknown.
+   */
+  public int getOrigin() {
+    return origin;
+  }
+
+  /**
+   * @param origin index of the input row of a batch this row was generated from.
+   */
+  public void setOrigin(int origin) {
+    this.origin = origin;
+  }
+
+  /**
+   * Returns the results of the computations made on the row, shared by the directives executed
+   * on it so that a computation repeated by several directives is made once. The results are
+   * not copied with the row.
+   *
+   * @return mutable map of the results, keyed by computation.
+   */
+  public Map<String, Object> getComputed() {
+    if (computed == null) {
+      computed = new HashMap<>();
+    }
+    return computed;
+  }
+
+  /**
+   * @return Header holding the names of the columns of the row.
+   */
+  public RowHeader getHeader() {
+    return header;
   }
 
   /**
@@ -181,10 +565,8 @@ public final class Row implements Serializable {
    */
   public List<Pair<String, Object>> getFields() {
     List<Pair<String, Object>> v = new ArrayList<>();
-    int i = 0;
-    for (String column : columns) {
-      v.add(new Pair<>(column, values.get(i)));
-      ++i;
+    for (int i = 0; i < header.size(); ++i) {
+      v.add(new Pair<>(header.getName(i), getValue(i)));
     }
     return v;
   }
@@ -216,10 +598,52 @@ public final class Row implements Serializable {
     if (idx != -1) {
       setValue(idx, value);
     } else {
-      if (index < columns.size() && index < values.size()) {
-        columns.add(index, name);
+      if (index < header.size() && index < values.size()) {
+        header = header.insert(index, name);
         values.add(index, value);
+        if (kinds != null && index < kinds.length) {
+          if (kinds.length < values.size()) {
+            kinds = Arrays.copyOf(kinds, values.size());
+            primitives = Arrays.copyOf(primitives, values.size());
+          }
+          System.arraycopy(kinds, index, kinds, index + 1, kinds.length - index - 1);
+          System.arraycopy(primitives, index, primitives, index + 1, primitives.length - index - 1);
+          kinds[index] = OBJECT;
+        }
       }
     }
   }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("columns", new ArrayList<>(header.getNames()));
+    List<Object> objects = values;
+    if (kinds != null || loader != null) {
+      objects = new ArrayList<>(values.size());
+      for (int i = 0; i < values.size(); ++i) {
+        objects.add(getValue(i));
+      }
+    }
+    fields.put("values", objects);
+    out.writeFields();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    header = RowHeader.of((List<String>) fields.get("columns", new ArrayList<String>()));
+    values = (List<Object>) fields.get("values", new ArrayList<Object>());
+  }
+
+  /**
+   * Value of a column not loaded yet.
+   */
+  private static final class Unloaded {
+    // Index of the column in the header the row was created with.
+    private final int idx;
+
+    private Unloaded(int idx) {
+      this.idx = idx;
+    }
+  }
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.api;
+
+import co.cask.wrangler.api.annotations.PublicEvolving;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * RowBatch is a columnar view of a batch of {@link Row}s, used by {@link VectorizedDirective}s.
+ *
+ * <p>A column is gathered from the rows into a {@link ColumnVector} the first time it's
+ * requested, and the same vector is returned for the following requests. Changes made to
+ * the vectors are written back to the rows only when {@link #toRows()} is invoked, so
+ * consecutive vectorized directives work on the vectors without going through the rows.</p>
+ *
+ * <p>Filters remove rows from the batch by deselecting them, the rows are not copied. The
+ * indices of the rows still selected form the selection vector, which vectorized directives
+ * iterate over, and only the rows selected are returned by {@link #toRows()}.</p>
+ */
+@PublicEvolving
+public final class RowBatch {
+  private final List<Row> rows;
+
+  // Vectors gathered from the rows, keyed by the lower cased name of the column.
+  private final Map<String, ColumnVector> columns = new LinkedHashMap<>();
+
+  // Vectors with values for rows missing the column, in the order the column was first added.
+  private final Set<ColumnVector> additions = new LinkedHashSet<>();
+
+  // Rows selected, null when all the rows are selected.
+  private BitSet selected;
+
+  // Indices of the rows selected, computed when first requested after a change.
+  private int[] selection;
+
+  public RowBatch(List<Row> rows) {
+    this.rows = rows instanceof RandomAccess ? rows : new ArrayList<>(rows);
+  }
+
+  /**
+   * @return number of rows in the batch, including the rows deselected.
+   */
+  public int size() {
+    return rows.size();
+  }
+
+  /**
+   * Returns the selection vector of the batch. The array returned is not modified when rows are
+   * deselected afterwards, hence rows can be deselected while iterating over it.
+   *
+   * @return indices of the rows selected, in increasing order.
+   */
+  public int[] selection() {
+    if (selection == null) {
+      if (selected == null) {
+        selection = new int[rows.size()];
+        for (int i = 0; i < selection.length; ++i) {
+          selection[i] = i;
+        }
+      } else {
+        selection = new int[selected.cardinality()];
+        for (int i = selected.nextSetBit(0), j = 0; i >= 0; i = selected.nextSetBit(i + 1), ++j) {
+          selection[j] = i;
+        }
+      }
+    }
+    return selection;
+  }
+
+  /**
+   * @param idx of the row in the batch.
+   * @return true if the row is selected.
+   */
+  public boolean isSelected(int idx) {
+    return selected == null || selected.get(idx);
+  }
+
+  /**
+   * Removes a row from the batch. Values of the row are not gathered in the vectors requested afterwards.
+   *
+   * @param idx of the row in the batch.
+   */
+  public void deselect(int idx) {
+    if (selected == null) {
+      selected = new BitSet(rows.size());
+      selected.set(0, rows.size());
+    }
+    if (selected.get(idx)) {
+      selected.clear(idx);
+      selection = null;
+    }
+  }
+
+  /**
+   * Returns a row of the batch, for directives that need the whole row. The changes made to the
+   * vectors are written back to the rows first, vectors requested afterwards are gathered again.
+   *
+   * @param idx of the row in the batch.
+   * @return row at the index.
+   */
+  public Row getRow(int idx) {
+    writeBack();
+    return rows.get(idx);
+  }
+
+  /**
+   * Returns the vector of values of the column across the rows of the batch.
+   *
+   * @param name of the column, matched ignoring the case.
+   * @return vector of the values of the column.
+   */
+  public ColumnVector column(String name) {
+    String key = name.toLowerCase();
+    ColumnVector vector = columns.get(key);
+    if (vector == null) {
+      vector = new ColumnVector(this, name, rows, selection());
+      columns.put(key, vector);
+    }
+    return vector;
+  }
+
+  /**
+   * Writes back the changes made to the vectors into the rows.
+   *
+   * @return rows of the batch.
+   */
+  public List<Row> toRows() {
+    writeBack();
+    if (selected == null) {
+      return rows;
+    }
+    List<Row> kept = new ArrayList<>(selected.cardinality());
+    for (int i : selection()) {
+      kept.add(rows.get(i));
+    }
+    return kept;
+  }
+
+  private void writeBack() {
+    if (columns.isEmpty()) {
+      return;
+    }
+    for (ColumnVector vector : columns.values()) {
+      vector.writeValues(rows);
+    }
+    for (ColumnVector vector : additions) {
+      vector.writeAdditions(rows);
+    }
+    columns.clear();
+    additions.clear();
+  }
+
+  void added(ColumnVector vector) {
+    additions.add(vector);
+  }
+}
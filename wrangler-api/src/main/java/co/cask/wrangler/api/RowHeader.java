@@ -0,0 +1,324 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.api;
+
+import co.cask.wrangler.api.annotations.PublicEvolving;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * RowHeader holds the names of the columns of a {@link Row}.
+ *
+ * <p>A header is immutable and is shared by all the rows that have the same columns. Adding,
+ * renaming or removing a column moves the row to the header derived from the change. Derived
+ * headers are cached, hence rows going through the same changes end up sharing the same
+ * header.</p>
+ *
+ * <p>Columns are looked up case insensitively using an index built once per header. Headers
+ * derived by adding a column share the names and the index of the header they are derived from,
+ * as long as no other column was added to it before, hence columns added one after the other
+ * don't copy the columns already there.</p>
+ */
+@PublicEvolving
+public final class RowHeader {
+  // Header with no columns, all the rows created empty start with this header.
+  public static final RowHeader EMPTY = new RowHeader(new String[0]);
+
+  // Maximum number of derived headers cached by a header.
+  private static final int MAX_DERIVED = 64;
+
+  // Columns of the header, the header using the first 'size' of them.
+  private final Columns columns;
+  private final int size;
+
+  // Headers derived from this header, keyed by the change applied.
+  private volatile ConcurrentMap<Object, SoftReference<RowHeader>> derived;
+
+  /**
+   * Returns the header with the columns specified, shared with the other rows having the same columns.
+   *
+   * @param names of the columns.
+   * @return header with the columns.
+   */
+  public static RowHeader of(List<String> names) {
+    RowHeader header = EMPTY;
+    for (String name : names) {
+      header = header.add(name);
+    }
+    return header;
+  }
+
+  private RowHeader(String[] names) {
+    this(new Columns(names), names.length);
+  }
+
+  private RowHeader(Columns columns, int size) {
+    this.columns = columns;
+    this.size = size;
+  }
+
+  /**
+   * @return number of columns in the header.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Gets a column name by index.
+   *
+   * @param idx of the column.
+   * @return name of the column.
+   */
+  public String getName(int idx) {
+    if (idx >= size) {
+      throw new ArrayIndexOutOfBoundsException(idx);
+    }
+    return columns.names[idx];
+  }
+
+  /**
+   * @return unmodifiable list of the column names.
+   */
+  public List<String> getNames() {
+    return Collections.unmodifiableList(Arrays.asList(columns.names).subList(0, size));
+  }
+
+  /**
+   * Finds a column index based on the name of the column, ignoring the case.
+   *
+   * @param name to be searched within the header.
+   * @return -1 if not present, else the index of the first column with the name.
+   */
+  public int find(String name) {
+    Integer idx = columns.exact.get(name);
+    if (idx == null) {
+      idx = columns.folded.get(fold(name));
+    }
+    // Columns past the size of the header were added to the headers derived from it.
+    return idx == null || idx >= size ? -1 : idx;
+  }
+
+  /**
+   * @return header with a column added at the end.
+   */
+  public RowHeader add(String name) {
+    RowHeader header = name == null ? null : getDerived(name);
+    if (header == null) {
+      header = columns.append(size, name) ? new RowHeader(columns, size + 1) : copy(name);
+      if (name != null) {
+        putDerived(name, header);
+      }
+    }
+    return header;
+  }
+
+  private RowHeader copy(String name) {
+    String[] copy = Arrays.copyOf(columns.names, size + 1);
+    copy[size] = name;
+    return new RowHeader(copy);
+  }
+
+  /**
+   * @return header with a column inserted at index.
+   */
+  public RowHeader insert(int idx, String name) {
+    Change change = new Change(Change.INSERT, idx, name);
+    RowHeader header = getDerived(change);
+    if (header == null) {
+      String[] copy = new String[size + 1];
+      System.arraycopy(columns.names, 0, copy, 0, idx);
+      copy[idx] = name;
+      System.arraycopy(columns.names, idx, copy, idx + 1, size - idx);
+      header = putDerived(change, new RowHeader(copy));
+    }
+    return header;
+  }
+
+  /**
+   * @return header with the column at index renamed.
+   */
+  public RowHeader rename(int idx, String name) {
+    Change change = new Change(Change.RENAME, idx, name);
+    RowHeader header = getDerived(change);
+    if (header == null) {
+      String[] copy = Arrays.copyOf(columns.names, size);
+      copy[idx] = name;
+      header = putDerived(change, new RowHeader(copy));
+    }
+    return header;
+  }
+
+  /**
+   * @return header with the column at index removed.
+   */
+  public RowHeader remove(int idx) {
+    Integer change = idx;
+    RowHeader header = getDerived(change);
+    if (header == null) {
+      String[] copy = new String[size - 1];
+      System.arraycopy(columns.names, 0, copy, 0, idx);
+      System.arraycopy(columns.names, idx + 1, copy, idx, size - idx - 1);
+      header = putDerived(change, new RowHeader(copy));
+    }
+    return header;
+  }
+
+  private RowHeader getDerived(Object change) {
+    ConcurrentMap<Object, SoftReference<RowHeader>> cache = derived;
+    if (cache == null) {
+      return null;
+    }
+    SoftReference<RowHeader> reference = cache.get(change);
+    return reference == null ? null : reference.get();
+  }
+
+  private RowHeader putDerived(Object change, RowHeader header) {
+    ConcurrentMap<Object, SoftReference<RowHeader>> cache = derived;
+    if (cache == null) {
+      synchronized (this) {
+        if (derived == null) {
+          derived = new ConcurrentHashMap<>();
+        }
+        cache = derived;
+      }
+    }
+    // Column names derived from data can generate unbounded number of changes.
+    if (cache.size() < MAX_DERIVED || cache.containsKey(change)) {
+      cache.put(change, new SoftReference<>(header));
+    }
+    return header;
+  }
+
+  /**
+   * Folds the case of each character the same way {@link String#equalsIgnoreCase(String)}
+   * compares them.
+   */
+  private static String fold(String name) {
+    char[] chars = null;
+    for (int i = 0; i < name.length(); ++i) {
+      char c = name.charAt(i);
+      char f = Character.toLowerCase(Character.toUpperCase(c));
+      if (f != c) {
+        if (chars == null) {
+          chars = name.toCharArray();
+        }
+        chars[i] = f;
+      }
+    }
+    return chars == null ? name : new String(chars);
+  }
+
+  /**
+   * Names of columns and their index, appended to as columns are added to the last header using them.
+   */
+  private static final class Columns {
+    // Names of the columns, replaced by a larger copy when full.
+    private volatile String[] names;
+    private int size;
+
+    // Index of the first column matching a name, keyed by name and by case folded name.
+    private final Map<String, Integer> exact = new ConcurrentHashMap<>();
+    private final Map<String, Integer> folded = new ConcurrentHashMap<>();
+
+    private Columns(String[] names) {
+      this.names = names;
+      for (String name : names) {
+        index(name);
+      }
+    }
+
+    /**
+     * Adds a column after the columns used by a header, if no column was added after them yet.
+     *
+     * @param used number of columns used by the header.
+     * @param name of the column added.
+     * @return true if the column was added.
+     */
+    private synchronized boolean append(int used, String name) {
+      if (used != size) {
+        return false;
+      }
+      if (size == names.length) {
+        String[] grown = Arrays.copyOf(names, Math.max(8, size * 2));
+        grown[size] = name;
+        names = grown;
+      } else {
+        names[size] = name;
+      }
+      index(name);
+      return true;
+    }
+
+    private void index(String name) {
+      int idx = size++;
+      if (name == null) {
+        return;
+      }
+      String key = fold(name);
+      Integer first = folded.get(key);
+      if (first == null) {
+        first = idx;
+        folded.put(key, first);
+      }
+      if (!exact.containsKey(name)) {
+        exact.put(name, first);
+      }
+    }
+  }
+
+  /**
+   * Change applied to a header, used as key of the derived headers.
+   */
+  private static final class Change {
+    private static final int INSERT = 0;
+    private static final int RENAME = 1;
+
+    private final int type;
+    private final int idx;
+    private final String name;
+
+    private Change(int type, int idx, String name) {
+      this.type = type;
+      this.idx = idx;
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Change that = (Change) o;
+      return type == that.type && idx == that.idx && (name == null ? that.name == null : name.equals(that.name));
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * (31 * type + idx) + (name == null ? 0 : name.hashCode());
+    }
+  }
+}
@@ -61,4 +61,14 @@ public interface TransientStore extends Serializable {
    * @return list of all the variables.
    */
   Set<String> getVariables();
+
+  /**
+   * Checks if a variable is set in the store.
+   *
+   * @param name of the variable.
+   * @return true if the variable is set in any scope, false otherwise.
+   */
+  default boolean has(String name) {
+    return getVariables().contains(name);
+  }
 }
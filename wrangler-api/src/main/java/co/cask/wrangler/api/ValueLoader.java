@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.api;
+
+import co.cask.wrangler.api.annotations.PublicEvolving;
+
+/**
+ * Loads the values of a {@link Row} created over a source of data, a value being loaded
+ * only when the column is first read. A loader holds no state of the source, hence it can
+ * be shared by the rows created over sources of the same shape.
+ *
+ * @param <S> type of the source of data.
+ */
+@PublicEvolving
+public interface ValueLoader<S> {
+  /**
+   * Loads the value of a column.
+   *
+   * @param source from which the value is loaded.
+   * @param idx of the column in the header the row was created with.
+   * @return value of the column.
+   */
+  Object load(S source, int idx);
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.api;
+
+import co.cask.wrangler.api.annotations.PublicEvolving;
+
+/**
+ * A {@link Directive} that can also be executed on whole columns of a {@link RowBatch}.
+ *
+ * <p>Vectorized execution is meant for directives that transform values of columns or filter
+ * rows, without removing columns or reordering them. Directives only process the rows in the
+ * {@link RowBatch#selection()}, filters deselect the rows they remove. When a batch is executed,
+ * consecutive vectorized directives operate on the columns of the same {@link RowBatch}, the batch
+ * is converted back to rows only before a directive that is not vectorized. When executing
+ * record by record, {@code execute(List<Row>, ExecutorContext)} is used instead, and it
+ * should produce the same result.</p>
+ */
+@PublicEvolving
+public interface VectorizedDirective extends Directive {
+  /**
+   * Executes the directive on the columns of the batch.
+   *
+   * @param batch columnar view of the rows to be wrangled.
+   * @param context {@link ExecutorContext} passed to each step.
+   */
+  void execute(RowBatch batch, ExecutorContext context) throws DirectiveExecutionException;
+}
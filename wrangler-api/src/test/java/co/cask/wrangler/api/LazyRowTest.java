@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.wrangler.api;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests {@link Row} created over a {@link ValueLoader}.
+ */
+public class LazyRowTest {
+
+  @Test
+  public void testValuesLoadedWhenRead() throws Exception {
+    final List<Integer> loaded = new ArrayList<>();
+    RowHeader header = RowHeader.of(Arrays.asList("a", "b", "c"));
+    Row row = new Row(header, (String source, int idx) -> {
+      loaded.add(idx);
+      return source + idx;
+    }, "v");
+
+    Assert.assertEquals(3, row.length());
+    Assert.assertTrue(loaded.isEmpty());
+    Assert.assertEquals("v1", row.getValue("b"));
+    Assert.assertEquals("v1", row.getValue(1));
+    Assert.assertEquals(Arrays.asList(1), loaded);
+
+    // Removing a column doesn't change the values loaded for the others.
+    row.remove(0);
+    row.setValue(0, "x");
+    Assert.assertEquals("v2", row.getValue("c"));
+    Assert.assertEquals("x", row.getValue("b"));
+    Assert.assertEquals(Arrays.asList(1, 2), loaded);
+  }
+
+  @Test
+  public void testSerializationLoadsValues() throws Exception {
+    RowHeader header = RowHeader.of(Arrays.asList("a", "b"));
+    Row row = new Row(header, (Long source, int idx) -> idx * source, 10L);
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(row);
+    }
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+      Row copy = (Row) ois.readObject();
+      Assert.assertEquals(0L, copy.getValue("a"));
+      Assert.assertEquals(10L, copy.getValue("b"));
+    }
+  }
+
+  @Test
+  public void testLoaderSharedByRows() throws Exception {
+    RowHeader header = RowHeader.of(Arrays.asList("a", "b"));
+    ValueLoader<List<String>> loader = List::get;
+    Row first = new Row(header, loader, Arrays.asList("x", "y"));
+    Row second = new Row(header, loader, Arrays.asList("z", "w"));
+
+    Assert.assertEquals("y", first.getValue("b"));
+    Assert.assertEquals("z", second.getValue("a"));
+    Assert.assertFalse(second.isNull(1));
+
+    // Copies load from the same source, independently of the original row.
+    Row copy = new Row(first);
+    first.setValue(0, "v");
+    Assert.assertEquals("x", copy.getValue("a"));
+  }
+}
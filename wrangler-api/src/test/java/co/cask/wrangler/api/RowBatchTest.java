@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.wrangler.api;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests {@link RowBatch} selection of rows.
+ */
+public class RowBatchTest {
+
+  @Test
+  public void testDeselectedRowsRemoved() throws Exception {
+    List<Row> rows = Arrays.asList(new Row("a", "x"), new Row("a", "y"), new Row("a", "z"));
+    RowBatch batch = new RowBatch(rows);
+    Assert.assertArrayEquals(new int[] { 0, 1, 2 }, batch.selection());
+
+    ColumnVector vector = batch.column("a");
+    for (int i : batch.selection()) {
+      if ("y".equals(vector.get(i))) {
+        batch.deselect(i);
+      }
+    }
+    Assert.assertArrayEquals(new int[] { 0, 2 }, batch.selection());
+    Assert.assertFalse(batch.isSelected(1));
+
+    // Vectors requested afterwards only gather the rows selected.
+    batch.column("a").set(2, "w");
+    Assert.assertFalse(batch.column("b").isPresent(1));
+
+    List<Row> kept = batch.toRows();
+    Assert.assertEquals(2, kept.size());
+    Assert.assertEquals("x", kept.get(0).getValue("a"));
+    Assert.assertEquals("w", kept.get(1).getValue("a"));
+  }
+
+  @Test
+  public void testRowsIncludeVectorChanges() throws Exception {
+    List<Row> rows = Arrays.asList(new Row("a", "x"), new Row("b", "y"));
+    RowBatch batch = new RowBatch(rows);
+    batch.column("a").set(0, "X");
+    batch.column("a").set(1, "Y");
+
+    Assert.assertEquals("X", batch.getRow(0).getValue("a"));
+    Assert.assertEquals("Y", batch.getRow(1).getValue("a"));
+    Assert.assertEquals("X", batch.column("a").get(0));
+    Assert.assertEquals(rows, batch.toRows());
+  }
+
+  @Test
+  public void testUnboxedValues() throws Exception {
+    List<Row> rows = Arrays.asList(new Row("a", "1"), new Row("b", "2"));
+    RowBatch batch = new RowBatch(rows);
+    ColumnVector vector = batch.column("a");
+    vector.setUnboxed(0, 10);
+    vector.setUnboxed(1, 2.5);
+
+    List<Row> results = batch.toRows();
+    Assert.assertEquals(10, results.get(0).getInt(0));
+    Assert.assertEquals(10, results.get(0).getValue("a"));
+    Assert.assertEquals(2.5, results.get(1).getDouble(1), 0.0001);
+    Assert.assertEquals(2.5, results.get(1).getValue("a"));
+  }
+
+  @Test
+  public void testVectorReadsUnboxedValues() throws Exception {
+    List<Row> rows = Arrays.asList(new Row("a", null).setInt(0, 10), new Row("a", "x"));
+    RowBatch batch = new RowBatch(rows);
+    ColumnVector vector = batch.column("a");
+
+    Assert.assertEquals(Integer.class, vector.getType(0));
+    Assert.assertEquals(String.class, vector.getType(1));
+    Assert.assertEquals(10L, vector.getLong(0));
+    Assert.assertEquals(10.0, vector.getDouble(0), 0.0001);
+    vector.setLong(0, vector.getLong(0) + 1);
+    vector.setBoolean(1, true);
+
+    List<Row> results = batch.toRows();
+    Assert.assertEquals(11L, results.get(0).getLong(0));
+    Assert.assertEquals(Long.class, results.get(0).getType(0));
+    Assert.assertEquals(true, results.get(1).getValue("a"));
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.api;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Tests {@link RowHeader}
+ */
+public class RowHeaderTest {
+
+  @Test
+  public void testCaseInsensitiveFind() throws Exception {
+    RowHeader header = RowHeader.of(Arrays.asList("Body", "x", "BODY"));
+    Assert.assertEquals(0, header.find("body"));
+    Assert.assertEquals(0, header.find("BODY"));
+    Assert.assertEquals(1, header.find("X"));
+    Assert.assertEquals(-1, header.find("y"));
+  }
+
+  @Test
+  public void testRowsShareHeader() throws Exception {
+    Row first = new Row("a", 1).add("b", 2);
+    Row second = new Row("a", 3).add("b", 4);
+    Assert.assertSame(first.getHeader(), second.getHeader());
+
+    // Changing the columns of a row doesn't affect the other rows.
+    first.remove(0);
+    first.setColumn(0, "c");
+    Assert.assertEquals(-1, first.find("a"));
+    Assert.assertEquals(0, first.find("c"));
+    Assert.assertEquals(0, second.find("a"));
+    Assert.assertEquals(1, second.find("b"));
+
+    second.remove(0);
+    second.setColumn(0, "c");
+    Assert.assertSame(first.getHeader(), second.getHeader());
+  }
+
+  @Test
+  public void testColumnsAddedToSharedHeader() throws Exception {
+    RowHeader base = RowHeader.of(Arrays.asList("a", "b"));
+    RowHeader first = base.add("c");
+    RowHeader second = base.add("d").add("C");
+
+    // Columns added to a header are not visible from the other headers derived from it.
+    Assert.assertEquals(Arrays.asList("a", "b"), base.getNames());
+    Assert.assertEquals(-1, base.find("c"));
+    Assert.assertEquals(Arrays.asList("a", "b", "c"), first.getNames());
+    Assert.assertEquals(2, first.find("C"));
+    Assert.assertEquals(-1, first.find("d"));
+    Assert.assertEquals(Arrays.asList("a", "b", "d", "C"), second.getNames());
+    Assert.assertEquals(3, second.find("c"));
+
+    RowHeader header = RowHeader.EMPTY;
+    for (int i = 0; i < 1000; ++i) {
+      header = header.add("column_" + i);
+    }
+    Assert.assertEquals(1000, header.size());
+    Assert.assertEquals(999, header.find("COLUMN_999"));
+    Assert.assertEquals("column_500", header.getName(500));
+  }
+}
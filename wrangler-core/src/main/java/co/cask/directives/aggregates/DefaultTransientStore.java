@@ -82,6 +82,17 @@ public class DefaultTransientStore implements TransientStore {
     return vars;
   }
 
+  /**
+   * Checks if a variable is set in the store.
+   *
+   * @param name of the variable.
+   * @return true if the variable is set in any scope, false otherwise.
+   */
+  @Override
+  public boolean has(String name) {
+    return global.containsKey(name) || local.containsKey(name);
+  }
+
   /**
    * Resets the state of this store.
    */
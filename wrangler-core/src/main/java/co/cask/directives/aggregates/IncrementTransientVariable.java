@@ -34,9 +34,9 @@ import co.cask.wrangler.api.parser.Numeric;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
 import co.cask.wrangler.expression.EL;
-import co.cask.wrangler.expression.ELContext;
 import co.cask.wrangler.expression.ELException;
 import co.cask.wrangler.expression.ELResult;
+import co.cask.wrangler.expression.ELRowContext;
 
 import java.util.List;
 
@@ -54,6 +54,8 @@ public class IncrementTransientVariable implements Directive {
   private long incrementBy;
   private String expression;
   private final EL el = new EL(new EL.DefaultFunctions());
+  // Binds the rows to the variables of the expression.
+  private ELRowContext elContext;
 
   @Override
   public UsageDefinition define() {
@@ -71,6 +73,7 @@ public class IncrementTransientVariable implements Directive {
     this.incrementBy = ((Numeric) args.value("value")).value().longValue();
     try {
       el.compile(expression);
+      elContext = new ELRowContext(el.variables());
     } catch (ELException e) {
       throw new DirectiveParseException(e.getMessage());
     }
@@ -81,18 +84,8 @@ public class IncrementTransientVariable implements Directive {
     throws DirectiveExecutionException, ErrorRowException {
     for (Row row : rows) {
       // Move the fields from the row into the context.
-      ELContext ctx = new ELContext();
-      ctx.set("this", row);
-      for(String var : el.variables()) {
-        ctx.set(var, row.getValue(var));
-      }
-
-      // Transient variables are added.
-      if (context != null) {
-        for (String variable : context.getTransientStore().getVariables()) {
-          ctx.set(variable, context.getTransientStore().get(variable));
-        }
-      }
+      // Transient variables are resolved when read.
+      ELRowContext ctx = elContext.bind(row, context);
 
       // Execution of the script / expression based on the row data
       // mapped into context.
@@ -33,9 +33,9 @@ import co.cask.wrangler.api.parser.Identifier;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
 import co.cask.wrangler.expression.EL;
-import co.cask.wrangler.expression.ELContext;
 import co.cask.wrangler.expression.ELException;
 import co.cask.wrangler.expression.ELResult;
+import co.cask.wrangler.expression.ELRowContext;
 
 import java.util.List;
 
@@ -52,6 +52,8 @@ import java.util.List;
 public class SetTransientVariable implements Directive {
   public static final String NAME = "set-variable";
   private final EL el = new EL(new EL.DefaultFunctions());
+  // Binds the rows to the variables of the expression.
+  private ELRowContext elContext;
   private String variable;
   private String expression;
 
@@ -69,6 +71,7 @@ public class SetTransientVariable implements Directive {
     this.expression = ((Expression) args.value("condition")).value();
     try {
       el.compile(expression);
+      elContext = new ELRowContext(el.variables());
     } catch (ELException e) {
       throw new DirectiveParseException(e.getMessage());
     }
@@ -84,18 +87,8 @@ public class SetTransientVariable implements Directive {
     throws DirectiveExecutionException, ErrorRowException {
     for (Row row : rows) {
       // Move the fields from the row into the context.
-      ELContext ctx = new ELContext(context);
-      ctx.set("this", row);
-      for(String var : el.variables()) {
-        ctx.set(var, row.getValue(var));
-      }
-
-      // Transient variables are added.
-      if (context != null) {
-        for (String variable : context.getTransientStore().getVariables()) {
-          ctx.set(variable, context.getTransientStore().get(variable));
-        }
-      }
+      // Transient variables are resolved when read.
+      ELRowContext ctx = elContext.bind(row, context);
 
       // Execution of the script / expression based on the row data
       // mapped into context.
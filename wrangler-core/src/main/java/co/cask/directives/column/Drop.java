@@ -26,6 +26,9 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnNameList;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
@@ -40,12 +43,25 @@ import java.util.List;
 @Name(Drop.NAME)
 @Categories(categories = { "column"})
 @Description("Drop one or more columns.")
-public class Drop implements Directive {
+public class Drop implements Directive, Mutator {
   public static final String NAME = "drop";
 
   // Columns to be dropped.
   private List<String> columns;
 
+  public Drop() {
+    // Created by the registry, configured on initialize.
+  }
+
+  /**
+   * Creates a directive dropping the columns specified, used when combining directives of a recipe.
+   *
+   * @param columns to be dropped.
+   */
+  public Drop(List<String> columns) {
+    this.columns = columns;
+  }
+
   @Override
   public UsageDefinition define() {
     UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
@@ -77,5 +93,13 @@ public class Drop implements Directive {
     }
     return rows;
   }
-}
 
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    for (String column : columns) {
+      builder.addMutation(column.trim(), MutationType.DROP);
+    }
+    return builder.build();
+  }
+}
@@ -31,6 +31,8 @@ import co.cask.wrangler.api.parser.ColumnNameList;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -49,6 +51,26 @@ public class Keep implements Directive {
   public static final String NAME = "keep";
   private final Set<String> keep = new HashSet<>();
 
+  public Keep() {
+    // Created by the registry, configured on initialize.
+  }
+
+  /**
+   * Creates a directive keeping the columns specified, used when combining directives of a recipe.
+   *
+   * @param columns to be kept.
+   */
+  public Keep(Collection<String> columns) {
+    keep.addAll(columns);
+  }
+
+  /**
+   * @return names of the columns kept.
+   */
+  public Set<String> getColumns() {
+    return Collections.unmodifiableSet(keep);
+  }
+
   @Override
   public UsageDefinition define() {
     UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
@@ -27,6 +27,9 @@ import co.cask.wrangler.api.ErrorRowException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
@@ -40,7 +43,7 @@ import java.util.List;
 @Name(Rename.NAME)
 @Categories(categories = { "column"})
 @Description("Renames a column 'source' to 'target'")
-public final class Rename implements Directive {
+public final class Rename implements Directive, Mutator {
   public static final String NAME = "rename";
   private ColumnName source;
   private ColumnName target;
@@ -86,4 +89,12 @@ public final class Rename implements Directive {
     }
     return rows;
   }
+
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(source.value(), MutationType.RENAME);
+    builder.addMutation(target.value(), MutationType.RENAME);
+    return builder.build();
+  }
 }
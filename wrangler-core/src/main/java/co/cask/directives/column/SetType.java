@@ -21,11 +21,14 @@ import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.wrangler.api.Arguments;
-import co.cask.wrangler.api.Directive;
+import co.cask.wrangler.api.ColumnDirective;
+import co.cask.wrangler.api.ColumnVector;
 import co.cask.wrangler.api.DirectiveExecutionException;
 import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.RowBatch;
+import co.cask.wrangler.api.VectorizedDirective;
 import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Identifier;
@@ -42,10 +45,20 @@ import java.util.List;
 @Name(SetType.NAME)
 @Categories(categories = {"column"})
 @Description("Converting data type of a column.")
-public final class SetType implements Directive {
+public final class SetType implements VectorizedDirective, ColumnDirective {
   public static final String NAME = "set-type";
+
+  // Types whose values are stored unboxed in the rows.
+  private static final int OTHER = 0;
+  private static final int INT = 1;
+  private static final int LONG = 2;
+  private static final int FLOAT = 3;
+  private static final int DOUBLE = 4;
+  private static final int BOOLEAN = 5;
+
   private String col;
   private String type;
+  private int primitive;
 
   @Override
   public UsageDefinition define() {
@@ -59,6 +72,27 @@ public final class SetType implements Directive {
   public void initialize(Arguments args) throws DirectiveParseException {
     col = ((ColumnName)args.value("column")).value();
     type = ((Identifier)args.value("type")).value();
+    primitive = primitiveOf(type.toUpperCase());
+  }
+
+  private static int primitiveOf(String type) {
+    switch (type) {
+      case "INTEGER":
+      case "I64":
+      case "INT":
+        return INT;
+      case "LONG":
+        return LONG;
+      case "FLOAT":
+        return FLOAT;
+      case "DOUBLE":
+        return DOUBLE;
+      case "BOOL":
+      case "BOOLEAN":
+        return BOOLEAN;
+      default:
+        return OTHER;
+    }
   }
 
   @Override
@@ -71,18 +105,7 @@ public final class SetType implements Directive {
     for (Row row : rows) {
       int idx = row.find(col);
       if (idx != -1) {
-        Object object = row.getValue(idx);
-        if (object == null || (object instanceof String && ((String) object).trim().isEmpty())) {
-          continue;
-        }
-        try {
-          row.setValue(idx, convertType(type, object));
-        } catch (DirectiveExecutionException e) {
-          throw e;
-        } catch (Exception e) {
-          throw new DirectiveExecutionException(String.format("Invalid data: Column '%s' can not be converted to '%s'",
-                                                              col, type));
-        }
+        applyTo(row, idx, row.getValue(idx));
       }
     }
     return rows;
@@ -264,4 +287,164 @@ public final class SetType implements Directive {
         );
     }
   }
+
+  @Override
+  public void execute(RowBatch batch, ExecutorContext context) throws DirectiveExecutionException {
+    ColumnVector vector = batch.column(col);
+    for (int i : batch.selection()) {
+      Object value = vector.get(i);
+      if (!isConvertedUnboxed(value)) {
+        Object converted = apply(value);
+        if (converted != value) {
+          vector.setUnboxed(i, converted);
+        }
+        continue;
+      }
+      try {
+        switch (primitive) {
+          case INT:
+            vector.setInt(i, toInt(value));
+            break;
+          case LONG:
+            vector.setLong(i, toLong(value));
+            break;
+          case FLOAT:
+            vector.setFloat(i, toFloat(value));
+            break;
+          case DOUBLE:
+            vector.setDouble(i, toDouble(value));
+            break;
+          default:
+            vector.setBoolean(i, toBoolean(value));
+        }
+      } catch (Exception e) {
+        throw invalid();
+      }
+    }
+  }
+
+  @Override
+  public String getColumn() {
+    return col;
+  }
+
+  /**
+   * Converts the value to the type and sets it in the row. Strings, numbers and bytes converted
+   * to int, long, float, double or boolean are converted straight to the primitive value stored
+   * unboxed in the row.
+   */
+  @Override
+  public void applyTo(Row row, int idx, Object value) throws DirectiveExecutionException {
+    if (!isConvertedUnboxed(value)) {
+      row.setUnboxed(idx, apply(value));
+      return;
+    }
+    try {
+      switch (primitive) {
+        case INT:
+          row.setInt(idx, toInt(value));
+          break;
+        case LONG:
+          row.setLong(idx, toLong(value));
+          break;
+        case FLOAT:
+          row.setFloat(idx, toFloat(value));
+          break;
+        case DOUBLE:
+          row.setDouble(idx, toDouble(value));
+          break;
+        default:
+          row.setBoolean(idx, toBoolean(value));
+      }
+    } catch (Exception e) {
+      throw invalid();
+    }
+  }
+
+  /**
+   * @return true if the value is converted to a primitive value, the other values being converted
+   * by {@link #apply(Object)}.
+   */
+  private boolean isConvertedUnboxed(Object value) {
+    if (primitive == OTHER) {
+      return false;
+    }
+    if (value instanceof String) {
+      return !((String) value).trim().isEmpty();
+    }
+    return value instanceof Integer || value instanceof Long || value instanceof Short
+      || value instanceof Float || value instanceof Double || value instanceof byte[];
+  }
+
+  private static int toInt(Object value) {
+    if (value instanceof String) {
+      return Integer.parseInt((String) value);
+    }
+    if (value instanceof byte[]) {
+      return Bytes.toInt((byte[]) value);
+    }
+    return ((Number) value).intValue();
+  }
+
+  private static long toLong(Object value) {
+    if (value instanceof String) {
+      return Long.parseLong((String) value);
+    }
+    if (value instanceof byte[]) {
+      return Bytes.toLong((byte[]) value);
+    }
+    return ((Number) value).longValue();
+  }
+
+  private static float toFloat(Object value) {
+    if (value instanceof String) {
+      return Float.parseFloat((String) value);
+    }
+    if (value instanceof byte[]) {
+      return Bytes.toFloat((byte[]) value);
+    }
+    return ((Number) value).floatValue();
+  }
+
+  private static double toDouble(Object value) {
+    if (value instanceof String) {
+      return Double.parseDouble((String) value);
+    }
+    if (value instanceof byte[]) {
+      return Bytes.toDouble((byte[]) value);
+    }
+    return ((Number) value).doubleValue();
+  }
+
+  private static boolean toBoolean(Object value) {
+    if (value instanceof String) {
+      return Boolean.parseBoolean((String) value);
+    }
+    if (value instanceof byte[]) {
+      return Bytes.toBoolean((byte[]) value);
+    }
+    return ((Number) value).doubleValue() > 0;
+  }
+
+  private DirectiveExecutionException invalid() {
+    return new DirectiveExecutionException(String.format("Invalid data: Column '%s' can not be converted to '%s'",
+                                                         col, type));
+  }
+
+  /**
+   * Converts the value to the type.
+   */
+  @Override
+  public Object apply(Object value) throws DirectiveExecutionException {
+    if (value == null || (value instanceof String && ((String) value).trim().isEmpty())) {
+      return value;
+    }
+    try {
+      return convertType(type, value);
+    } catch (DirectiveExecutionException e) {
+      throw e;
+    } catch (Exception e) {
+      throw invalid();
+    }
+  }
 }
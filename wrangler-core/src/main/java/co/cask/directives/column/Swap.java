@@ -26,6 +26,9 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
@@ -41,7 +44,7 @@ import java.util.List;
 @Name(Swap.NAME)
 @Categories(categories = { "column"})
 @Description("Swaps the column names of two columns.")
-public class Swap implements Directive {
+public class Swap implements Directive, Mutator {
   public static final String NAME = "swap";
   private static final Messages MSG = MessagesFactory.getMessages();
   private String left;
@@ -85,4 +88,12 @@ public class Swap implements Directive {
     }
     return rows;
   }
+
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(left, MutationType.RENAME);
+    builder.addMutation(right, MutationType.RENAME);
+    return builder.build();
+  }
 }
@@ -35,19 +35,20 @@ import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
 import co.cask.wrangler.dq.DataType;
 import co.cask.wrangler.dq.TypeInference;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.lang3.StringEscapeUtils;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 /**
  * A CSV Parser Stage for parsing the {@link Row} provided based on configuration.
+ *
+ * <p>Lines are split by a {@link CsvTokenizer} reused for all the rows, the fields are added
+ * to the row under column names generated once.</p>
  */
 @Plugin(type = Directive.Type)
 @Name("parse-as-csv")
@@ -58,8 +59,14 @@ public class CsvParser implements Directive {
   private Text delimiterArg;
   private Bool headerArg;
 
-  // CSV format defines the configuration for CSV parser for parsing.
-  private CSVFormat format;
+  // Tokenizer splitting the lines into fields.
+  private CsvTokenizer tokenizer;
+
+  // Fields of the record being parsed.
+  private final List<String> fields = new ArrayList<>();
+
+  // Names of the columns when there is no header, generated as fields are found.
+  private String[] names = new String[0];
 
   //
   private boolean hasHeader;
@@ -86,21 +93,10 @@ public class CsvParser implements Directive {
     char delimiter = ',';
     if (args.contains("delimiter")) {
       delimiterArg = args.value("delimiter");
-      delimiter = delimiterArg.value().charAt(0);
-      if (delimiterArg.value().startsWith("\\")) {
-        String unescapedStr = StringEscapeUtils.unescapeJava(delimiterArg.value());
-        if (unescapedStr == null) {
-          throw new DirectiveParseException("Invalid delimiter for CSV Parser: " + delimiterArg.value());
-        }
-        delimiter = unescapedStr.charAt(0);
-      }
+      delimiter = delimiter(delimiterArg);
     }
 
-    this.format = CSVFormat.DEFAULT.withDelimiter(delimiter);
-    this.format.withIgnoreEmptyLines(true)
-      .withAllowMissingColumnNames(true)
-      .withIgnoreSurroundingSpaces(true)
-      .withRecordSeparator('\n');
+    this.tokenizer = new CsvTokenizer(delimiter, '"');
 
     this.hasHeader = false;
     if(args.contains("header")) {
@@ -109,11 +105,33 @@ public class CsvParser implements Directive {
     }
   }
 
+  /**
+   * @return delimiter character specified by the text, which can be an escape sequence.
+   */
+  static char delimiter(Text text) throws DirectiveParseException {
+    char delimiter = text.value().charAt(0);
+    if (text.value().startsWith("\\")) {
+      String unescapedStr = StringEscapeUtils.unescapeJava(text.value());
+      if (unescapedStr == null) {
+        throw new DirectiveParseException("Invalid delimiter for CSV Parser: " + text.value());
+      }
+      delimiter = unescapedStr.charAt(0);
+    }
+    return delimiter;
+  }
+
   @Override
   public void destroy() {
     // no-op
   }
 
+  /**
+   * @return true if the header is read from the first record parsed, the rows then depend on the rows before them.
+   */
+  public boolean hasHeader() {
+    return hasHeader;
+  }
+
   /**
    * Parses a give column in a {@link Row} as a CSV Row.
    *
@@ -125,61 +143,67 @@ public class CsvParser implements Directive {
   public List<Row> execute(List<Row> rows, ExecutorContext context)
     throws DirectiveExecutionException, ErrorRowException {
 
+    List<Row> results = new ArrayList<>(rows.size());
     for (Row row : rows) {
       int idx = row.find(columnArg.value());
       if (idx == -1) {
+        results.add(row);
         continue;
       }
       String line = (String) row.getValue(idx);
       if(line == null || line.isEmpty()) {
+        results.add(row);
         continue;
       }
-      CSVParser parser = null;
+
       try {
-        parser = CSVParser.parse(line, format);
-        List<CSVRecord> csvRecords = parser.getRecords();
-        for (CSVRecord csvRecord : csvRecords) {
-          if(!checkedHeader && hasHeader && isHeader(csvRecord)) {
-            for (int i = 0; i < csvRecord.size(); i++) {
-              headers.add(csvRecord.get(i).trim());
-            }
-            if (rows.size() > 0) {
-              return new ArrayList<>();
+        tokenizer.reset(line);
+        boolean header = false;
+        while (tokenizer.next(fields)) {
+          if(!checkedHeader && hasHeader && isHeader(fields)) {
+            for (String field : fields) {
+              headers.add(field.trim());
             }
+            header = true;
           } else {
-            toRow(csvRecord, row);
+            toRow(fields, row);
           }
         }
+        if (!header) {
+          results.add(row);
+        }
       } catch (IOException e) {
         // When there is error parsing data, the data is written to error.
         throw new ErrorRowException(e.getMessage(), 1);
       }
     }
-    return rows;
+    return results;
   }
 
   /**
-   * Converts a {@link CSVRecord} to {@link Row}.
+   * Adds the fields of a record to the {@link Row}.
    *
-   * @param record
-   * @return
+   * @param record fields of the record.
+   * @param row to which the fields are added.
    */
-  private void toRow(CSVRecord record, Row row) {
+  private void toRow(List<String> record, Row row) {
     int size = headers.size();
-    for ( int i = 0; i < record.size(); i++) {
-      if (size > 0) {
-        row.add(headers.get(i), record.get(i));
-      } else {
-        row.add(columnArg.value() + "_" + (i + 1), record.get(i));
+    if (size == 0 && names.length < record.size()) {
+      String[] generated = Arrays.copyOf(names, record.size());
+      for (int i = names.length; i < generated.length; i++) {
+        generated[i] = columnArg.value() + "_" + (i + 1);
       }
+      names = generated;
+    }
+    for (int i = 0; i < record.size(); i++) {
+      row.add(size > 0 ? headers.get(i) : names[i], record.get(i));
     }
   }
 
-  private boolean isHeader(CSVRecord record) {
+  private boolean isHeader(List<String> record) {
     checkedHeader = true;
     Set<String> columns = new HashSet<>();
-    for (int i = 0; i < record.size(); i++) {
-      String value = record.get(i);
+    for (String value : record) {
       if (value == null || value.trim().isEmpty()) {
         return false;
       }
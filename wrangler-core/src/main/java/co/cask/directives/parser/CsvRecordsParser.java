@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.directives.parser;
+
+import co.cask.cdap.api.annotation.Description;
+import co.cask.cdap.api.annotation.Name;
+import co.cask.cdap.api.annotation.Plugin;
+import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.Directive;
+import co.cask.wrangler.api.DirectiveExecutionException;
+import co.cask.wrangler.api.DirectiveParseException;
+import co.cask.wrangler.api.ErrorRowException;
+import co.cask.wrangler.api.ExecutorContext;
+import co.cask.wrangler.api.Optional;
+import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.parser.Bool;
+import co.cask.wrangler.api.parser.ColumnName;
+import co.cask.wrangler.api.parser.Text;
+import co.cask.wrangler.api.parser.TokenType;
+import co.cask.wrangler.api.parser.UsageDefinition;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A directive parsing a column holding a whole CSV text, such as a file uploaded as text,
+ * into a {@link Row} per CSV record.
+ *
+ * <p>The text is tokenized as it's read by a {@link CsvTokenizer}, without being split into
+ * lines first. Quoted fields can span several lines. Each record is output as a row with the
+ * columns of the input row but the column parsed, followed by the fields of the record.
+ * Bytes are decoded as UTF-8.</p>
+ */
+@Plugin(type = Directive.Type)
+@Name(CsvRecordsParser.NAME)
+@Categories(categories = { "parser", "csv"})
+@Description("Parses a column holding CSV text into a row per CSV record.")
+public class CsvRecordsParser implements Directive {
+  public static final String NAME = "parse-as-csv-records";
+  private String column;
+  private boolean hasHeader;
+
+  // Tokenizer reading the records of the text.
+  private CsvTokenizer tokenizer;
+
+  // Fields of the record being parsed.
+  private final List<String> fields = new ArrayList<>();
+
+  // Names of the columns when there is no header, generated as fields are found.
+  private String[] names = new String[0];
+
+  @Override
+  public UsageDefinition define() {
+    UsageDefinition.Builder builder = UsageDefinition.builder(NAME);
+    builder.define("column", TokenType.COLUMN_NAME);
+    builder.define("delimiter", TokenType.TEXT, Optional.TRUE);
+    builder.define("header", TokenType.BOOLEAN, Optional.TRUE);
+    return builder.build();
+  }
+
+  @Override
+  public void initialize(Arguments args) throws DirectiveParseException {
+    column = ((ColumnName) args.value("column")).value();
+    char delimiter = ',';
+    if (args.contains("delimiter")) {
+      delimiter = CsvParser.delimiter(args.value("delimiter"));
+    }
+    tokenizer = new CsvTokenizer(delimiter, '"');
+    hasHeader = args.contains("header") && ((Bool) args.value("header")).value();
+  }
+
+  @Override
+  public void destroy() {
+    // no-op
+  }
+
+  @Override
+  public List<Row> execute(List<Row> rows, ExecutorContext context)
+    throws DirectiveExecutionException, ErrorRowException {
+    List<Row> results = new ArrayList<>();
+    for (Row row : rows) {
+      int idx = row.find(column);
+      Object object = idx == -1 ? null : row.getValue(idx);
+      // Rows without the column or a value to parse are kept as they are.
+      if (object == null) {
+        results.add(row);
+        continue;
+      }
+      Reader reader;
+      if (object instanceof String) {
+        reader = new StringReader((String) object);
+      } else if (object instanceof byte[]) {
+        reader = new InputStreamReader(new ByteArrayInputStream((byte[]) object), StandardCharsets.UTF_8);
+      } else {
+        throw new DirectiveExecutionException(
+          String.format("%s : Invalid type '%s' of column '%s'. Should be of type String or byte[].", toString(),
+                        object.getClass().getName(), column)
+        );
+      }
+
+      // Columns of the input row copied to each record.
+      Row base = new Row(row);
+      base.remove(idx);
+      try {
+        tokenizer.reset(reader);
+        List<String> headers = null;
+        if (hasHeader && tokenizer.next(fields)) {
+          headers = new ArrayList<>(fields.size());
+          for (String field : fields) {
+            headers.add(field.trim());
+          }
+        }
+        while (tokenizer.next(fields)) {
+          Row record = new Row(base);
+          for (int i = 0; i < fields.size(); i++) {
+            record.add(headers != null && i < headers.size() ? headers.get(i) : name(i), fields.get(i));
+          }
+          results.add(record);
+        }
+      } catch (IOException e) {
+        // When there is error parsing data, the data is written to error.
+        throw new ErrorRowException(e.getMessage(), 1);
+      }
+    }
+    return results;
+  }
+
+  private String name(int i) {
+    if (i >= names.length) {
+      String[] generated = Arrays.copyOf(names, i + 1);
+      for (int j = names.length; j < generated.length; j++) {
+        generated[j] = column + "_" + (j + 1);
+      }
+      names = generated;
+    }
+    return names[i];
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.directives.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Splits CSV text into records and fields, scanning the characters of the text directly.
+ *
+ * <p>The text is tokenized the same way as the default format of commons-csv with a custom
+ * delimiter: records are separated by <code>\n</code>, <code>\r</code> or <code>\r\n</code>,
+ * empty lines are skipped, and fields starting with a quote extend to the matching quote, a
+ * quote within the field being escaped by doubling it. Fields can span several lines when
+ * quoted. Spaces surrounding the fields are preserved.</p>
+ *
+ * <p>Text is either a string, tokenized in place, or read from a {@link Reader} through a
+ * fixed size buffer, in which case records are tokenized as the text is read. The tokenizer
+ * is reset for each text, and the buffers are reused.</p>
+ *
+ * <p>This class is not thread safe.</p>
+ */
+final class CsvTokenizer {
+  private static final int BUFFER_SIZE = 8192;
+  private static final int END = -1;
+
+  private final char delimiter;
+  private final char quote;
+
+  // Characters of a field spanning several buffers or containing escaped quotes.
+  private final StringBuilder builder = new StringBuilder();
+
+  private char[] buffer = new char[BUFFER_SIZE];
+  private int pos;
+  private int limit;
+  // Reader of the text, null when the whole text is in the buffer.
+  private Reader reader;
+
+  CsvTokenizer(char delimiter, char quote) {
+    this.delimiter = delimiter;
+    this.quote = quote;
+  }
+
+  /**
+   * Resets the tokenizer to tokenize a string.
+   *
+   * @param text to be tokenized.
+   */
+  void reset(String text) {
+    if (buffer.length < text.length()) {
+      buffer = new char[Math.max(text.length(), buffer.length * 2)];
+    }
+    text.getChars(0, text.length(), buffer, 0);
+    pos = 0;
+    limit = text.length();
+    reader = null;
+  }
+
+  /**
+   * Resets the tokenizer to tokenize the text read from a reader.
+   *
+   * @param reader of the text, not closed by the tokenizer.
+   */
+  void reset(Reader reader) {
+    pos = 0;
+    limit = 0;
+    this.reader = reader;
+  }
+
+  /**
+   * Reads the next record.
+   *
+   * @param fields to which the fields of the record are added, cleared first.
+   * @return true if a record was read, false at the end of the text.
+   * @throws IOException if the text is not valid CSV or can't be read.
+   */
+  boolean next(List<String> fields) throws IOException {
+    fields.clear();
+    int c = peek();
+    while (c == '\n' || c == '\r') {
+      pos++;
+      c = peek();
+    }
+    if (c == END) {
+      return false;
+    }
+
+    while (true) {
+      fields.add(c == quote ? quoted() : simple());
+      c = peek();
+      if (c == delimiter) {
+        pos++;
+        c = peek();
+        continue;
+      }
+      if (c == '\r') {
+        pos++;
+        if (peek() == '\n') {
+          pos++;
+        }
+      } else if (c == '\n') {
+        pos++;
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Reads a field that isn't quoted, up to the next delimiter or end of line.
+   */
+  private String simple() throws IOException {
+    boolean partial = false;
+    int start = pos;
+    while (true) {
+      while (pos < limit) {
+        char c = buffer[pos];
+        if (c == delimiter || c == '\n' || c == '\r') {
+          break;
+        }
+        pos++;
+      }
+      if (pos < limit || reader == null) {
+        break;
+      }
+      // Field continues in the next buffer.
+      if (!partial) {
+        builder.setLength(0);
+        partial = true;
+      }
+      builder.append(buffer, start, pos - start);
+      if (!fill()) {
+        return builder.toString();
+      }
+      start = pos;
+    }
+    if (partial) {
+      return builder.append(buffer, start, pos - start).toString();
+    }
+    return new String(buffer, start, pos - start);
+  }
+
+  /**
+   * Reads a quoted field, up to the closing quote. Only spaces are allowed between the
+   * closing quote and the next delimiter or end of line.
+   */
+  private String quoted() throws IOException {
+    // Opening quote.
+    pos++;
+    builder.setLength(0);
+    while (true) {
+      int start = pos;
+      while (pos < limit && buffer[pos] != quote) {
+        pos++;
+      }
+      builder.append(buffer, start, pos - start);
+      if (pos == limit) {
+        if (!fill()) {
+          throw new IOException("EOF reached before encapsulated token finished");
+        }
+        continue;
+      }
+      pos++;
+      if (peek() == quote) {
+        // Escaped quote.
+        builder.append(quote);
+        pos++;
+        continue;
+      }
+      break;
+    }
+
+    int c = peek();
+    while (c != END && c != delimiter && c != '\n' && c != '\r') {
+      if (!Character.isWhitespace(c)) {
+        throw new IOException("Invalid char between encapsulated token and delimiter");
+      }
+      pos++;
+      c = peek();
+    }
+    return builder.toString();
+  }
+
+  /**
+   * @return next character without consuming it, END at the end of the text.
+   */
+  private int peek() throws IOException {
+    if (pos < limit || fill()) {
+      return buffer[pos];
+    }
+    return END;
+  }
+
+  /**
+   * Reads the next characters into the buffer, once all the characters in the buffer are consumed.
+   *
+   * @return true if characters were read.
+   */
+  private boolean fill() throws IOException {
+    if (reader == null) {
+      return false;
+    }
+    int read;
+    do {
+      read = reader.read(buffer, 0, buffer.length);
+    } while (read == 0);
+    if (read == END) {
+      reader = null;
+      pos = 0;
+      limit = 0;
+      return false;
+    }
+    pos = 0;
+    limit = read;
+    return true;
+  }
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.directives.parser;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * Reads the rows of a sheet of an Excel (XLSX) workbook as they are parsed from the XML of the
+ * sheet, without loading the workbook.
+ *
+ * <p>The strings shared by the cells of the workbook and the cell styles are loaded once, the
+ * cells of a row are read into buffers reused across the rows. Cell values are typed the way
+ * the cells of a loaded workbook would be read: strings, booleans, numbers as
+ * {@link Double} and numbers formatted as dates as {@link java.util.Date}. Blank cells and
+ * cells with a formula or an error have no value.</p>
+ */
+final class ExcelSheetReader {
+
+  /**
+   * Handles the rows read from the sheet.
+   */
+  interface RowHandler {
+    /**
+     * Handles a row. The cells are only valid during the call.
+     *
+     * @param cells of the row.
+     * @return true to continue reading the sheet, false to stop.
+     */
+    boolean row(Cells cells);
+  }
+
+  /**
+   * Cells of a row, ordered by column.
+   */
+  static final class Cells {
+    private int[] columns = new int[16];
+    private Object[] values = new Object[16];
+    private int size;
+    private boolean empty;
+
+    /**
+     * @return number of cells in the row.
+     */
+    int size() {
+      return size;
+    }
+
+    /**
+     * @return index of the column of the cell, starting at 0.
+     */
+    int column(int idx) {
+      return columns[idx];
+    }
+
+    /**
+     * @return value of the cell, null if the cell has no value.
+     */
+    @Nullable
+    Object value(int idx) {
+      return values[idx];
+    }
+
+    /**
+     * @return true if all the cells of the row are blank.
+     */
+    boolean isEmpty() {
+      return empty;
+    }
+
+    private void clear() {
+      Arrays.fill(values, 0, size, null);
+      size = 0;
+      empty = true;
+    }
+
+    private void add(int column, @Nullable Object value, boolean blank) {
+      if (size == columns.length) {
+        columns = Arrays.copyOf(columns, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      columns[size] = column;
+      values[size] = value;
+      size++;
+      empty &= blank;
+    }
+  }
+
+  // Thrown by the handler of the sheet to stop parsing.
+  private static final SAXException STOP = new SAXException("Stopped reading the sheet.") {
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  };
+
+  private final OPCPackage pkg;
+
+  /**
+   * @param pkg of the workbook, opened for reading.
+   */
+  ExcelSheetReader(OPCPackage pkg) {
+    this.pkg = pkg;
+  }
+
+  /**
+   * Reads the rows of a sheet.
+   *
+   * @param sheet name of the sheet ignoring the case, null to read the sheet at index.
+   * @param index of the sheet starting at 0, when the sheet is not read by name.
+   * @param handler of the rows read.
+   * @return false if the sheet does not exist.
+   */
+  boolean read(@Nullable String sheet, int index, RowHandler handler)
+    throws IOException, SAXException, OpenXML4JException, ParserConfigurationException {
+    XSSFReader reader = new XSSFReader(pkg);
+    XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+    for (int position = 0; sheets.hasNext(); ++position) {
+      try (InputStream stream = sheets.next()) {
+        if (sheet == null ? position != index : !sheets.getSheetName().equalsIgnoreCase(sheet)) {
+          continue;
+        }
+
+        SheetHandler sheetHandler = new SheetHandler(new ReadOnlySharedStringsTable(pkg), reader.getStylesTable(),
+                                                     isDate1904(reader), handler);
+        try {
+          parse(stream, sheetHandler);
+        } catch (SAXException e) {
+          if (e != STOP) {
+            throw e;
+          }
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isDate1904(XSSFReader reader)
+    throws IOException, SAXException, OpenXML4JException, ParserConfigurationException {
+    final boolean[] date1904 = new boolean[1];
+    try (InputStream stream = reader.getWorkbookData()) {
+      parse(stream, new DefaultHandler() {
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+          if ("workbookPr".equals(name(localName, qName))) {
+            // Extensions of the workbook properties share the name, without the attribute.
+            String value = attributes.getValue("date1904");
+            if (value != null) {
+              date1904[0] = "1".equals(value) || "true".equals(value);
+            }
+          }
+        }
+      });
+    }
+    return date1904[0];
+  }
+
+  private static void parse(InputStream stream, DefaultHandler handler)
+    throws IOException, SAXException, ParserConfigurationException {
+    XMLReader parser = SAXHelper.newXMLReader();
+    parser.setContentHandler(handler);
+    parser.parse(new InputSource(stream));
+  }
+
+  private static String name(String localName, String qName) {
+    if (localName != null && !localName.isEmpty()) {
+      return localName;
+    }
+    int idx = qName.indexOf(':');
+    return idx == -1 ? qName : qName.substring(idx + 1);
+  }
+
+  /**
+   * @return index of the column of the cell reference, -1 if the reference is not specified.
+   */
+  private static int column(@Nullable String reference) {
+    if (reference == null) {
+      return -1;
+    }
+    int column = 0;
+    for (int i = 0; i < reference.length(); ++i) {
+      char c = reference.charAt(i);
+      if (c < 'A' || c > 'Z') {
+        break;
+      }
+      column = column * 26 + (c - 'A' + 1);
+    }
+    return column - 1;
+  }
+
+  /**
+   * Reads the cells from the XML of a sheet, handing over each row when read.
+   */
+  private static final class SheetHandler extends DefaultHandler {
+    private final ReadOnlySharedStringsTable strings;
+    private final StylesTable styles;
+    private final boolean date1904;
+    private final RowHandler handler;
+    private final Cells cells = new Cells();
+    // Whether each style formats numbers as dates, by index of style.
+    private final Map<Integer, Boolean> dateStyles = new HashMap<>();
+    private final StringBuilder text = new StringBuilder();
+
+    // State of the cell being read.
+    private int column;
+    private String type;
+    private int style;
+    private boolean formula;
+    private boolean value;
+    private boolean inline;
+    private boolean phonetic;
+    private boolean capture;
+
+    private SheetHandler(ReadOnlySharedStringsTable strings, StylesTable styles, boolean date1904,
+                         RowHandler handler) {
+      this.strings = strings;
+      this.styles = styles;
+      this.date1904 = date1904;
+      this.handler = handler;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+      switch (name(localName, qName)) {
+        case "row":
+          cells.clear();
+          column = -1;
+          break;
+        case "c":
+          int reference = column(attributes.getValue("r"));
+          column = reference == -1 ? column + 1 : reference;
+          type = attributes.getValue("t");
+          String s = attributes.getValue("s");
+          style = s == null ? 0 : Integer.parseInt(s);
+          formula = false;
+          value = false;
+          text.setLength(0);
+          break;
+        case "f":
+          formula = true;
+          break;
+        case "v":
+          text.setLength(0);
+          capture = true;
+          break;
+        case "is":
+          inline = true;
+          break;
+        case "rPh":
+          phonetic = true;
+          break;
+        case "t":
+          capture = inline && !phonetic;
+          break;
+        default:
+          break;
+      }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      if (capture) {
+        text.append(ch, start, length);
+      }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+      switch (name(localName, qName)) {
+        case "v":
+          capture = false;
+          value = true;
+          break;
+        case "t":
+          if (capture) {
+            capture = false;
+            value = true;
+          }
+          break;
+        case "rPh":
+          phonetic = false;
+          break;
+        case "is":
+          inline = false;
+          break;
+        case "c":
+          addCell();
+          break;
+        case "row":
+          if (!handler.row(cells)) {
+            throw STOP;
+          }
+          break;
+        default:
+          break;
+      }
+    }
+
+    private void addCell() {
+      if (formula || "e".equals(type)) {
+        cells.add(column, null, false);
+        return;
+      }
+      if ("s".equals(type) || "inlineStr".equals(type) || "str".equals(type)) {
+        String string = text.toString();
+        if ("s".equals(type)) {
+          string = value ? strings.getEntryAt(Integer.parseInt(string.trim())) : "";
+        }
+        cells.add(column, string, StringUtils.isBlank(string));
+      } else if ("b".equals(type)) {
+        cells.add(column, value && "1".equals(text.toString().trim()), false);
+      } else if (value) {
+        double number = Double.parseDouble(text.toString().trim());
+        if (DateUtil.isValidExcelDate(number) && isDateStyle(style)) {
+          cells.add(column, DateUtil.getJavaDate(number, date1904), false);
+        } else {
+          cells.add(column, number, false);
+        }
+      } else {
+        cells.add(column, null, true);
+      }
+    }
+
+    private boolean isDateStyle(int idx) {
+      Boolean date = dateStyles.get(idx);
+      if (date == null) {
+        XSSFCellStyle cellStyle = styles == null || idx >= styles.getNumCellStyles() ? null : styles.getStyleAt(idx);
+        date = cellStyle != null && DateUtil.isADateFormat(cellStyle.getDataFormat(),
+                                                           cellStyle.getDataFormatString());
+        dateStyles.put(idx, date);
+      }
+      return date;
+    }
+  }
+}
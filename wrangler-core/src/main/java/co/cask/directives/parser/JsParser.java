@@ -33,24 +33,42 @@ import co.cask.wrangler.api.parser.Numeric;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
 import co.cask.wrangler.dq.TypeInference;
+import co.cask.wrangler.utils.JsonDocumentCache;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
 import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.json.JSONException;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * This class is a JSON Parser directive with optional argument specifying the depth
  * to which the JSON needs to be parsed.
+ *
+ * <p>Documents that are JSON objects are flattened as they are read by a {@link JsonReader},
+ * without building the tree of the document. Only the arrays and the objects deeper than the
+ * depth are built, being the values of columns. When the columns used after this directive are
+ * known, the values of the other columns are skipped. Other documents are parsed as a tree.
+ * Documents already parsed by the directives reading the column before, as found in the
+ * {@link JsonDocumentCache}, are flattened from a copy of their tree.</p>
  */
 @Plugin(type = Directive.Type)
 @Name("parse-as-json")
@@ -64,6 +82,15 @@ public class JsParser implements Directive {
   // Max depth to which the JSON needs to be parsed.
   private int depth;
 
+  // Prefix of the names of the columns flattened from the document.
+  private String prefix;
+
+  // Names of the columns used afterwards in lower case, null if any column could be used.
+  private Set<String> projection;
+
+  // Prefixes of the names of the columns used, up to each '_', in lower case.
+  private Set<String> prefixes;
+
   // JSON parser.
   private static final JsonParser parser = new JsonParser();
 
@@ -83,6 +110,27 @@ public class JsParser implements Directive {
     } else {
       this.depth = Integer.MAX_VALUE;
     }
+    this.prefix = column + "_";
+  }
+
+  /**
+   * Restricts the columns flattened from the JSON objects to the ones used afterwards.
+   *
+   * @param columns names of the columns used in lower case, null if any column could be used.
+   */
+  public void project(@Nullable Set<String> columns) {
+    if (columns == null) {
+      projection = null;
+      prefixes = null;
+      return;
+    }
+    projection = new HashSet<>(columns);
+    prefixes = new HashSet<>();
+    for (String name : columns) {
+      for (int i = name.indexOf('_'); i != -1; i = name.indexOf('_', i + 1)) {
+        prefixes.add(name.substring(0, i));
+      }
+    }
   }
 
   @Override
@@ -106,8 +154,19 @@ public class JsParser implements Directive {
         }
 
         try {
+          // Documents parsed already by directives or functions reading the column are copied.
+          JsonElement cached = value instanceof String ? JsonDocumentCache.get((String) value) : null;
+          if (cached == null && value instanceof String && depth > 0 && isObject((String) value)) {
+            flatten((String) value, row);
+            row.remove(idx);
+            results.add(row);
+            continue;
+          }
+
           JsonElement element = null;
-          if(value instanceof String) {
+          if (cached != null) {
+            element = JsonDocumentCache.copy(cached);
+          } else if(value instanceof String) {
             String document = (String) value;
             element = parser.parse(document.trim());
           } else if (value instanceof JsonObject || value instanceof JsonArray) {
@@ -142,7 +201,7 @@ public class JsParser implements Directive {
               row.add(column, getValue(element.getAsJsonPrimitive()));
             }
           }
-        } catch (JSONException e) {
+        } catch (JSONException | JsonParseException e) {
           throw new ErrorRowException(toString() + " : " + e.getMessage(), 1);
         }
       }
@@ -150,6 +209,93 @@ public class JsParser implements Directive {
     return results;
   }
 
+  /**
+   * @return true if the document is a JSON object.
+   */
+  private static boolean isObject(String document) {
+    for (int i = 0; i < document.length(); ++i) {
+      char c = document.charAt(i);
+      if (!Character.isWhitespace(c)) {
+        return c == '{';
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Flattens the JSON object of the document into columns added to the row. If the document is
+   * invalid, the columns added are removed from the row.
+   */
+  private void flatten(String document, Row row) {
+    int length = row.length();
+    try {
+      JsonReader reader = new JsonReader(new StringReader(document));
+      reader.setLenient(true);
+      flatten(reader, prefix, 1, row);
+      if (reader.peek() != JsonToken.END_DOCUMENT) {
+        throw new JsonSyntaxException("Did not consume the entire document.");
+      }
+    } catch (IOException | IllegalStateException | JsonParseException e) {
+      while (row.length() > length) {
+        row.remove(row.length() - 1);
+      }
+      throw e instanceof JsonParseException ? (JsonParseException) e : new JsonSyntaxException(e);
+    }
+  }
+
+  /**
+   * Flattens the JSON object read the same way {@link #jsonFlatten(JsonObject, String, int, int, Row)} does.
+   *
+   * @param reader positioned at the start of the object.
+   * @param prefix of the names of the columns, that is the name of the object followed by '_'.
+   * @param depth of the object.
+   * @param row to which the flatten fields are added.
+   */
+  private void flatten(JsonReader reader, String prefix, int depth, Row row) throws IOException {
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = prefix + reader.nextName();
+      JsonToken token = reader.peek();
+      if (token == JsonToken.BEGIN_OBJECT && depth < this.depth) {
+        if (prefixes == null || prefixes.contains(name.toLowerCase())) {
+          flatten(reader, name + "_", depth + 1, row);
+        } else {
+          reader.skipValue();
+        }
+      } else if (projection != null && !projection.contains(name.toLowerCase())) {
+        reader.skipValue();
+      } else if (token == JsonToken.BEGIN_OBJECT) {
+        row.addOrSet(name, parser.parse(reader));
+      } else {
+        row.add(name, getValue(reader, token));
+      }
+    }
+    reader.endObject();
+  }
+
+  /**
+   * Reads a value the same way {@link #getValue(JsonElement)} extracts it from the element parsed.
+   */
+  private static Object getValue(JsonReader reader, JsonToken token) throws IOException {
+    switch (token) {
+      case STRING:
+        return reader.nextString();
+      case NUMBER:
+        String number = reader.nextString();
+        if (TypeInference.isInteger(number)) {
+          return new BigInteger(number).longValue();
+        }
+        return new BigDecimal(number).doubleValue();
+      case BOOLEAN:
+        return reader.nextBoolean();
+      case NULL:
+        reader.nextNull();
+        return JsonNull.INSTANCE;
+      default:
+        return parser.parse(reader);
+    }
+  }
+
   /**
    * Recursively flattens JSON until the 'depth' is reached.
    *
@@ -161,7 +307,7 @@ public class JsParser implements Directive {
    */
   public static void jsonFlatten(JsonObject root, String field, int depth, int maxDepth, Row row) {
     if (depth > maxDepth) {
-      row.addOrSet(String.format("%s", field), root);
+      row.addOrSet(field, root);
       return;
     }
 
@@ -171,10 +317,9 @@ public class JsParser implements Directive {
       String key = next.getKey();
       JsonElement element = next.getValue();
       if (element instanceof JsonObject) {
-        jsonFlatten(element.getAsJsonObject(),
-                    String.format("%s_%s", field, key), depth + 1, maxDepth, row);
+        jsonFlatten(element.getAsJsonObject(), field + "_" + key, depth + 1, maxDepth, row);
       } else {
-        row.add(String.format("%s_%s", field, key), getValue(element));
+        row.add(field + "_" + key, getValue(element));
       }
     }
   }
@@ -30,10 +30,12 @@ import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Text;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
+import co.cask.wrangler.utils.JsonDocumentCache;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.ParseContext;
 import com.jayway.jsonpath.spi.json.GsonJsonProvider;
@@ -44,6 +46,9 @@ import java.util.List;
 
 /**
  * A Json Path Extractor Stage for parsing the {@link Row} provided based on configuration.
+ *
+ * <p>The path is compiled once. Documents are parsed through the {@link JsonDocumentCache},
+ * paths extracted from the same column of a row parse the document once.</p>
  */
 @Plugin(type = Directive.Type)
 @Name("json-path")
@@ -53,7 +58,7 @@ public class JsPath implements Directive {
   public static final String NAME = "json-path";
   private String src;
   private String dest;
-  private String path;
+  private JsonPath path;
   private ParseContext parser;
 
   public static final Configuration GSON_CONFIGURATION = Configuration
@@ -75,7 +80,14 @@ public class JsPath implements Directive {
   public void initialize(Arguments args) throws DirectiveParseException {
     this.src = ((ColumnName) args.value("source")).value();
     this.dest = ((ColumnName) args.value("destination")).value();
-    this.path = ((Text) args.value("json-path")).value();
+    String path = ((Text) args.value("json-path")).value();
+    try {
+      this.path = JsonPath.compile(path);
+    } catch (InvalidPathException e) {
+      throw new DirectiveParseException(
+        String.format("%s : Invalid json path '%s'. %s", NAME, path, e.getMessage())
+      );
+    }
     this.parser = JsonPath.using(GSON_CONFIGURATION);
   }
 
@@ -103,7 +115,14 @@ public class JsPath implements Directive {
         );
       }
 
-      JsonElement element = parser.parse(value).read(path);
+      JsonElement element;
+      if (value instanceof String) {
+        // Elements read from the shared document are copied, as the values of the rows can be modified.
+        element = parser.parse(JsonDocumentCache.parse((String) value)).read(path);
+        element = JsonDocumentCache.copy(element);
+      } else {
+        element = parser.parse(value).read(path);
+      }
       Object val = JsParser.getValue(element);
 
       // If destination is already present add it, else set the value.
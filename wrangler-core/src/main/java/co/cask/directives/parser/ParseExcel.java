@@ -30,29 +30,31 @@ import co.cask.wrangler.api.Optional;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.ColumnName;
+import co.cask.wrangler.api.parser.Numeric;
 import co.cask.wrangler.api.parser.Text;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
-import com.google.common.io.Closeables;
-import org.apache.commons.lang3.StringUtils;
-import org.apache.poi.hssf.usermodel.HSSFDateUtil;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CellType;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 /**
  * A step to parse Excel files.
+ *
+ * <p>The workbook is written to a temporary file and the rows of the sheet are read by an
+ * {@link ExcelSheetReader} as the XML of the sheet is parsed, the workbook is never loaded in
+ * memory. Reading stops once the number of rows to sample, if any, is reached.</p>
  */
 @Plugin(type = Directive.Type)
 @Name("parse-as-excel")
@@ -64,6 +66,8 @@ public class ParseExcel implements Directive {
   private String column;
   private String sheet;
   private boolean firstRowAsHeader = false;
+  // Maximum number of rows parsed from the sheet, 0 to parse all the rows.
+  private int limit = 0;
 
   @Override
   public UsageDefinition define() {
@@ -71,6 +75,7 @@ public class ParseExcel implements Directive {
     builder.define("column", TokenType.COLUMN_NAME);
     builder.define("sheet", TokenType.TEXT, Optional.TRUE);
     builder.define("first-row-as-header", TokenType.BOOLEAN, Optional.TRUE);
+    builder.define("limit", TokenType.NUMERIC, Optional.TRUE);
     return builder.build();
   }
 
@@ -85,6 +90,14 @@ public class ParseExcel implements Directive {
     if (args.contains("first-row-as-header")) {
       this.firstRowAsHeader = ((Boolean) args.value("first-row-as-header").value());
     }
+    if (args.contains("limit")) {
+      this.limit = ((Numeric) args.value("limit")).value().intValue();
+      if (limit < 0) {
+        throw new DirectiveParseException(
+          String.format("%s : Invalid limit '%d', the limit should be a positive number.", NAME, limit)
+        );
+      }
+    }
   }
 
   @Override
@@ -96,131 +109,77 @@ public class ParseExcel implements Directive {
   public List<Row> execute(List<Row> records, final ExecutorContext context)
     throws DirectiveExecutionException, ErrorRowException {
     List<Row> results = new ArrayList<>();
-    ByteArrayInputStream input = null;
+    File file = null;
     try {
       for (Row record : records) {
         int idx = record.find(column);
         if (idx != -1) {
           Object object = record.getValue(idx);
-          byte[] bytes = null;
+          ByteBuffer buffer;
           if (object instanceof byte[]) {
-            bytes = (byte[]) object;
+            buffer = ByteBuffer.wrap((byte[]) object);
           } else if (object instanceof ByteBuffer) {
-            ByteBuffer buffer = (ByteBuffer) object;
-            bytes = new byte[buffer.remaining()];
-            buffer.get(bytes);
+            buffer = ((ByteBuffer) object).duplicate();
           } else {
             throw new DirectiveExecutionException(toString() + " : column " + column + " is not byte array or byte buffer.");
           }
 
-          if (bytes != null) {
-            input = new ByteArrayInputStream(bytes);
-            XSSFWorkbook book = new XSSFWorkbook(input);
-            XSSFSheet excelsheet;
-            if (Types.isInteger(sheet)) {
-              excelsheet = book.getSheetAt(Integer.parseInt(sheet));
-            } else {
-              excelsheet = book.getSheet(sheet);
-            }
-
-            if (excelsheet == null) {
+          file = write(buffer);
+          OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ);
+          try {
+            SheetRows rows = new SheetRows();
+            ExcelSheetReader reader = new ExcelSheetReader(pkg);
+            boolean found = Types.isInteger(sheet) ?
+              reader.read(null, Integer.parseInt(sheet), rows) : reader.read(sheet, -1, rows);
+            if (!found) {
               throw new DirectiveExecutionException(
                 String.format("Failed to extract sheet '%s' from the excel. Sheet '%s' does not exist.", sheet, sheet)
               );
             }
 
-            Map<Integer, String> columnNames = new TreeMap<>();
-            Iterator<org.apache.poi.ss.usermodel.Row> it = excelsheet.iterator();
-            int rows = 0;
-            while (it.hasNext()) {
-              org.apache.poi.ss.usermodel.Row row = it.next();
-              Iterator<Cell> cellIterator = row.cellIterator();
-              if(checkIfRowIsEmpty(row)) {
-                continue;
-              }
-
-              Row newRow = new Row();
-              newRow.add("fwd", rows);
-
-              while (cellIterator.hasNext()) {
-                Cell cell = cellIterator.next();
-                String name = columnName(cell.getAddress().getColumn());
-                if (firstRowAsHeader && rows > 0) {
-                  String value = columnNames.get(cell.getAddress().getColumn());
-                  if (value != null) {
-                    name = value;
-                  }
-                }
-                String value = "";
-                switch (cell.getCellTypeEnum()) {
-                  case STRING:
-                    newRow.add(name, cell.getStringCellValue());
-                    value = cell.getStringCellValue();
-                    break;
-
-                  case NUMERIC:
-                    if (HSSFDateUtil.isCellDateFormatted(cell)) {
-                      newRow.add(name, cell.getDateCellValue());
-                      value = cell.getDateCellValue().toString();
-                    } else {
-                      newRow.add(name, cell.getNumericCellValue());
-                      value = String.valueOf(cell.getNumericCellValue());
-                    }
-                    break;
-
-                  case BOOLEAN:
-                    newRow.add(name, cell.getBooleanCellValue());
-                    value = String.valueOf(cell.getBooleanCellValue());
-                    break;
-                }
-
-                if (rows == 0 && firstRowAsHeader) {
-                  columnNames.put(cell.getAddress().getColumn(), value);
-                }
-              }
-
-              if (firstRowAsHeader && rows == 0) {
-                rows++;
-                continue;
-              }
-              results.add(newRow);
-              rows++;
-            }
-
-            if (firstRowAsHeader) {
-              rows = rows - 1;
-            }
-
-            for (int i = rows - 1; i >= 0; --i) {
-              results.get(rows - i - 1).addOrSetAtIndex(1, "bkd", i); // fwd - 0, bkd - 1.
+            int count = rows.rows.size();
+            for (int i = 0; i < count; ++i) {
+              rows.rows.get(i).addOrSetAtIndex(1, "bkd", count - i - 1); // fwd - 0, bkd - 1.
             }
+            results.addAll(rows.rows);
+          } finally {
+            // Closing a package opened for reading would attempt to save it.
+            pkg.revert();
           }
+          delete(file);
+          file = null;
         }
       }
     } catch (Exception e) {
       throw new ErrorRowException(e.getMessage(), 1);
     } finally {
-      if (input != null) {
-        Closeables.closeQuietly(input);
+      if (file != null) {
+        delete(file);
       }
     }
     return results;
   }
 
-  private boolean checkIfRowIsEmpty(org.apache.poi.ss.usermodel.Row row) {
-    if (row == null) {
-      return true;
-    }
-    if (row.getLastCellNum() <= 0) {
-      return true;
-    }
-    for (int cellNum = row.getFirstCellNum(); cellNum < row.getLastCellNum(); cellNum++) {
-      Cell cell = row.getCell(cellNum);
-      if (cell != null && cell.getCellTypeEnum() != CellType.BLANK && StringUtils.isNotBlank(cell.toString())) {
-        return false;
+  /**
+   * Writes the workbook to a temporary file, the package of the workbook being read in place from a file.
+   */
+  private static File write(ByteBuffer buffer) throws IOException {
+    File file = File.createTempFile(NAME, ".xlsx");
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
       }
+    } catch (IOException e) {
+      delete(file);
+      throw e;
+    }
+    return file;
+  }
+
+  private static void delete(File file) {
+    if (!file.delete()) {
+      LOG.warn("Failed to delete temporary file '{}'.", file);
     }
-    return true;
   }
 
   private String columnName(int number) {
@@ -234,4 +193,45 @@ public class ParseExcel implements Directive {
     }
     return sb.reverse().toString();
   }
+
+  /**
+   * Creates the rows from the rows read from the sheet, skipping the empty rows.
+   */
+  private final class SheetRows implements ExcelSheetReader.RowHandler {
+    private final List<Row> rows = new ArrayList<>();
+    // Names of the columns read from the first row, by index of column.
+    private final Map<Integer, String> columnNames = new TreeMap<>();
+    private boolean header = firstRowAsHeader;
+    private int fwd = 0;
+
+    @Override
+    public boolean row(ExcelSheetReader.Cells cells) {
+      if (cells.isEmpty()) {
+        return true;
+      }
+
+      if (header) {
+        for (int i = 0; i < cells.size(); ++i) {
+          Object value = cells.value(i);
+          columnNames.put(cells.column(i), value == null ? "" : String.valueOf(value));
+        }
+        header = false;
+        fwd++;
+        return true;
+      }
+
+      Row row = new Row();
+      row.add("fwd", fwd++);
+      for (int i = 0; i < cells.size(); ++i) {
+        Object value = cells.value(i);
+        if (value == null) {
+          continue;
+        }
+        String name = columnNames.get(cells.column(i));
+        row.add(name == null ? columnName(cells.column(i)) : name, value);
+      }
+      rows.add(row);
+      return limit == 0 || rows.size() < limit;
+    }
+  }
 }
@@ -30,9 +30,9 @@ import co.cask.wrangler.api.parser.Expression;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
 import co.cask.wrangler.expression.EL;
-import co.cask.wrangler.expression.ELContext;
 import co.cask.wrangler.expression.ELException;
 import co.cask.wrangler.expression.ELResult;
+import co.cask.wrangler.expression.ELRowContext;
 
 import java.util.HashSet;
 import java.util.List;
@@ -49,6 +49,8 @@ public class Fail implements Directive {
   public static final String NAME = "fail";
   private String condition;
   private final EL el = new EL(new EL.DefaultFunctions());
+  // Binds the rows to the variables of the expression.
+  private ELRowContext elContext;
 
   @Override
   public UsageDefinition define() {
@@ -68,6 +70,7 @@ public class Fail implements Directive {
     condition = expression.value();
     try {
       el.compile(condition);
+      elContext = new ELRowContext(el.variables(), true);
     } catch (ELException e) {
       throw new DirectiveParseException(e.getMessage());
     }
@@ -83,11 +86,8 @@ public class Fail implements Directive {
     throws DirectiveExecutionException {
     for (Row row : rows) {
       // Move the fields from the row into the context.
-      ELContext ctx = new ELContext(context);
-      ctx.set("this", row);
-      for(String var : el.variables()) {
-        ctx.set(var, row.getValue(var));
-      }
+      // The columns of the row hide the transient variables.
+      ELRowContext ctx = elContext.bind(row, context);
 
       // Execution of the script / expression based on the row data
       // mapped into context.
@@ -20,25 +20,32 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.ColumnVector;
 import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveExecutionException;
 import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Optional;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.RowBatch;
+import co.cask.wrangler.api.VectorizedDirective;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.Bool;
 import co.cask.wrangler.api.parser.Expression;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
 import co.cask.wrangler.expression.EL;
-import co.cask.wrangler.expression.ELContext;
 import co.cask.wrangler.expression.ELException;
+import co.cask.wrangler.expression.ELRowContext;
 
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * A Wrangle step for filtering rows based on the condition.
@@ -53,10 +60,12 @@ import java.util.Set;
 @Name(RecordConditionFilter.NAME)
 @Categories(categories = { "row", "data-quality"})
 @Description("Filters rows based on condition type specified.")
-public class RecordConditionFilter implements Directive {
+public class RecordConditionFilter implements VectorizedDirective, Mutator {
   public static final String NAME = "filter-row";
   private String condition;
   private final EL el = new EL(new EL.DefaultFunctions());
+  // Binds the rows to the variables of the expression.
+  private ELRowContext elContext;
   private boolean isTrue;
   // Variables in expression
   private Set<String> variables = new HashSet<>();
@@ -78,6 +87,7 @@ public class RecordConditionFilter implements Directive {
     condition = ((Expression) args.value("condition")).value();
     try {
       el.compile(condition);
+      elContext = new ELRowContext(el.variables());
     } catch (ELException e) {
       throw new DirectiveParseException(e.getMessage());
     }
@@ -92,38 +102,93 @@ public class RecordConditionFilter implements Directive {
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     List<Row> results = new ArrayList<>();
     for (Row row : rows) {
-      // Move the fields from the row into the context.
-      ELContext ctx = new ELContext(context);
-      for(String var : el.variables()) {
-        Object value = row.getValue(var);
-        String strValue;
-        // support numeric values by converting them to string
-        if (value instanceof Number) {
-          Number number = (Number) value;
-          strValue = number.toString();
-          ctx.set(var, strValue);
-        } else {
-          ctx.set(var, row.getValue(var));
-        }
+      if (!isFiltered(row, context)) {
+        results.add(row);
       }
-      if (context != null) {
-        for (String variable : context.getTransientStore().getVariables()) {
-          ctx.set(variable, context.getTransientStore().get(variable));
+    }
+    return results;
+  }
+
+  /**
+   * Evaluates the condition over the vectors of the columns it uses, the rows filtered being
+   * deselected from the batch. Conditions reading <code>this</code> are evaluated on the rows.
+   */
+  @Override
+  public void execute(RowBatch batch, ExecutorContext context) throws DirectiveExecutionException {
+    if (el.variables().contains("this")) {
+      for (int i : batch.selection()) {
+        if (isFiltered(batch.getRow(i), context)) {
+          batch.deselect(i);
         }
       }
-      try {
-        Boolean result = el.execute(ctx).getBoolean();
-        if (!isTrue) {
-          result = !result;
-        }
-        if (result) {
-          continue;
+      return;
+    }
+    ColumnVector[] columns = elContext.columns(batch);
+    for (int i : batch.selection()) {
+      ELRowContext ctx = elContext.bind(columns, i, context);
+      for (ColumnVector column : columns) {
+        // support numeric values by converting them to string
+        String number = toString(column, i);
+        if (number != null) {
+          ctx.setColumn(column.getName(), number);
         }
-      } catch (ELException e) {
-        throw new DirectiveExecutionException(e.getMessage());
       }
-      results.add(row);
+      if (isFiltered(ctx)) {
+        batch.deselect(i);
+      }
     }
-    return results;
+  }
+
+  /**
+   * @return string of the numeric value of the column in the row, null if the value is not a number.
+   */
+  @Nullable
+  private static String toString(ColumnVector column, int idx) {
+    Class<?> type = column.getType(idx);
+    if (type == Integer.class || type == Long.class) {
+      return Long.toString(column.getLong(idx));
+    }
+    if (type == Float.class) {
+      return Float.toString((float) column.getDouble(idx));
+    }
+    if (type == Double.class) {
+      return Double.toString(column.getDouble(idx));
+    }
+    if (type != null && Number.class.isAssignableFrom(type)) {
+      return column.get(idx).toString();
+    }
+    return null;
+  }
+
+  private boolean isFiltered(Row row, ExecutorContext context) throws DirectiveExecutionException {
+    // Move the fields from the row into the context.
+    // Transient variables are resolved when read.
+    ELRowContext ctx = elContext.bind(row, context);
+    for(String var : el.variables()) {
+      Object value = row.getValue(var);
+      // support numeric values by converting them to string
+      if (value instanceof Number) {
+        ctx.setColumn(var, value.toString());
+      }
+    }
+    return isFiltered(ctx);
+  }
+
+  private boolean isFiltered(ELRowContext ctx) throws DirectiveExecutionException {
+    try {
+      Boolean result = el.execute(ctx).getBoolean();
+      return isTrue ? result : !result;
+    } catch (ELException e) {
+      throw new DirectiveExecutionException(e.getMessage());
+    }
+  }
+
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    for (String variable : el.variables()) {
+      builder.addMutation(variable, MutationType.READ);
+    }
+    return builder.build();
   }
 }
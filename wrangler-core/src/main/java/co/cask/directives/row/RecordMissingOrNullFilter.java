@@ -20,11 +20,14 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.ColumnVector;
 import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveExecutionException;
 import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.RowBatch;
+import co.cask.wrangler.api.VectorizedDirective;
 import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.ColumnNameList;
 import co.cask.wrangler.api.parser.TokenType;
@@ -40,7 +43,7 @@ import java.util.List;
 @Name(RecordMissingOrNullFilter.NAME)
 @Categories(categories = { "row", "data-quality"})
 @Description("Filters row that have empty or null columns.")
-public class RecordMissingOrNullFilter implements Directive {
+public class RecordMissingOrNullFilter implements VectorizedDirective {
   public static final String NAME = "filter-empty-or-null";
   private String[] columns;
 
@@ -56,6 +59,9 @@ public class RecordMissingOrNullFilter implements Directive {
     List<String> cols = ((ColumnNameList) args.value("column")).value();
     columns = new String[cols.size()];
     columns = cols.toArray(columns);
+    for (int i = 0; i < columns.length; ++i) {
+      columns[i] = columns[i].trim();
+    }
   }
 
   @Override
@@ -69,14 +75,10 @@ public class RecordMissingOrNullFilter implements Directive {
     for (Row row : rows) {
       boolean missingOrNull = true;
       for (String column : columns) {
-        int idx = row.find(column.trim());
-        if (idx != -1) {
-          Object value = row.getValue(idx);
-          if (value != null) {
-            missingOrNull = false;
-          }
-        } else {
-          results.add(row);
+        int idx = row.find(column);
+        if (idx == -1 || row.getValue(idx) != null) {
+          missingOrNull = false;
+          break;
         }
       }
       if (!missingOrNull) {
@@ -85,4 +87,24 @@ public class RecordMissingOrNullFilter implements Directive {
     }
     return results;
   }
+
+  @Override
+  public void execute(RowBatch batch, ExecutorContext context) throws DirectiveExecutionException {
+    ColumnVector[] vectors = new ColumnVector[columns.length];
+    for (int i = 0; i < columns.length; ++i) {
+      vectors[i] = batch.column(columns[i]);
+    }
+    for (int i : batch.selection()) {
+      boolean missingOrNull = true;
+      for (ColumnVector vector : vectors) {
+        if (!vector.isPresent(i) || vector.get(i) != null) {
+          missingOrNull = false;
+          break;
+        }
+      }
+      if (missingOrNull) {
+        batch.deselect(i);
+      }
+    }
+  }
 }
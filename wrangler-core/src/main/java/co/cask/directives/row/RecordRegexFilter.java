@@ -20,12 +20,18 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.ColumnVector;
 import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveExecutionException;
 import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.RowBatch;
+import co.cask.wrangler.api.VectorizedDirective;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Identifier;
 import co.cask.wrangler.api.parser.Text;
@@ -44,7 +50,7 @@ import java.util.regex.Pattern;
 @Name(RecordRegexFilter.NAME)
 @Categories(categories = { "row", "data-quality"})
 @Description("Filters rows if the regex is matched or not matched.")
-public class RecordRegexFilter implements Directive {
+public class RecordRegexFilter implements VectorizedDirective, Mutator {
   public static final String NAME = "filter-by-regex";
   private String column;
   private Pattern pattern;
@@ -93,34 +99,40 @@ public class RecordRegexFilter implements Directive {
     }
     for (Row row : rows) {
       int idx = row.find(column);
-      if (idx != -1) {
-        Object object = row.getValue(idx);
-        if (object instanceof JSONObject) {
-          if (pattern == null && JSONObject.NULL.equals(object)) {
-            continue;
-          }
-        } else if (object instanceof String) {
-          if (matchPattern((String) row.getValue(idx))) {
-            continue;
-          }
-        } else if (object instanceof Number) {
-          if (matchPattern(((Number) row.getValue(idx)).toString())) {
-            continue;
-          }
-        } else {
-          throw new DirectiveExecutionException(
-            String.format("%s : Invalid value type '%s' of column '%s'. Should be of type String.",
-                          toString(), object != null ? object.getClass().getName() : "null", column)
-          );
-        }
-        results.add(row);
-      } else {
+      if (idx == -1 || !isFiltered(row.getValue(idx))) {
         results.add(row);
       }
     }
     return results;
   }
 
+  @Override
+  public void execute(RowBatch batch, ExecutorContext context) throws DirectiveExecutionException {
+    if (pattern == null) {
+      return;
+    }
+    ColumnVector vector = batch.column(column);
+    for (int i : batch.selection()) {
+      if (vector.isPresent(i) && isFiltered(vector.get(i))) {
+        batch.deselect(i);
+      }
+    }
+  }
+
+  private boolean isFiltered(Object object) throws DirectiveExecutionException {
+    if (object instanceof JSONObject) {
+      return pattern == null && JSONObject.NULL.equals(object);
+    } else if (object instanceof String) {
+      return matchPattern((String) object);
+    } else if (object instanceof Number) {
+      return matchPattern(object.toString());
+    }
+    throw new DirectiveExecutionException(
+      String.format("%s : Invalid value type '%s' of column '%s'. Should be of type String.",
+                    toString(), object != null ? object.getClass().getName() : "null", column)
+    );
+  }
+
   private boolean matchPattern(String value) {
     boolean matches = pattern.matcher(value).matches(); // pattern.matcher(value).matches();
     if(!matched) {
@@ -128,5 +140,11 @@ public class RecordRegexFilter implements Directive {
     }
     return matches;
   }
-}
 
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    builder.addMutation(column, MutationType.READ);
+    return builder.build();
+  }
+}
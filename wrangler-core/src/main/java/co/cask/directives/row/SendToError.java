@@ -34,9 +34,9 @@ import co.cask.wrangler.api.parser.Text;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
 import co.cask.wrangler.expression.EL;
-import co.cask.wrangler.expression.ELContext;
 import co.cask.wrangler.expression.ELException;
 import co.cask.wrangler.expression.ELResult;
+import co.cask.wrangler.expression.ELRowContext;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -57,9 +57,13 @@ import java.util.List;
 public class SendToError implements Directive {
   public static final String NAME = "send-to-error";
   private final EL el = new EL(new EL.DefaultFunctions());
+  // Binds the rows to the variables of the expression.
+  private ELRowContext elContext;
   private String condition;
   private String metric = null;
   private String message = null;
+  // Thrown for every row sent to error.
+  private ErrorRowException error;
 
   @Override
   public UsageDefinition define() {
@@ -75,6 +79,7 @@ public class SendToError implements Directive {
     condition = ((Expression) args.value("condition")).value();
     try {
       el.compile(condition);
+      elContext = new ELRowContext(el.variables());
     } catch (ELException e) {
       throw new DirectiveParseException(
         String.format("Invalid condition '%s'.", condition)
@@ -86,6 +91,7 @@ public class SendToError implements Directive {
     if (args.contains("message")) {
       message = ((Text) args.value("message")).value();
     }
+    error = new ErrorRowException(message == null ? condition : message, 1);
   }
 
   @Override
@@ -99,18 +105,8 @@ public class SendToError implements Directive {
     List<Row> results = new ArrayList<>();
     for (Row row : rows) {
       // Move the fields from the row into the context.
-      ELContext ctx = new ELContext(context);
-      ctx.set("this", row);
-      for(String var : el.variables()) {
-        ctx.set(var, row.getValue(var));
-      }
-
-      // Transient variables are added.
-      if (context != null) {
-        for (String variable : context.getTransientStore().getVariables()) {
-          ctx.set(variable, context.getTransientStore().get(variable));
-        }
-      }
+      // Transient variables are resolved when read.
+      ELRowContext ctx = elContext.bind(row, context);
 
       // Execution of the script / expression based on the row data
       // mapped into context.
@@ -120,10 +116,7 @@ public class SendToError implements Directive {
           if(metric != null && context != null) {
             context.getMetrics().count(metric, 1);
           }
-          if (message == null) {
-            message = condition;
-          }
-          throw new ErrorRowException(message, 1);
+          throw error;
         }
       } catch (ELException e) {
         throw new DirectiveExecutionException(e.getMessage());
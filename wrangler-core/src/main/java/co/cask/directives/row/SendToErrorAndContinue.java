@@ -35,9 +35,9 @@ import co.cask.wrangler.api.parser.Text;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
 import co.cask.wrangler.expression.EL;
-import co.cask.wrangler.expression.ELContext;
 import co.cask.wrangler.expression.ELException;
 import co.cask.wrangler.expression.ELResult;
+import co.cask.wrangler.expression.ELRowContext;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -58,9 +58,13 @@ import java.util.List;
 public class SendToErrorAndContinue implements Directive {
   public static final String NAME = "send-to-error-and-continue";
   private final EL el = new EL(new EL.DefaultFunctions());
+  // Binds the rows to the variables of the expression.
+  private ELRowContext elContext;
   private String condition;
   private String metric = null;
   private String message = null;
+  // Thrown for every row sent to error.
+  private ReportErrorAndProceed error;
 
   @Override
   public UsageDefinition define() {
@@ -76,6 +80,7 @@ public class SendToErrorAndContinue implements Directive {
     condition = ((Expression) args.value("condition")).value();
     try {
       el.compile(condition);
+      elContext = new ELRowContext(el.variables());
     } catch (ELException e) {
       throw new DirectiveParseException(
         String.format("Invalid condition '%s'.", condition)
@@ -87,6 +92,7 @@ public class SendToErrorAndContinue implements Directive {
     if (args.contains("message")) {
       message = ((Text) args.value("message")).value();
     }
+    error = new ReportErrorAndProceed(message == null ? condition : message, 1);
   }
 
   @Override
@@ -103,18 +109,8 @@ public class SendToErrorAndContinue implements Directive {
     List<Row> results = new ArrayList<>();
     for (Row row : rows) {
       // Move the fields from the row into the context.
-      ELContext ctx = new ELContext(context);
-      ctx.set("this", row);
-      for(String var : el.variables()) {
-        ctx.set(var, row.getValue(var));
-      }
-
-      // Transient variables are added.
-      if (context != null) {
-        for (String variable : context.getTransientStore().getVariables()) {
-          ctx.set(variable, context.getTransientStore().get(variable));
-        }
-      }
+      // Transient variables are resolved when read.
+      ELRowContext ctx = elContext.bind(row, context);
 
       // Execution of the script / expression based on the row data
       // mapped into context.
@@ -124,13 +120,10 @@ public class SendToErrorAndContinue implements Directive {
           if(metric != null && context != null) {
             context.getMetrics().count(metric, 1);
           }
-          if (message == null) {
-            message = condition;
-          }
           if (context != null) {
             context.getTransientStore().increment(TransientVariableScope.LOCAL, "dq_failure", 1);
           }
-          throw new ReportErrorAndProceed(message, 1);
+          throw error;
         }
       } catch (ELException e) {
         throw new DirectiveExecutionException(e.getMessage());
@@ -26,14 +26,17 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
 import co.cask.wrangler.api.annotations.Categories;
+import co.cask.wrangler.api.lineage.MutationDefinition;
+import co.cask.wrangler.api.lineage.MutationType;
+import co.cask.wrangler.api.lineage.Mutator;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Expression;
 import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.api.parser.UsageDefinition;
 import co.cask.wrangler.expression.EL;
-import co.cask.wrangler.expression.ELContext;
 import co.cask.wrangler.expression.ELException;
 import co.cask.wrangler.expression.ELResult;
+import co.cask.wrangler.expression.ELRowContext;
 
 import java.util.HashMap;
 import java.util.List;
@@ -55,7 +58,7 @@ import java.util.Map;
 @Name(ColumnExpression.NAME)
 @Categories(categories = { "transform"})
 @Description("Sets a column by evaluating a JEXL expression.")
-public class ColumnExpression implements Directive {
+public class ColumnExpression implements Directive, Mutator {
   public static final String NAME = "set-column";
   // Column to which the result of experience is applied to.
   private String column;
@@ -64,6 +67,8 @@ public class ColumnExpression implements Directive {
   // Properties associated with pipeline
   private final Map<String, Object> properties = new HashMap<>();
   private final EL el = new EL(new EL.DefaultFunctions());
+  // Binds the rows to the variables of the expression.
+  private ELRowContext elContext;
 
   @Override
   public UsageDefinition define() {
@@ -79,6 +84,7 @@ public class ColumnExpression implements Directive {
     this.expression = ((Expression) args.value("expression")).value();
     try {
       el.compile(expression);
+      elContext = new ELRowContext(el.variables());
     } catch (ELException e ){
       throw new DirectiveParseException(e.getMessage());
     }
@@ -93,18 +99,8 @@ public class ColumnExpression implements Directive {
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
       // Move the fields from the row into the context.
-      ELContext ctx = new ELContext(context);
-      ctx.set("this", row);
-      for(String var : el.variables()) {
-        ctx.set(var, row.getValue(var));
-      }
-
-      // Transient variables are added.
-      if (context != null) {
-        for (String variable : context.getTransientStore().getVariables()) {
-          ctx.set(variable, context.getTransientStore().get(variable));
-        }
-      }
+      // Transient variables are resolved when read.
+      ELRowContext ctx = elContext.bind(row, context);
 
       // Execution of the script / expression based on the row data
       // mapped into context.
@@ -122,6 +118,14 @@ public class ColumnExpression implements Directive {
     }
     return rows;
   }
-}
-
 
+  @Override
+  public MutationDefinition lineage() {
+    MutationDefinition.Builder builder = MutationDefinition.builder(NAME);
+    for (String variable : el.variables()) {
+      builder.addMutation(variable, MutationType.READ);
+    }
+    builder.addMutation(column, MutationType.ADD);
+    return builder.build();
+  }
+}
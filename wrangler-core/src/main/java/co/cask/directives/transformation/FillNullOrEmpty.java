@@ -20,6 +20,7 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.ColumnDirective;
 import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveExecutionException;
 import co.cask.wrangler.api.DirectiveParseException;
@@ -41,7 +42,7 @@ import java.util.List;
 @Name(FillNullOrEmpty.NAME)
 @Categories(categories = { "transform"})
 @Description("Fills a value of a column with a fixed value if it is either null or empty.")
-public class FillNullOrEmpty implements Directive {
+public class FillNullOrEmpty implements ColumnDirective {
   public static final String NAME = "fill-null-or-empty";
   private String column;
   private String value;
@@ -96,4 +97,23 @@ public class FillNullOrEmpty implements Directive {
     }
     return rows;
   }
+
+  @Override
+  public String getColumn() {
+    return column;
+  }
+
+  @Override
+  public Object apply(Object value) throws DirectiveExecutionException {
+    if (value == null) {
+      return this.value;
+    }
+    if (value instanceof String && ((String) value).isEmpty()) {
+      return this.value;
+    }
+    if (value instanceof JSONObject && JSONObject.NULL.equals(value)) {
+      return this.value;
+    }
+    return value;
+  }
 }
@@ -20,6 +20,7 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.ColumnDirective;
 import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveExecutionException;
 import co.cask.wrangler.api.DirectiveParseException;
@@ -39,7 +40,7 @@ import java.util.List;
 @Name(LeftTrim.NAME)
 @Categories(categories = { "transform"})
 @Description("Trimming whitespace from left side of a string.")
-public class LeftTrim implements Directive {
+public class LeftTrim implements ColumnDirective {
   public static final String NAME = "ltrim";
   // Columns of the column to be upper-cased
   private String col;
@@ -77,4 +78,17 @@ public class LeftTrim implements Directive {
     }
     return rows;
   }
+
+  @Override
+  public String getColumn() {
+    return col;
+  }
+
+  @Override
+  public Object apply(Object value) throws DirectiveExecutionException {
+    if (value instanceof String) {
+      return Trimmer.ltrim((String) value);
+    }
+    return value;
+  }
 }
@@ -20,11 +20,15 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.ColumnDirective;
+import co.cask.wrangler.api.ColumnVector;
 import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveExecutionException;
 import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.RowBatch;
+import co.cask.wrangler.api.VectorizedDirective;
 import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.TokenType;
@@ -39,7 +43,7 @@ import java.util.List;
 @Name(Lower.NAME)
 @Categories(categories = { "transform"})
 @Description("Changes the column values to lowercase.")
-public class Lower implements Directive {
+public class Lower implements VectorizedDirective, ColumnDirective {
   public static final String NAME = "lowercase";
   // Columns of the column to be lower cased.
   private String column;
@@ -66,15 +70,38 @@ public class Lower implements Directive {
     for (Row row : rows) {
       int idx = row.find(column);
       if (idx != -1) {
-        Object object = row.getValue(idx);
-        if (object instanceof String) {
-          if (object != null) {
-            String value = (String) object;
-            row.setValue(idx, value.toLowerCase());
-          }
+        Object value = row.getValue(idx);
+        Object result = apply(value);
+        if (result != value) {
+          row.setValue(idx, result);
         }
       }
     }
     return rows;
   }
+
+  @Override
+  public void execute(RowBatch batch, ExecutorContext context) throws DirectiveExecutionException {
+    ColumnVector vector = batch.column(column);
+    for (int i : batch.selection()) {
+      Object value = vector.get(i);
+      Object result = apply(value);
+      if (result != value) {
+        vector.set(i, result);
+      }
+    }
+  }
+
+  @Override
+  public String getColumn() {
+    return column;
+  }
+
+  @Override
+  public Object apply(Object value) throws DirectiveExecutionException {
+    if (value instanceof String) {
+      return ((String) value).toLowerCase();
+    }
+    return value;
+  }
 }
@@ -20,11 +20,15 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.ColumnDirective;
+import co.cask.wrangler.api.ColumnVector;
 import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveExecutionException;
 import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.RowBatch;
+import co.cask.wrangler.api.VectorizedDirective;
 import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Text;
@@ -60,7 +64,7 @@ import java.util.List;
 @Name(MaskNumber.NAME)
 @Categories(categories = { "transform"})
 @Description("Masks a column value using the specified masking pattern.")
-public class MaskNumber implements Directive {
+public class MaskNumber implements VectorizedDirective, ColumnDirective {
   public static final String NAME = "mask-number";
   // Specifies types of mask
   public static final int MASK_NUMBER = 1;
@@ -96,11 +100,11 @@ public class MaskNumber implements Directive {
     for (Row row : rows) {
       int idx = row.find(column);
       if (idx != -1) {
-        String value = TypeConvertor.toString(row.getValue(idx));
-        if (value == null) {
-          continue;
+        Object value = row.getValue(idx);
+        Object result = apply(value);
+        if (result != value) {
+          row.setValue(idx, result);
         }
-        row.setValue(idx, maskNumber(value, mask));
       } else {
         row.add(column, new String(""));
       }
@@ -135,6 +139,34 @@ public class MaskNumber implements Directive {
     }
     return masked.toString();
   }
-}
 
+  @Override
+  public void execute(RowBatch batch, ExecutorContext context) throws DirectiveExecutionException {
+    ColumnVector vector = batch.column(column);
+    for (int i : batch.selection()) {
+      if (vector.isPresent(i)) {
+        Object value = vector.get(i);
+        Object result = apply(value);
+        if (result != value) {
+          vector.set(i, result);
+        }
+      } else {
+        vector.set(i, new String(""));
+      }
+    }
+  }
 
+  @Override
+  public String getColumn() {
+    return column;
+  }
+
+  @Override
+  public Object apply(Object value) throws DirectiveExecutionException {
+    String text = TypeConvertor.toString(value);
+    if (text == null) {
+      return value;
+    }
+    return maskNumber(text, mask);
+  }
+}
@@ -20,12 +20,15 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.ColumnVector;
 import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveExecutionException;
 import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Optional;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.RowBatch;
+import co.cask.wrangler.api.VectorizedDirective;
 import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.Bool;
 import co.cask.wrangler.api.parser.ColumnName;
@@ -47,7 +50,7 @@ import java.util.Set;
 @Name(MessageHash.NAME)
 @Categories(categories = { "transform", "hash"})
 @Description("Creates a message digest for the column using algorithm, replacing the column value.")
-public class MessageHash implements Directive {
+public class MessageHash implements VectorizedDirective {
   public static final String NAME = "hash";
   private static final Set<String> algorithms = ImmutableSet.of(
     "BLAKE2B-160",
@@ -151,35 +154,52 @@ public class MessageHash implements Directive {
   public List<Row> execute(List<Row> rows, ExecutorContext context) throws DirectiveExecutionException {
     for (Row row : rows) {
       int idx = row.find(column);
-      if (idx != -1) {
-        Object object = row.getValue(idx);
-        byte[] message;
-        if (object instanceof String) {
-          message = ((String) object).getBytes(StandardCharsets.UTF_8);
-        } else if (object instanceof byte[]) {
-          message = ((byte[]) object);
-        } else {
-          throw new DirectiveExecutionException(
-            String.format("%s : Invalid type '%s' of column '%s'. Should be of type String or byte[].", toString(),
-                          object != null ? object.getClass().getName() : "null", column)
-          );
-        }
-
-        digest.update(message);
-        byte[] hashed = digest.digest();
-
-        if (encode) {
-          // hex with left zero padding:
-          String hasedHex = String.format("%064x", new java.math.BigInteger(1, hashed));
-          row.addOrSet(column, hasedHex);
-        } else {
-          row.addOrSet(column, hashed);
-        }
-      } else {
-        throw new DirectiveExecutionException(toString() + " : Column '" + column + "' does not exist in the row.");
+      if (idx == -1) {
+        throw missingColumn();
       }
+      row.setValue(idx, hash(row.getValue(idx)));
     }
     return rows;
   }
-}
 
+  @Override
+  public void execute(RowBatch batch, ExecutorContext context) throws DirectiveExecutionException {
+    ColumnVector vector = batch.column(column);
+    for (int i : batch.selection()) {
+      if (!vector.isPresent(i)) {
+        throw missingColumn();
+      }
+      vector.set(i, hash(vector.get(i)));
+    }
+  }
+
+  /**
+   * Hashes the value of the column, the hash being hex encoded if requested.
+   */
+  private Object hash(Object object) throws DirectiveExecutionException {
+    byte[] message;
+    if (object instanceof String) {
+      message = ((String) object).getBytes(StandardCharsets.UTF_8);
+    } else if (object instanceof byte[]) {
+      message = ((byte[]) object);
+    } else {
+      throw new DirectiveExecutionException(
+        String.format("%s : Invalid type '%s' of column '%s'. Should be of type String or byte[].", toString(),
+                      object != null ? object.getClass().getName() : "null", column)
+      );
+    }
+
+    digest.update(message);
+    byte[] hashed = digest.digest();
+
+    if (encode) {
+      // hex with left zero padding:
+      return String.format("%064x", new java.math.BigInteger(1, hashed));
+    }
+    return hashed;
+  }
+
+  private DirectiveExecutionException missingColumn() {
+    return new DirectiveExecutionException(toString() + " : Column '" + column + "' does not exist in the row.");
+  }
+}
@@ -20,12 +20,15 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.ColumnVector;
 import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveExecutionException;
 import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.RowBatch;
 import co.cask.wrangler.api.Triplet;
+import co.cask.wrangler.api.VectorizedDirective;
 import co.cask.wrangler.api.annotations.Categories;
 import co.cask.wrangler.api.parser.ColumnName;
 import co.cask.wrangler.api.parser.Numeric;
@@ -46,7 +49,7 @@ import java.util.List;
 @Name(Quantization.NAME)
 @Categories(categories = { "transform"})
 @Description("Quanitize the range of numbers into label values.")
-public class Quantization implements Directive {
+public class Quantization implements VectorizedDirective {
   public static final String NAME = "quantize";
   private static final String RANGE_PATTERN="([+-]?\\d+(?:\\.\\d+)?):([+-]?\\d+(?:\\.\\d+)?)=(.[^,]*)";
   private final RangeMap<Double, String> rangeMap = TreeRangeMap.create();
@@ -84,41 +87,61 @@ public class Quantization implements Directive {
     List<Row> results = new ArrayList<>();
     for (Row row : rows) {
       int idx = row.find(col1);
-
-      if (idx != -1) {
-        try {
-          Object object = row.getValue(idx);
-          Double d;
-          if (object instanceof String) {
-            d = Double.parseDouble((String) object);
-          } else if (object instanceof Double) {
-            d = (Double) object;
-          } else if (object instanceof Float) {
-            d = ((Float) object).doubleValue();
-          } else {
-            throw new DirectiveExecutionException(
-              String.format("%s : Invalid type '%s' of column '%s'. Should be of type String, Float or Double.",
-                            toString(), object != null ? object.getClass().getName() : "null", col1)
-            );
-          }
-          String value = rangeMap.get(d);
-          int destIdx = row.find(col2);
-          if (destIdx == -1) {
-            row.add(col2, value);
-          } else {
-            row.setValue(destIdx, value);
-          }
-        } catch (NumberFormatException e) {
-          throw new DirectiveExecutionException(toString(), e);
-        }
+      if (idx == -1) {
+        throw missingColumn();
+      }
+      String value = quantize(row.getValue(idx));
+      int destIdx = row.find(col2);
+      if (destIdx == -1) {
+        row.add(col2, value);
       } else {
-        throw new DirectiveExecutionException(
-          String.format("%s : %s was not found or is not of type string. Please check the wrangle configuration.",
-                        toString(), col1));
+        row.setValue(destIdx, value);
       }
       results.add(row);
     }
 
     return results;
   }
+
+  @Override
+  public void execute(RowBatch batch, ExecutorContext context) throws DirectiveExecutionException {
+    ColumnVector source = batch.column(col1);
+    ColumnVector destination = batch.column(col2);
+    for (int i : batch.selection()) {
+      if (!source.isPresent(i)) {
+        throw missingColumn();
+      }
+      destination.set(i, quantize(source.get(i)));
+    }
+  }
+
+  /**
+   * Finds the label of the range the value of the source column falls in.
+   */
+  private String quantize(Object object) throws DirectiveExecutionException {
+    try {
+      Double d;
+      if (object instanceof String) {
+        d = Double.parseDouble((String) object);
+      } else if (object instanceof Double) {
+        d = (Double) object;
+      } else if (object instanceof Float) {
+        d = ((Float) object).doubleValue();
+      } else {
+        throw new DirectiveExecutionException(
+          String.format("%s : Invalid type '%s' of column '%s'. Should be of type String, Float or Double.",
+                        toString(), object != null ? object.getClass().getName() : "null", col1)
+        );
+      }
+      return rangeMap.get(d);
+    } catch (NumberFormatException e) {
+      throw new DirectiveExecutionException(toString(), e);
+    }
+  }
+
+  private DirectiveExecutionException missingColumn() {
+    return new DirectiveExecutionException(
+      String.format("%s : %s was not found or is not of type string. Please check the wrangle configuration.",
+                    toString(), col1));
+  }
 }
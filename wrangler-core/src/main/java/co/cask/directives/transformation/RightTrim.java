@@ -20,6 +20,7 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.ColumnDirective;
 import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveExecutionException;
 import co.cask.wrangler.api.DirectiveParseException;
@@ -40,7 +41,7 @@ import java.util.List;
 @Name(RightTrim.NAME)
 @Categories(categories = { "transform"})
 @Description("Trimming whitespace from right side of a string.")
-public class RightTrim implements Directive {
+public class RightTrim implements ColumnDirective {
   public static final String NAME = "rtrim";
   // Columns of the column to be upper-cased
   private String column;
@@ -78,4 +79,17 @@ public class RightTrim implements Directive {
     }
     return rows;
   }
+
+  @Override
+  public String getColumn() {
+    return column;
+  }
+
+  @Override
+  public Object apply(Object value) throws DirectiveExecutionException {
+    if (value instanceof String) {
+      return Trimmer.rtrim((String) value);
+    }
+    return value;
+  }
 }
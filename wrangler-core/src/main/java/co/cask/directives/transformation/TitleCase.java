@@ -20,6 +20,7 @@ import co.cask.cdap.api.annotation.Description;
 import co.cask.cdap.api.annotation.Name;
 import co.cask.cdap.api.annotation.Plugin;
 import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.ColumnDirective;
 import co.cask.wrangler.api.Directive;
 import co.cask.wrangler.api.DirectiveExecutionException;
 import co.cask.wrangler.api.DirectiveParseException;
@@ -40,7 +41,7 @@ import java.util.List;
 @Name(TitleCase.NAME)
 @Categories(categories = { "transform"})
 @Description("Changes the column values to title case.")
-public class TitleCase implements Directive {
+public class TitleCase implements ColumnDirective {
   public static final String NAME = "titlecase";
   private String column;
 
@@ -77,4 +78,17 @@ public class TitleCase implements Directive {
     }
     return rows;
   }
+
+  @Override
+  public String getColumn() {
+    return column;
+  }
+
+  @Override
+  public Object apply(Object value) throws DirectiveExecutionException {
+    if (value instanceof String) {
+      return WordUtils.capitalizeFully((String) value);
+    }
+    return value;
+  }
 }
@@ -16,6 +16,7 @@
 
 package co.cask.functions;
 
+import co.cask.wrangler.utils.JsonDocumentCache;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -36,6 +37,9 @@ import java.util.Set;
  * of an expression.
  *
  * set-column column <expression>
+ *
+ * JSON strings are parsed through the {@link JsonDocumentCache}, functions applied to the
+ * same column of a row parse it once.
  */
 public final class JSON {
   public static final Configuration GSON_CONFIGURATION = Configuration
@@ -47,13 +51,14 @@ public final class JSON {
   private static final JsonParser PARSER = new JsonParser();
 
   public static final JsonElement select(String json, String path, String ...paths) {
-    JsonElement element = PARSER.parse(json);
-    return select(element, path, paths);
+    return select(json, true, path, paths);
   }
 
   public static final JsonElement select(String json, boolean toLower, String path, String ...paths) {
-    JsonElement element = PARSER.parse(json);
-    return select(element, toLower, path, paths);
+    JsonElement element = JsonDocumentCache.parse(json);
+    // Keys lowered are copied, else the elements selected from the shared document are copied.
+    JsonElement selected = select(element, toLower, path, paths);
+    return toLower ? selected : JsonDocumentCache.copy(selected);
   }
 
   public static final JsonElement select(JsonElement element, String path, String ...paths) {
@@ -78,8 +83,7 @@ public final class JSON {
   }
 
   public static final JsonElement drop(String json, String field, String ... fields) {
-    JsonElement element = PARSER.parse(json);
-    return drop(element, field, fields);
+    return drop(parseCopy(json), field, fields);
   }
 
   /**
@@ -198,11 +202,15 @@ public final class JSON {
    * @return parsed json else throws an exception.
    */
   public static JsonElement parse(String json, boolean toLower) {
-    JsonElement element = PARSER.parse(json);
-    if (toLower) {
-      element = keysToLower(element);
-    }
-    return element;
+    return toLower ? keysToLower(JsonDocumentCache.parse(json)) : parseCopy(json);
+  }
+
+  /**
+   * @return document that can be modified, copied from the document parsed already if any.
+   */
+  private static JsonElement parseCopy(String json) {
+    JsonElement element = JsonDocumentCache.get(json);
+    return element == null ? PARSER.parse(json) : JsonDocumentCache.copy(element);
   }
 }
 
@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.executor;
+
+import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.ColumnDirective;
+import co.cask.wrangler.api.DirectiveExecutionException;
+import co.cask.wrangler.api.ErrorRowException;
+import co.cask.wrangler.api.Executor;
+import co.cask.wrangler.api.ExecutorContext;
+import co.cask.wrangler.api.ReportErrorAndProceed;
+import co.cask.wrangler.api.Row;
+import com.google.common.base.Joiner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A run of consecutive {@link ColumnDirective}s on the same column, executed as a single step
+ * of the pipeline.
+ *
+ * <p>The column is resolved once per row and its value is passed through each directive of
+ * the run before being written back, hence the rows are walked once for the whole run. Each
+ * directive throws its own errors, so failures still name the directive of the recipe that
+ * caused them. Errors reported by a directive don't stop the rest of the run, they are
+ * reported together once the run completes, the same way the pipeline reports them when the
+ * directives are executed one after the other.</p>
+ *
+ * <p>Runs are not {@link co.cask.wrangler.api.VectorizedDirective}s, they are only created for
+ * recipes executed record by record.</p>
+ */
+final class FusedColumnRun implements Executor<List<Row>, List<Row>> {
+  private final String column;
+  private final List<ColumnDirective> directives;
+
+  private FusedColumnRun(String column, List<ColumnDirective> directives) {
+    this.column = column;
+    this.directives = directives;
+  }
+
+  /**
+   * Replaces runs of consecutive {@link ColumnDirective}s on the same column with a
+   * {@link FusedColumnRun}.
+   *
+   * @param executors directives of the recipe, in order of execution.
+   * @return directives with the runs fused.
+   */
+  static List<Executor> fuse(List<Executor> executors) {
+    List<Executor> fused = new ArrayList<>(executors.size());
+    List<ColumnDirective> run = new ArrayList<>();
+    for (Executor executor : executors) {
+      if (executor instanceof ColumnDirective) {
+        ColumnDirective directive = (ColumnDirective) executor;
+        // Columns are looked up ignoring case in the rows.
+        if (run.isEmpty() || run.get(0).getColumn().equalsIgnoreCase(directive.getColumn())) {
+          run.add(directive);
+          continue;
+        }
+      }
+      flush(run, fused);
+      if (executor instanceof ColumnDirective) {
+        run.add((ColumnDirective) executor);
+      } else {
+        fused.add(executor);
+      }
+    }
+    flush(run, fused);
+    return fused;
+  }
+
+  private static void flush(List<ColumnDirective> run, List<Executor> fused) {
+    if (run.size() == 1) {
+      fused.add(run.get(0));
+    } else if (run.size() > 1) {
+      fused.add(new FusedColumnRun(run.get(0).getColumn(), new ArrayList<>(run)));
+    }
+    run.clear();
+  }
+
+  @Override
+  public void initialize(Arguments args) {
+    // no-op, the directives of the run are initialized when the recipe is parsed.
+  }
+
+  @Override
+  public List<Row> execute(List<Row> rows, ExecutorContext context)
+    throws DirectiveExecutionException, ErrorRowException, ReportErrorAndProceed {
+    // First error reported, with the messages of the errors reported after it.
+    ReportErrorAndProceed reported = null;
+    StringBuilder messages = null;
+    for (Row row : rows) {
+      int idx = row.find(column);
+      Object value = idx == -1 ? null : row.getValue(idx);
+      for (int i = 0; i < directives.size(); ++i) {
+        ColumnDirective directive = directives.get(i);
+        if (idx == -1) {
+          // Rows without the column follow the regular path, the directive might add the column.
+          try {
+            directive.execute(Collections.singletonList(row), context);
+          } catch (ReportErrorAndProceed e) {
+            if (reported == null) {
+              reported = e;
+              messages = new StringBuilder(e.getMessage());
+            } else {
+              messages.append(',').append(e.getCode()).append(':').append(e.getMessage());
+            }
+          }
+          idx = row.find(column);
+          value = idx == -1 ? null : row.getValue(idx);
+        } else if (i < directives.size() - 1) {
+          value = directive.apply(value);
+        } else {
+          // The last directive of the run sets the value, unboxed if the directive can.
+          directive.applyTo(row, idx, value);
+        }
+      }
+    }
+    if (reported != null) {
+      throw new ReportErrorAndProceed(messages.toString(), reported.getCode());
+    }
+    return rows;
+  }
+
+  @Override
+  public void destroy() {
+    for (ColumnDirective directive : directives) {
+      directive.destroy();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return Joiner.on(", ").join(directives);
+  }
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.executor;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.etl.api.Lookup;
+import co.cask.cdap.etl.api.StageMetrics;
+import co.cask.directives.aggregates.DefaultTransientStore;
+import co.cask.directives.aggregates.IncrementTransientVariable;
+import co.cask.directives.aggregates.SetTransientVariable;
+import co.cask.directives.parser.CsvParser;
+import co.cask.wrangler.api.ErrorRecord;
+import co.cask.wrangler.api.Executor;
+import co.cask.wrangler.api.ExecutorContext;
+import co.cask.wrangler.api.RecipeException;
+import co.cask.wrangler.api.RecipeParser;
+import co.cask.wrangler.api.RecipePipeline;
+import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.TransientStore;
+import co.cask.wrangler.utils.RecordConvertor;
+import co.cask.wrangler.utils.RecordConvertorException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+/**
+ * The class <code>ParallelRecipePipelineExecutor</code> executes the recipe on partitions
+ * of the input in parallel.
+ *
+ * <p>Directives hold state that is not safe to share between threads, so every worker
+ * executes the partitions on its own set of directives, instantiated and initialized from
+ * the recipe compiled once by the parser. Workers pick the partitions one after the other
+ * until all of them are executed, the output and errors of the partitions are merged back
+ * in the order of the input.</p>
+ *
+ * <p>Recipes whose rows depend on the rows before them, setting transient variables or parsing
+ * the header of csv records, are executed by a single worker in the calling thread.</p>
+ */
+public final class ParallelRecipePipelineExecutor implements RecipePipeline<Row, StructuredRecord, ErrorRecord> {
+  // Minimum number of rows in a partition, smaller inputs are executed in the calling thread.
+  private static final int MIN_PARTITION_SIZE = 1000;
+
+  // Number of partitions per worker, allows workers that finish early to pick more work.
+  private static final int PARTITIONS_PER_WORKER = 4;
+
+  private final int parallelism;
+  private final boolean batch;
+  private final List<RecipePipelineExecutor> workers = new ArrayList<>();
+  private RecipeParser parser;
+  private ExecutorContext context;
+  private boolean sequential;
+  private ExecutorService pool;
+  private List<ErrorRecord> errors = new ArrayList<>();
+  private RecordConvertor convertor = new RecordConvertor();
+
+  public ParallelRecipePipelineExecutor(int parallelism) {
+    this(parallelism, false);
+  }
+
+  /**
+   * Creates a parallel pipeline executor.
+   *
+   * @param parallelism maximum number of workers executing the recipe.
+   * @param batch true to execute each directive once on the whole partition, false to execute
+   *              all the directives record by record.
+   */
+  public ParallelRecipePipelineExecutor(int parallelism, boolean batch) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism should be greater than zero.");
+    }
+    this.parallelism = parallelism;
+    this.batch = batch;
+  }
+
+  /**
+   * Configures the pipeline based on the directives. The directives of the first worker are
+   * created from the parser, the other workers are created when the input is first partitioned.
+   *
+   * @param parser Wrangle directives parser.
+   * @param context shared by the workers, except for the transient store.
+   */
+  @Override
+  public void initialize(RecipeParser parser, @Nullable ExecutorContext context) throws RecipeException {
+    this.parser = parser;
+    this.context = context;
+    RecipePipelineExecutor worker = new RecipePipelineExecutor(batch);
+    worker.initialize(parser, context);
+    workers.add(worker);
+    sequential = parallelism == 1 || dependsOnRowOrder(worker.getDirectives());
+  }
+
+  /**
+   * Transient variables are shared by the rows of a worker, and the header of csv records is
+   * read from the first row parsed by a worker.
+   */
+  private static boolean dependsOnRowOrder(List<Executor> directives) {
+    for (Executor directive : directives) {
+      if (directive instanceof SetTransientVariable || directive instanceof IncrementTransientVariable
+        || (directive instanceof CsvParser && ((CsvParser) directive).hasHeader())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Destroys the directives of every worker and stops the workers.
+   */
+  @Override
+  public void destroy() {
+    if (pool != null) {
+      pool.shutdownNow();
+    }
+    for (RecipePipelineExecutor worker : workers) {
+      worker.destroy();
+    }
+  }
+
+  /**
+   * Executes the pipeline on the input.
+   *
+   * @param rows List of Input record of type I.
+   * @param schema Schema to which the output should be mapped.
+   * @return Parsed output list of record of type O
+   */
+  @Override
+  public List<StructuredRecord> execute(List<Row> rows, Schema schema) throws RecipeException {
+    rows = execute(rows);
+    try {
+      return convertor.toStructureRecord(rows, schema);
+    } catch (RecordConvertorException e) {
+      throw new RecipeException("Problem converting into output record. Reason : " + e.getMessage());
+    }
+  }
+
+  /**
+   * Executes the pipeline on the input, partitioning the input between the workers.
+   *
+   * @param rows List of input record of type I.
+   * @return Parsed output list of record of type I, in the order of the input.
+   */
+  @Override
+  public List<Row> execute(List<Row> rows) throws RecipeException {
+    errors = new ArrayList<>();
+    return execute(rows, errors);
+  }
+
+  private List<Row> execute(List<Row> rows, List<ErrorRecord> errors) throws RecipeException {
+    int size = Math.max(MIN_PARTITION_SIZE, rows.size() / (parallelism * PARTITIONS_PER_WORKER) + 1);
+    if (sequential || rows.size() <= size) {
+      RecipePipelineExecutor worker = workers.get(0);
+      List<Row> output = worker.execute(rows);
+      errors.addAll(worker.errors());
+      return output;
+    }
+
+    List<Partition> partitions = new ArrayList<>();
+    for (int start = 0; start < rows.size(); start += size) {
+      partitions.add(new Partition(rows.subList(start, Math.min(start + size, rows.size()))));
+    }
+    AtomicInteger next = new AtomicInteger();
+    List<Worker> tasks = new ArrayList<>();
+    for (RecipePipelineExecutor worker : workers(Math.min(parallelism, partitions.size()))) {
+      tasks.add(new Worker(worker, partitions, next));
+    }
+    try {
+      for (Future<Void> future : pool.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RecipeException("Interrupted while executing the recipe.", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RecipeException) {
+        throw (RecipeException) cause;
+      }
+      throw new RecipeException(cause.getMessage(), cause);
+    }
+
+    List<Row> results = new ArrayList<>();
+    for (Partition partition : partitions) {
+      results.addAll(partition.output);
+      errors.addAll(partition.errors);
+    }
+    return results;
+  }
+
+  /**
+   * Creates the workers and the threads running them as they are first needed.
+   *
+   * @param count number of workers needed.
+   * @return the workers.
+   */
+  private List<RecipePipelineExecutor> workers(int count) throws RecipeException {
+    while (workers.size() < count) {
+      RecipePipelineExecutor worker = new RecipePipelineExecutor(batch);
+      worker.initialize(parser, context == null ? null : new WorkerContext(context));
+      workers.add(worker);
+    }
+    if (pool == null) {
+      pool = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+        .setNameFormat("recipe-worker-%d").setDaemon(true).build());
+    }
+    return workers.subList(0, count);
+  }
+
+  /**
+   * Executes the pipeline lazily on the input. Rows are pulled from the input a chunk at a time,
+   * each chunk being partitioned between the workers when the returned iterator is advanced.
+   *
+   * <p>Rows that error are available through {@link #errors()} as the iterator is consumed.
+   * Issues executing the directives are thrown as {@link IllegalStateException} with the
+   * {@link RecipeException} as the cause.</p>
+   *
+   * @param rows Iterator over the input records.
+   * @return Iterator over the records output by the recipe.
+   */
+  @Override
+  public Iterator<Row> execute(Iterator<Row> rows) {
+    errors = new ArrayList<>();
+    return new ChunkIterator(rows, errors);
+  }
+
+  /**
+   * Returns records that are errored out.
+   *
+   * @return records that have errored out.
+   */
+  @Override
+  public List<ErrorRecord> errors() {
+    return Collections.unmodifiableList(errors);
+  }
+
+  /**
+   * A partition of the input, with its output once executed.
+   */
+  private static final class Partition {
+    private final List<Row> input;
+    private List<Row> output;
+    private List<ErrorRecord> errors;
+
+    private Partition(List<Row> input) {
+      this.input = input;
+    }
+  }
+
+  /**
+   * Executes the partitions not picked yet by other workers on the directives of one worker.
+   */
+  private static final class Worker implements Callable<Void> {
+    private final RecipePipelineExecutor executor;
+    private final List<Partition> partitions;
+    private final AtomicInteger next;
+
+    private Worker(RecipePipelineExecutor executor, List<Partition> partitions, AtomicInteger next) {
+      this.executor = executor;
+      this.partitions = partitions;
+      this.next = next;
+    }
+
+    @Override
+    public Void call() throws RecipeException {
+      for (int i = next.getAndIncrement(); i < partitions.size(); i = next.getAndIncrement()) {
+        Partition partition = partitions.get(i);
+        partition.output = executor.execute(partition.input);
+        partition.errors = new ArrayList<>(executor.errors());
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Iterator that executes the rows pulled from the input a chunk at a time.
+   */
+  private final class ChunkIterator implements Iterator<Row> {
+    private final Iterator<Row> input;
+    private final List<ErrorRecord> errors;
+    private Iterator<Row> output = Collections.emptyIterator();
+
+    private ChunkIterator(Iterator<Row> input, List<ErrorRecord> errors) {
+      this.input = input;
+      this.errors = errors;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (!output.hasNext() && input.hasNext()) {
+        List<Row> chunk = new ArrayList<>();
+        while (chunk.size() < parallelism * MIN_PARTITION_SIZE && input.hasNext()) {
+          chunk.add(input.next());
+        }
+        try {
+          output = execute(chunk, errors).iterator();
+        } catch (RecipeException e) {
+          throw new IllegalStateException(e.getMessage(), e);
+        }
+      }
+      return output.hasNext();
+    }
+
+    @Override
+    public Row next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException("No more rows output by the recipe.");
+      }
+      return output.next();
+    }
+  }
+
+  /**
+   * Context of a worker, delegates to the pipeline context but for the transient store
+   * that is owned by the worker.
+   */
+  private static final class WorkerContext implements ExecutorContext {
+    private final ExecutorContext context;
+    private final TransientStore store = new DefaultTransientStore();
+
+    private WorkerContext(ExecutorContext context) {
+      this.context = context;
+    }
+
+    @Override
+    public Environment getEnvironment() {
+      return context.getEnvironment();
+    }
+
+    @Override
+    public StageMetrics getMetrics() {
+      return context.getMetrics();
+    }
+
+    @Override
+    public String getContextName() {
+      return context.getContextName();
+    }
+
+    @Override
+    public Map<String, String> getProperties() {
+      return context.getProperties();
+    }
+
+    @Override
+    public URL getService(String applicationId, String serviceId) {
+      return context.getService(applicationId, serviceId);
+    }
+
+    @Override
+    public TransientStore getTransientStore() {
+      return store;
+    }
+
+    @Override
+    public <T> Lookup<T> provide(String table, Map<String, String> arguments) {
+      return context.provide(table, arguments);
+    }
+  }
+}
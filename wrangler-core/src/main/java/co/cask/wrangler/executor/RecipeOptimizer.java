@@ -0,0 +1,355 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.executor;
+
+import co.cask.directives.column.Drop;
+import co.cask.directives.column.Keep;
+import co.cask.directives.parser.JsParser;
+import co.cask.directives.row.RecordConditionFilter;
+import co.cask.directives.row.RecordRegexFilter;
+import co.cask.wrangler.api.ColumnDirective;
+import co.cask.wrangler.api.Executor;
+import co.cask.wrangler.api.lineage.Mutation;
+import co.cask.wrangler.api.lineage.Mutator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * The class <code>RecipeOptimizer</code> rewrites the directives of a recipe based on the
+ * columns each directive reads and writes, as described by the directive {@link Mutator#lineage()}
+ * or by {@link ColumnDirective#getColumn()}.
+ *
+ * <p>The recipe is rewritten in three passes:</p>
+ * <ul>
+ *   <li>Filters are moved ahead of the directives that don't write any of the columns the
+ *   filter reads, so the rows filtered out are not wrangled.</li>
+ *   <li>Adjacent <code>drop</code> and <code>keep</code> directives are combined.</li>
+ *   <li>Directives that only write columns that are never read afterwards and are not part of
+ *   the output are removed.</li>
+ * </ul>
+ *
+ * <p>The last pass also restricts the columns flattened by <code>parse-as-json</code> to the
+ * columns used afterwards.</p>
+ *
+ * <p>Directives without lineage could read or write any column, none of the rewrites cross
+ * them. Rows filtered out earlier and directives removed don't raise the errors they would
+ * have raised in the original recipe, hence recipes are only optimized when requested.</p>
+ */
+final class RecipeOptimizer {
+
+  private RecipeOptimizer() {
+    // Avoid creation of this object.
+  }
+
+  /**
+   * Optimizes the directives of a recipe.
+   *
+   * @param directives of the recipe, in order of execution.
+   * @param outputs names of the columns output by the recipe, null if all the columns are output.
+   * @return optimized directives.
+   */
+  static List<Executor> optimize(List<Executor> directives, @Nullable Collection<String> outputs) {
+    List<Executor> optimized = pushFilters(directives);
+    optimized = combine(optimized);
+    return removeUnused(optimized, outputs);
+  }
+
+  /**
+   * Moves each filter ahead of the directives preceding it as long as they don't write any
+   * of the columns read by the filter. Filters are not reordered between themselves.
+   */
+  private static List<Executor> pushFilters(List<Executor> directives) {
+    List<Executor> optimized = new ArrayList<>(directives.size());
+    for (Executor directive : directives) {
+      int pos = optimized.size();
+      if (isFilter(directive)) {
+        Lineage filter = lineage(directive);
+        while (pos > 0) {
+          Executor previous = optimized.get(pos - 1);
+          Lineage lineage = lineage(previous);
+          if (isFilter(previous) || lineage == null || intersects(lineage.writes, filter.reads)) {
+            break;
+          }
+          pos--;
+        }
+      }
+      optimized.add(pos, directive);
+    }
+    return optimized;
+  }
+
+  /**
+   * Combines adjacent <code>drop</code> and <code>keep</code> directives.
+   */
+  private static List<Executor> combine(List<Executor> directives) {
+    List<Executor> optimized = new ArrayList<>(directives.size());
+    for (Executor directive : directives) {
+      int last = optimized.size() - 1;
+      Executor previous = last < 0 ? null : optimized.get(last);
+      if (previous instanceof Drop && directive instanceof Drop) {
+        List<String> columns = new ArrayList<>(dropped((Drop) previous));
+        columns.addAll(dropped((Drop) directive));
+        optimized.set(last, new Drop(columns));
+      } else if (previous instanceof Keep && directive instanceof Keep
+        && !differInCase(((Keep) previous).getColumns(), ((Keep) directive).getColumns())) {
+        Set<String> columns = new HashSet<>(((Keep) previous).getColumns());
+        columns.retainAll(((Keep) directive).getColumns());
+        optimized.set(last, new Keep(columns));
+      } else if (previous instanceof Drop && directive instanceof Keep
+        && !intersects(fold(dropped((Drop) previous)), fold(((Keep) directive).getColumns()))) {
+        // Columns dropped are not kept, keep drops them anyway.
+        optimized.set(last, directive);
+      } else {
+        optimized.add(directive);
+      }
+    }
+    return optimized;
+  }
+
+  /**
+   * Removes the directives that only write columns that are not read by the directives
+   * following them nor output by the recipe.
+   */
+  private static List<Executor> removeUnused(List<Executor> directives, @Nullable Collection<String> outputs) {
+    Usage usage = new Usage(outputs);
+    LinkedList<Executor> optimized = new LinkedList<>();
+    for (int i = directives.size() - 1; i >= 0; --i) {
+      Executor directive = directives.get(i);
+      Lineage lineage = lineage(directive);
+      if (lineage != null && isRemovable(directive, lineage) && usage.isUnused(lineage)) {
+        directive.destroy();
+        continue;
+      }
+      if (directive instanceof JsParser) {
+        ((JsParser) directive).project(usage.used == null ? null : new HashSet<>(usage.used));
+      }
+      usage.visit(directive, lineage);
+      optimized.addFirst(directive);
+    }
+    return new ArrayList<>(optimized);
+  }
+
+  /**
+   * Computes the columns of the input rows that are used by the directives or output by the recipe.
+   *
+   * @param directives of the recipe, in order of execution.
+   * @param outputs names of the columns output by the recipe.
+   * @return names of the columns used in lower case, null if any column could be used.
+   */
+  @Nullable
+  static Set<String> inputs(List<Executor> directives, Collection<String> outputs) {
+    Usage usage = new Usage(outputs);
+    for (int i = directives.size() - 1; i >= 0; --i) {
+      Executor directive = directives.get(i);
+      usage.visit(directive, lineage(directive));
+    }
+    return usage.used;
+  }
+
+  /**
+   * Directives that can be removed are the ones transforming values without filtering rows,
+   * that is column directives and directives that only add columns.
+   */
+  private static boolean isRemovable(Executor directive, Lineage lineage) {
+    if (lineage.writes.isEmpty() || lineage.structural || isFilter(directive)) {
+      return false;
+    }
+    return directive instanceof ColumnDirective || lineage.overwrites.containsAll(lineage.writes);
+  }
+
+  private static boolean isFilter(Executor directive) {
+    return directive instanceof RecordConditionFilter || directive instanceof RecordRegexFilter;
+  }
+
+  private static List<String> dropped(Drop drop) {
+    List<String> columns = new ArrayList<>();
+    Iterator<Mutation> iterator = drop.lineage().iterator();
+    while (iterator.hasNext()) {
+      columns.add(iterator.next().column());
+    }
+    return columns;
+  }
+
+  /**
+   * @return lineage of the directive, null if the directive doesn't describe the columns it uses.
+   */
+  @Nullable
+  private static Lineage lineage(Executor directive) {
+    Lineage lineage = new Lineage();
+    if (directive instanceof ColumnDirective) {
+      String column = fold(((ColumnDirective) directive).getColumn());
+      lineage.reads.add(column);
+      lineage.writes.add(column);
+      return lineage;
+    }
+    if (!(directive instanceof Mutator)) {
+      return null;
+    }
+
+    Iterator<Mutation> iterator = ((Mutator) directive).lineage().iterator();
+    while (iterator.hasNext()) {
+      Mutation mutation = iterator.next();
+      String column = fold(mutation.column());
+      switch (mutation.type()) {
+        case READ:
+          lineage.reads.add(column);
+          break;
+        case ADD:
+          lineage.writes.add(column);
+          lineage.overwrites.add(column);
+          break;
+        case MODIFY:
+          lineage.reads.add(column);
+          lineage.writes.add(column);
+          break;
+        case DROP:
+          lineage.writes.add(column);
+          lineage.overwrites.add(column);
+          lineage.drops.add(column);
+          lineage.structural = true;
+          break;
+        case RENAME:
+          lineage.reads.add(column);
+          lineage.writes.add(column);
+          lineage.structural = true;
+          break;
+        default:
+          return null;
+      }
+    }
+    return lineage;
+  }
+
+  private static boolean intersects(Set<String> left, Set<String> right) {
+    for (String column : left) {
+      if (right.contains(column)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * <code>keep</code> matches the names of the columns exactly, while the other directives ignore
+   * their case. Keeps are not combined when they name the same column with different cases.
+   *
+   * @return true if a column of left has the same name as a column of right but for the case.
+   */
+  private static boolean differInCase(Set<String> left, Set<String> right) {
+    Set<String> folded = fold(right);
+    for (String column : left) {
+      if (!right.contains(column) && folded.contains(fold(column))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Set<String> fold(Collection<String> columns) {
+    Set<String> folded = new HashSet<>();
+    for (String column : columns) {
+      folded.add(fold(column));
+    }
+    return folded;
+  }
+
+  // Columns are looked up in rows ignoring the case.
+  private static String fold(String column) {
+    return column.toLowerCase();
+  }
+
+  /**
+   * Columns used by the directives following the directive being visited, the directives
+   * being visited from the last one.
+   */
+  private static final class Usage {
+    // When all the columns are output, their order matters. A column added again later is still
+    // used, as the first directive adding it sets its position.
+    private final boolean ordered;
+    // Columns used, when null all the columns are used but for the columns in unused.
+    private Set<String> used;
+    private final Set<String> unused = new HashSet<>();
+
+    private Usage(@Nullable Collection<String> outputs) {
+      this.ordered = outputs == null;
+      this.used = outputs == null ? null : fold(outputs);
+    }
+
+    /**
+     * @return true if none of the columns written are used.
+     */
+    private boolean isUnused(Lineage lineage) {
+      return used == null ? unused.containsAll(lineage.writes) : !intersects(lineage.writes, used);
+    }
+
+    /**
+     * Updates the columns used with the columns used by the directive.
+     *
+     * @param directive being visited.
+     * @param lineage of the directive, null if unknown.
+     */
+    private void visit(Executor directive, @Nullable Lineage lineage) {
+      if (directive instanceof Keep) {
+        Set<String> kept = fold(((Keep) directive).getColumns());
+        if (used == null) {
+          used = kept;
+        } else {
+          used.retainAll(kept);
+        }
+        return;
+      }
+
+      if (lineage == null) {
+        used = null;
+        unused.clear();
+        return;
+      }
+
+      Set<String> overwrites = ordered ? lineage.drops : lineage.overwrites;
+      if (used == null) {
+        unused.addAll(overwrites);
+        unused.removeAll(lineage.reads);
+      } else {
+        used.removeAll(overwrites);
+        used.addAll(lineage.reads);
+      }
+    }
+  }
+
+  /**
+   * Columns used by a directive.
+   */
+  private static final class Lineage {
+    // Columns whose values are read.
+    private final Set<String> reads = new HashSet<>();
+    // Columns added, modified, dropped or renamed.
+    private final Set<String> writes = new HashSet<>();
+    // Columns written without their previous values being read.
+    private final Set<String> overwrites = new HashSet<>();
+    // Columns dropped.
+    private final Set<String> drops = new HashSet<>();
+    // True if columns are dropped or renamed.
+    private boolean structural;
+  }
+}
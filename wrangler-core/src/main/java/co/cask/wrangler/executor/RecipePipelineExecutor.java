@@ -18,6 +18,9 @@ package co.cask.wrangler.executor;
 
 import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.schema.Schema;
+import co.cask.directives.aggregates.IncrementTransientVariable;
+import co.cask.directives.aggregates.SetTransientVariable;
+import co.cask.directives.row.SendToErrorAndContinue;
 import co.cask.wrangler.api.DirectiveExecutionException;
 import co.cask.wrangler.api.DirectiveLoadException;
 import co.cask.wrangler.api.DirectiveNotFoundException;
@@ -31,15 +34,24 @@ import co.cask.wrangler.api.RecipeParser;
 import co.cask.wrangler.api.RecipePipeline;
 import co.cask.wrangler.api.ReportErrorAndProceed;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.RowBatch;
 import co.cask.wrangler.api.TransientVariableScope;
+import co.cask.wrangler.api.VectorizedDirective;
 import co.cask.wrangler.utils.RecordConvertor;
 import co.cask.wrangler.utils.RecordConvertorException;
 import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * The class <code>RecipePipelineExecutor</code> compiles the recipe and executes
@@ -51,10 +63,64 @@ public final class RecipePipelineExecutor implements RecipePipeline<Row, Structu
   private List<Executor> directives;
   private final ErrorRecordCollector collector = new ErrorRecordCollector();
   private RecordConvertor convertor = new RecordConvertor();
+  private final boolean batch;
+  // True if directives of the recipe set transient variables, which are scoped to a row.
+  private boolean transients;
+  // True for the directives raising errors for a row, executed on the rows of each input row in batches.
+  private boolean[] rowErrors;
+  private final Collection<String> outputs;
+  private final boolean optimize;
+  private Set<String> inputs;
+
+  public RecipePipelineExecutor() {
+    this(false);
+  }
+
+  /**
+   * Creates a pipeline executor.
+   *
+   * @param batch true to execute each directive once on the whole input, false to execute
+   *              all the directives record by record. Recipes with directives setting
+   *              transient variables are always executed record by record.
+   */
+  public RecipePipelineExecutor(boolean batch) {
+    this(batch, null);
+  }
+
+  /**
+   * Creates a pipeline executor for a recipe whose output is restricted to some columns.
+   *
+   * @param batch true to execute each directive once on the whole input, false to execute
+   *              all the directives record by record.
+   * @param outputs names of the columns output, null if all the columns are output.
+   */
+  public RecipePipelineExecutor(boolean batch, @Nullable Collection<String> outputs) {
+    this(batch, outputs, false);
+  }
+
+  /**
+   * Creates a pipeline executor for a recipe whose output is restricted to some columns, optionally
+   * rewriting the recipe. When optimized, filters are executed as early as possible and directives
+   * whose results are not used for the columns output are not executed, rows then don't raise the
+   * errors these directives would have raised.
+   *
+   * @param batch true to execute each directive once on the whole input, false to execute
+   *              all the directives record by record.
+   * @param outputs names of the columns output, null if all the columns are output.
+   * @param optimize true to optimize the recipe based on the columns used by the directives.
+   */
+  public RecipePipelineExecutor(boolean batch, @Nullable Collection<String> outputs, boolean optimize) {
+    this.batch = batch;
+    this.outputs = outputs;
+    this.optimize = optimize;
+  }
 
   /**
    * Configures the pipeline based on the directives. It parses the recipe,
-   * converting it into executable directives.
+   * converting it into executable directives. If requested, the directives are optimized based
+   * on the columns they use. When executed record by record, consecutive directives transforming
+   * the same column are fused to be executed in a single pass over the rows, batches execute
+   * them column by column instead.
    *
    * @param parser Wrangle directives parser.
    */
@@ -62,7 +128,14 @@ public final class RecipePipelineExecutor implements RecipePipeline<Row, Structu
   public void initialize(RecipeParser parser, ExecutorContext context) throws RecipeException {
     this.context = context;
     try {
-      this.directives = parser.parse();
+      List<Executor> executors = parser.parse();
+      if (optimize) {
+        executors = RecipeOptimizer.optimize(executors, outputs);
+      }
+      this.inputs = outputs == null ? null : RecipeOptimizer.inputs(executors, outputs);
+      this.transients = setsTransientVariables(executors);
+      this.directives = batch && !transients ? executors : FusedColumnRun.fuse(executors);
+      this.rowErrors = raisesRowErrors(directives);
     } catch (DirectiveParseException e) {
       throw new RecipeException(e.getMessage());
     } catch (DirectiveNotFoundException | DirectiveLoadException e) {
@@ -70,6 +143,48 @@ public final class RecipePipelineExecutor implements RecipePipeline<Row, Structu
     }
   }
 
+  /**
+   * Local transient variables are scoped to a row, each row needs to go through all the
+   * directives before the next row.
+   */
+  private static boolean setsTransientVariables(List<Executor> directives) {
+    for (Executor directive : directives) {
+      if (directive instanceof SetTransientVariable || directive instanceof IncrementTransientVariable
+        || directive instanceof SendToErrorAndContinue) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the columns of the input rows used by the recipe to produce the columns output.
+   * Other columns of the input rows don't need to be loaded. Available once initialized.
+   *
+   * @return names of the columns used in lower case, null if all the columns could be used.
+   */
+  @Nullable
+  public Set<String> getInputs() {
+    return inputs;
+  }
+
+  /**
+   * Returns true if lists of rows are executed as batches. Recipes setting transient variables
+   * are executed record by record even when created for batches. Available once initialized.
+   *
+   * @return true if each directive is executed once on all the rows of a list.
+   */
+  public boolean isBatched() {
+    return batch && !transients;
+  }
+
+  /**
+   * @return directives executed, available once initialized.
+   */
+  List<Executor> getDirectives() {
+    return directives;
+  }
+
   /**
    * Invokes each directives destroy method to perform any cleanup
    * required by each individual directive.
@@ -114,42 +229,192 @@ public final class RecipePipelineExecutor implements RecipePipeline<Row, Structu
    */
   @Override
   public List<Row> execute(List<Row> rows) throws RecipeException {
-    List<String> messages = new ArrayList<>();
-    List<Row> results = Lists.newArrayList();
+    collector.reset();
     try {
-      int i = 0;
-      collector.reset();
-      while (i < rows.size()) {
-        messages.clear();
-        // Resets the scope of local variable.
-        if (context != null) {
-          context.getTransientStore().reset(TransientVariableScope.LOCAL);
+      if (batch && !transients) {
+        return executeBatch(rows);
+      }
+      List<Row> results = Lists.newArrayList();
+      for (Row row : rows) {
+        executeRecord(row, results);
+      }
+      return results;
+    } catch (DirectiveExecutionException e) {
+      throw new RecipeException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Executes the pipeline lazily on the input. Rows are pulled from the input one at a time
+   * and run through all the directives only when the returned iterator is advanced, so at
+   * any point only the rows generated from a single input row are held in memory.
+   *
+   * <p>Rows that error are available through {@link #errors()} as the iterator is consumed.
+   * Issues executing the directives are thrown as {@link IllegalStateException} with the
+   * {@link RecipeException} as the cause.</p>
+   *
+   * @param rows Iterator over the input records.
+   * @return Iterator over the records output by the recipe.
+   */
+  @Override
+  public Iterator<Row> execute(Iterator<Row> rows) {
+    collector.reset();
+    return new RowIterator(rows);
+  }
+
+  /**
+   * Executes the directives on the whole batch, each directive being executed once on all the rows
+   * output by the previous directive before the next directive runs. {@link VectorizedDirective}s
+   * are executed on the columns of the batch, filters among them deselect rows from the batch
+   * instead of copying the rows kept.
+   *
+   * <p>A directive raising errors for some rows stops at the first row in error, losing its output
+   * for the other rows. Directives declaring row errors are hence executed on the rows generated
+   * from each input row in turn, the rows they are executed on a record at a time. Each row holds
+   * the index of the input row it was generated from, when a directive sends a row to error, only
+   * the rows generated from the same input row are removed from the batch, the error carrying the
+   * errors reported for the input row so far. Errors are collected in the order of the input
+   * rows.</p>
+   *
+   * @param rows to be executed as a batch.
+   * @return rows output by the last directive in the recipe.
+   */
+  private List<Row> executeBatch(List<Row> rows) throws DirectiveExecutionException {
+    for (int i = 0; i < rows.size(); ++i) {
+      rows.get(i).setOrigin(i);
+    }
+    // Errors reported and errors raised, by index of input row.
+    StringBuilder[] messages = new StringBuilder[rows.size()];
+    ErrorRecord[] errors = new ErrorRecord[rows.size()];
+
+    List<Row> current = rows;
+    // Consecutive vectorized directives share the columnar view of the rows.
+    RowBatch batch = null;
+    for (int i = 0; i < directives.size() && !current.isEmpty(); ++i) {
+      Executor<List<Row>, List<Row>> directive = directives.get(i);
+      if (directive instanceof VectorizedDirective) {
+        if (batch == null) {
+          batch = new RowBatch(current);
+        }
+        ((VectorizedDirective) directive).execute(batch, context);
+        if (batch.selection().length < 1) {
+          current = new ArrayList<>();
+          batch = null;
+        }
+        continue;
+      }
+      if (batch != null) {
+        current = batch.toRows();
+        batch = null;
+      }
+      if (!rowErrors[i]) {
+        current = directive.execute(current, context);
+        continue;
+      }
+
+      List<Row> next = new ArrayList<>(current.size());
+      int origin = 0;
+      for (int start = 0, end; start < current.size(); start = end) {
+        origin = origin(current.get(start), origin);
+        end = start + 1;
+        while (end < current.size() && origin(current.get(end), origin) == origin) {
+          end++;
         }
-        List<Row> newRows = rows.subList(i, i+1);
+        List<Row> group = current.subList(start, end);
         try {
-          for (Executor<List<Row>, List<Row>> directive : directives) {
-            try {
-              newRows = directive.execute(newRows, context);
-              if (newRows.size() < 1) {
-                break;
-              }
-            } catch (ReportErrorAndProceed e) {
-              messages.add(String.format("%d:%s", e.getCode(), e.getMessage()));
-            }
-          }
-          if(newRows.size() > 0) {
-            results.addAll(newRows);
-          }
+          next.addAll(directive.execute(group, context));
+        } catch (ReportErrorAndProceed e) {
+          messages[origin] = messages[origin] == null ? new StringBuilder() : messages[origin].append(',');
+          messages[origin].append(e.getCode()).append(':').append(e.getMessage());
+          next.addAll(group);
         } catch (ErrorRowException e) {
-          messages.add(String.format("%s", e.getMessage()));
-          collector.add(new ErrorRecord(newRows.get(0), String.join(",", messages), e.getCode()));
+          String message = messages[origin] == null ?
+            e.getMessage() : messages[origin].append(',').append(e.getMessage()).toString();
+          errors[origin] = new ErrorRecord(group.get(0), message, e.getCode());
         }
-        i++;
       }
-    } catch (DirectiveExecutionException e) {
-      throw new RecipeException(e.getMessage(), e);
+      current = next;
+    }
+    if (batch != null) {
+      current = batch.toRows();
+    }
+
+    for (ErrorRecord error : errors) {
+      if (error != null) {
+        collector.add(error);
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Rows created by directives rather than copied from a row have no origin, they're generated
+   * from the same input row as the row preceding them.
+   *
+   * @return index of the input row the row was generated from.
+   */
+  private static int origin(Row row, int previous) {
+    if (row.getOrigin() < 0) {
+      row.setOrigin(previous);
+    }
+    return row.getOrigin();
+  }
+
+  /**
+   * Directives that can't raise errors for a row are executed once on all the rows of a batch.
+   *
+   * @return for each directive, true if it declares raising errors for a row.
+   */
+  private static boolean[] raisesRowErrors(List<Executor> directives) {
+    boolean[] raises = new boolean[directives.size()];
+    for (int i = 0; i < raises.length; ++i) {
+      try {
+        Method execute = directives.get(i).getClass().getMethod("execute", List.class, ExecutorContext.class);
+        for (Class<?> type : execute.getExceptionTypes()) {
+          raises[i] |= type.isAssignableFrom(ErrorRowException.class)
+            || type.isAssignableFrom(ReportErrorAndProceed.class);
+        }
+      } catch (NoSuchMethodException e) {
+        raises[i] = true;
+      }
+    }
+    return raises;
+  }
+
+  /**
+   * Executes all the directives on a single row, adding the rows generated to results. If the
+   * row errors, it's added to the error collector.
+   *
+   * @param row to be executed.
+   * @param results to which the output rows are added.
+   */
+  private void executeRecord(Row row, List<Row> results) throws DirectiveExecutionException {
+    // Messages of the errors reported, allocated only when a directive reports an error.
+    StringBuilder messages = null;
+    // Resets the scope of local variable.
+    if (context != null) {
+      context.getTransientStore().reset(TransientVariableScope.LOCAL);
+    }
+    List<Row> newRows = Lists.newArrayList(row);
+    try {
+      for (Executor<List<Row>, List<Row>> directive : directives) {
+        try {
+          newRows = directive.execute(newRows, context);
+          if (newRows.size() < 1) {
+            break;
+          }
+        } catch (ReportErrorAndProceed e) {
+          messages = messages == null ? new StringBuilder() : messages.append(',');
+          messages.append(e.getCode()).append(':').append(e.getMessage());
+        }
+      }
+      if(newRows.size() > 0) {
+        results.addAll(newRows);
+      }
+    } catch (ErrorRowException e) {
+      String message = messages == null ? e.getMessage() : messages.append(',').append(e.getMessage()).toString();
+      collector.add(new ErrorRecord(newRows.get(0), message, e.getCode()));
     }
-    return results;
   }
 
   /**
@@ -161,4 +426,36 @@ public final class RecipePipelineExecutor implements RecipePipeline<Row, Structu
   public List<ErrorRecord> errors() {
     return collector.get();
   }
+
+  /**
+   * Iterator that pulls rows from the input through the directives as it's consumed.
+   */
+  private final class RowIterator implements Iterator<Row> {
+    private final Iterator<Row> input;
+    private final LinkedList<Row> buffer = new LinkedList<>();
+
+    private RowIterator(Iterator<Row> input) {
+      this.input = input;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (buffer.isEmpty() && input.hasNext()) {
+        try {
+          executeRecord(input.next(), buffer);
+        } catch (DirectiveExecutionException e) {
+          throw new IllegalStateException(e.getMessage(), new RecipeException(e.getMessage(), e));
+        }
+      }
+      return !buffer.isEmpty();
+    }
+
+    @Override
+    public Row next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException("No more rows output by the recipe.");
+      }
+      return buffer.removeFirst();
+    }
+  }
 }
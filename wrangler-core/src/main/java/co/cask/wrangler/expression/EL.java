@@ -25,6 +25,8 @@ import co.cask.functions.Global;
 import co.cask.functions.JSON;
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.jexl3.JexlBuilder;
 import org.apache.commons.jexl3.JexlEngine;
 import org.apache.commons.jexl3.JexlException;
@@ -36,50 +38,66 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
 
 /**
  * This class <code>EL</code> is a Expression Language Handler.
+ *
+ * <p>The JEXL engine is shared by all the instances registering the same functions, and so are
+ * the scripts compiled by the engine, which are cached by expression.</p>
+ *
+ * <p>Expressions are also compiled by {@link ELCompiler} when they only use the constructs it
+ * supports, and are then evaluated without being interpreted by JEXL. The compiled expressions
+ * report the errors with the messages JEXL reports. A call of a deterministic function repeated in
+ * an expression is evaluated once per evaluation. A call repeated in the expressions of several
+ * directives, e.g. <code>date:DAYS_BETWEEN(start, end)</code> in several <code>set-column</code>,
+ * is evaluated once per row as long as its arguments are the same: its result is kept on the row
+ * by the first directive and reused by the others.</p>
  */
 public final class EL {
   private static final Logger LOG = LoggerFactory.getLogger(EL.class);
-  private Set<String> variables = new HashSet<>();
-  private final JexlEngine engine;
+
+  // Maximum number of compiled scripts cached by an engine.
+  private static final int MAX_SCRIPTS = 4096;
+
+  // Maximum number of deterministic calls of the compiled scripts tracked by an engine.
+  private static final int MAX_CALLS = 4 * MAX_SCRIPTS;
+
+  // Engines shared in the process, keyed by the functions registered.
+  private static final ConcurrentMap<Map<String, Object>, Engine> ENGINES = new ConcurrentHashMap<>();
+
+  private Set<String> variables = Collections.emptySet();
+  private final Engine engine;
   private JexlScript script = null;
+  private ELNode node = null;
 
   public EL(ELRegistration registration) {
-    engine = new JexlBuilder()
-      .namespaces(registration.functions())
-      .silent(false)
-      .cache(1024)
-      .strict(true)
-      .logger(new NullLogger())
-      .create();
+    engine = ENGINES.computeIfAbsent(registration.functions(), Engine::new);
   }
 
   public void compile(String expression) throws ELException {
-    variables.clear();
-    try {
-      script = engine.createScript(expression);
-      Set<List<String>> varSet = script.getVariables();
-      for (List<String> vars : varSet) {
-        variables.add(Joiner.on(".").join(vars));
-      }
-    } catch (JexlException e) {
-      if (e.getCause() != null) {
-        throw new ELException(e.getCause().getMessage());
-      } else {
-        throw new ELException(e.getMessage());
-      }
-    } catch (Exception e) {
-      throw new ELException(e.getMessage());
+    variables = Collections.emptySet();
+    Compiled compiled = engine.scripts.getIfPresent(expression);
+    if (compiled == null) {
+      compiled = engine.compile(expression);
+      engine.scripts.put(expression, compiled);
     }
+    script = compiled.script;
+    node = compiled.node;
+    variables = compiled.variables;
   }
 
+  /**
+   * @return unmodifiable set of the variables used by the expression compiled.
+   */
   public Set<String> variables() {
     return variables;
   }
@@ -93,9 +111,12 @@ public final class EL {
           }
         }
       }
-      Object value = script.execute(context);
+      Object value = node == null ? script.execute(context) : node.evaluate(context);
       ELResult variable = new ELResult(value);
       return variable;
+    } catch (ELException e) {
+      // Raised by the compiled expressions, as JEXL reports them once unwrapped.
+      throw e;
     } catch (JexlException e) {
       // Generally JexlException wraps the original exception, so it's good idea
       // to check if there is a inner exception, if there is wrap it in 'DirectiveExecutionException'
@@ -146,7 +167,66 @@ public final class EL {
 
   }
 
-  private final class NullLogger implements Log {
+  /**
+   * JEXL engine and the scripts it compiled. Engines and scripts are thread safe.
+   */
+  private static final class Engine {
+    private final JexlEngine jexl;
+    private final Map<String, Object> functions;
+    private final Cache<String, Compiled> scripts = CacheBuilder.newBuilder().maximumSize(MAX_SCRIPTS).build();
+    // Deterministic calls of the scripts, shared by the scripts evaluated on the same rows.
+    private final Cache<String, ELNode.Shared> calls = CacheBuilder.newBuilder().maximumSize(MAX_CALLS).build();
+
+    private Engine(Map<String, Object> functions) {
+      this.functions = functions;
+      jexl = new JexlBuilder()
+        .namespaces(functions)
+        .silent(false)
+        .cache(1024)
+        .strict(true)
+        .logger(new NullLogger())
+        .create();
+    }
+
+    private Compiled compile(String expression) throws ELException {
+      try {
+        JexlScript script = jexl.createScript(expression);
+        Set<String> variables = new HashSet<>();
+        Set<List<String>> varSet = script.getVariables();
+        for (List<String> vars : varSet) {
+          variables.add(Joiner.on(".").join(vars));
+        }
+        ELNode node = ELCompiler.compile(expression, functions, jexl.getArithmetic(), calls.asMap());
+        return new Compiled(script, node, Collections.unmodifiableSet(variables));
+      } catch (JexlException e) {
+        if (e.getCause() != null) {
+          throw new ELException(e.getCause().getMessage());
+        } else {
+          throw new ELException(e.getMessage());
+        }
+      } catch (Exception e) {
+        throw new ELException(e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Script compiled from an expression along with the variables it uses.
+   */
+  private static final class Compiled {
+    private final JexlScript script;
+    // Expression compiled, null if the expression can only be interpreted.
+    private final ELNode node;
+    private final Set<String> variables;
+
+    private Compiled(JexlScript script, @Nullable ELNode node, Set<String> variables) {
+      this.script = script;
+      this.node = node;
+      this.variables = variables;
+    }
+  }
+
+  private static final class NullLogger implements Log {
     @Override
     public void debug(Object o) {
 
@@ -0,0 +1,486 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.wrangler.expression;
+
+import org.apache.commons.jexl3.JexlArithmetic;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+
+/**
+ * Compiles expressions into trees of {@link ELNode}, evaluated without interpreting the JEXL syntax tree
+ * and calling functions through method handles.
+ *
+ * <p>Only a subset of the JEXL syntax is compiled: integer, string, boolean and null literals,
+ * variables, arithmetic, comparison and logical operators, the conditional operator and calls of
+ * the static methods of the function classes registered. Expressions using any other construct
+ * are not compiled and are interpreted by JEXL.</p>
+ *
+ * <p>Operations over literals are evaluated once when compiled. A call of a deterministic function
+ * repeated in an expression is evaluated once each time the expression is evaluated. A call
+ * compiled by several expressions of an engine shares its results between them on each row they
+ * are evaluated on, see {@link ELNode.Shared}.</p>
+ */
+final class ELCompiler {
+  // Words reserved by JEXL, that are either operators or statements not compiled.
+  private static final Set<String> RESERVED = new HashSet<>(Arrays.asList(
+    "or", "and", "eq", "ne", "lt", "gt", "le", "ge", "div", "mod", "not", "empty", "size", "new", "var",
+    "if", "else", "for", "while", "do", "return", "function", "NaN"
+  ));
+
+  private final String expression;
+  private final Map<String, Object> functions;
+  private final JexlArithmetic arithmetic;
+  // Calls of the expression, keyed by their string representation.
+  private final Map<String, ELNode> calls = new HashMap<>();
+  // Deterministic calls of the expressions of the engine, keyed by their string representation.
+  private final ConcurrentMap<String, ELNode.Shared> shared;
+  // Deterministic calls of the expression, shared with the other expressions of the engine.
+  private final List<ELNode.Shared> compiled = new ArrayList<>();
+  // Number of calls whose results are reused in an evaluation.
+  private int slots;
+  private int pos;
+
+  private ELCompiler(String expression, Map<String, Object> functions, JexlArithmetic arithmetic,
+                     ConcurrentMap<String, ELNode.Shared> shared) {
+    this.expression = expression;
+    this.functions = functions;
+    this.arithmetic = arithmetic;
+    this.shared = shared;
+  }
+
+  /**
+   * Compiles an expression.
+   *
+   * @param expression to be compiled.
+   * @param functions registered, keyed by namespace.
+   * @param arithmetic of the engine interpreting the expression.
+   * @return root of the expression compiled, null if the expression can't be compiled.
+   */
+  @Nullable
+  static ELNode compile(String expression, Map<String, Object> functions, JexlArithmetic arithmetic) {
+    return compile(expression, functions, arithmetic, new ConcurrentHashMap<>());
+  }
+
+  /**
+   * Compiles an expression of an engine.
+   *
+   * @param expression to be compiled.
+   * @param functions registered, keyed by namespace.
+   * @param arithmetic of the engine interpreting the expression.
+   * @param shared deterministic calls of the expressions compiled by the engine, keyed by their
+   *               string representation, updated with the calls of the expression.
+   * @return root of the expression compiled, null if the expression can't be compiled.
+   */
+  @Nullable
+  static ELNode compile(String expression, Map<String, Object> functions, JexlArithmetic arithmetic,
+                        ConcurrentMap<String, ELNode.Shared> shared) {
+    ELCompiler compiler = new ELCompiler(expression, functions, arithmetic, shared);
+    ELNode node = compiler.ternary();
+    compiler.skipSpaces();
+    if (node == null || compiler.pos != expression.length()) {
+      return null;
+    }
+    for (ELNode.Shared call : compiler.compiled) {
+      call.compiled();
+    }
+    return compiler.slots == 0 ? node : new ELNode.Root(node, compiler.slots);
+  }
+
+  // The methods parsing the expression return null when the construct can't be compiled. Operators
+  // that are not compiled are not consumed, and the expression is not compiled as not fully read.
+
+  @Nullable
+  private ELNode ternary() {
+    ELNode condition = or();
+    if (condition == null || !accept("?")) {
+      return condition;
+    }
+    ELNode then = ternary();
+    if (then == null || !accept(":")) {
+      return null;
+    }
+    ELNode otherwise = ternary();
+    if (otherwise == null) {
+      return null;
+    }
+    if (condition.isLiteral()) {
+      try {
+        return arithmetic.toBoolean(condition.evaluate(null)) ? then : otherwise;
+      } catch (ELException | RuntimeException e) {
+        // Condition is evaluated when executed, reporting the error.
+      }
+    }
+    return new ELNode.Ternary(condition, then, otherwise, arithmetic);
+  }
+
+  @Nullable
+  private ELNode or() {
+    ELNode node = and();
+    while (node != null && accept("||")) {
+      ELNode right = and();
+      node = right == null ? null : fold(new ELNode.Logical(false, node, right, arithmetic), node, right);
+    }
+    return node;
+  }
+
+  @Nullable
+  private ELNode and() {
+    ELNode node = equality();
+    while (node != null && accept("&&")) {
+      ELNode right = equality();
+      node = right == null ? null : fold(new ELNode.Logical(true, node, right, arithmetic), node, right);
+    }
+    return node;
+  }
+
+  @Nullable
+  private ELNode equality() {
+    ELNode node = relational();
+    while (node != null) {
+      String operator = accept("==") ? "==" : accept("!=") ? "!=" : null;
+      if (operator == null) {
+        return node;
+      }
+      ELNode right = relational();
+      node = right == null ? null : fold(new ELNode.Binary(operator, node, right, arithmetic), node, right);
+    }
+    return null;
+  }
+
+  @Nullable
+  private ELNode relational() {
+    ELNode node = additive();
+    while (node != null) {
+      String operator = accept("<=") ? "<=" : accept(">=") ? ">=" : accept("<") ? "<" : accept(">") ? ">" : null;
+      if (operator == null) {
+        return node;
+      }
+      ELNode right = additive();
+      node = right == null ? null : fold(new ELNode.Binary(operator, node, right, arithmetic), node, right);
+    }
+    return null;
+  }
+
+  @Nullable
+  private ELNode additive() {
+    ELNode node = multiplicative();
+    while (node != null) {
+      String operator = accept("+") ? "+" : accept("-") ? "-" : null;
+      if (operator == null) {
+        return node;
+      }
+      ELNode right = multiplicative();
+      node = right == null ? null : fold(new ELNode.Binary(operator, node, right, arithmetic), node, right);
+    }
+    return null;
+  }
+
+  @Nullable
+  private ELNode multiplicative() {
+    ELNode node = unary();
+    while (node != null) {
+      String operator = accept("*") ? "*" : accept("/") ? "/" : accept("%") ? "%" : null;
+      if (operator == null) {
+        return node;
+      }
+      ELNode right = unary();
+      node = right == null ? null : fold(new ELNode.Binary(operator, node, right, arithmetic), node, right);
+    }
+    return null;
+  }
+
+  @Nullable
+  private ELNode unary() {
+    char operator = accept("!") ? '!' : accept("-") ? '-' : 0;
+    if (operator == 0) {
+      return primary();
+    }
+    ELNode operand = unary();
+    return operand == null ? null : fold(new ELNode.Unary(operator, operand, arithmetic), operand);
+  }
+
+  @Nullable
+  private ELNode primary() {
+    skipSpaces();
+    if (pos >= expression.length()) {
+      return null;
+    }
+    char c = expression.charAt(pos);
+    if (c == '(') {
+      pos++;
+      ELNode node = ternary();
+      return node != null && accept(")") ? node : null;
+    }
+    if (c == '\'' || c == '"') {
+      String value = string(c);
+      return value == null ? null : new ELNode.Literal(value);
+    }
+    if (Character.isDigit(c)) {
+      Object value = number();
+      return value == null ? null : new ELNode.Literal(value);
+    }
+    if (!Character.isJavaIdentifierStart(c)) {
+      return null;
+    }
+
+    String identifier = identifier();
+    if (identifier == null) {
+      return null;
+    }
+    switch (identifier) {
+      case "true":
+        return new ELNode.Literal(Boolean.TRUE);
+      case "false":
+        return new ELNode.Literal(Boolean.FALSE);
+      case "null":
+        return new ELNode.Literal(null);
+      default:
+        break;
+    }
+
+    // Namespace of the function, the colon immediately following the namespace.
+    String namespace = null;
+    if (pos < expression.length() && expression.charAt(pos) == ':') {
+      pos++;
+      if (pos >= expression.length() || !Character.isJavaIdentifierStart(expression.charAt(pos))) {
+        return null;
+      }
+      namespace = identifier;
+      identifier = identifier();
+      if (identifier == null) {
+        return null;
+      }
+    }
+    skipSpaces();
+    if (pos < expression.length() && expression.charAt(pos) == '(') {
+      pos++;
+      return call(namespace, identifier);
+    }
+    if (namespace != null || isAmbiguous()) {
+      return null;
+    }
+    return new ELNode.Variable(identifier);
+  }
+
+  @Nullable
+  private ELNode call(@Nullable String namespace, String name) {
+    List<ELNode> arguments = new ArrayList<>();
+    if (!accept(")")) {
+      do {
+        ELNode argument = ternary();
+        if (argument == null) {
+          return null;
+        }
+        arguments.add(argument);
+      } while (accept(","));
+      if (!accept(")")) {
+        return null;
+      }
+    }
+    Object functions = this.functions.get(namespace);
+    if (!(functions instanceof Class)) {
+      return null;
+    }
+    Method[] candidates = ELNode.Call.candidates((Class<?>) functions, name, arguments.size());
+    if (candidates.length == 0) {
+      return null;
+    }
+    ELNode.Call call = new ELNode.Call(name, candidates, arguments.toArray(new ELNode[arguments.size()]));
+    if (call.isDeterministic() && call.hasLiteralArguments()) {
+      return fold(call);
+    }
+    // The same call repeated in the expression shares the slot of its result.
+    String key = call.toString();
+    ELNode repeated = calls.get(key);
+    if (repeated != null) {
+      return repeated;
+    }
+    ELNode node = call;
+    if (call.isDeterministic()) {
+      ELNode.Shared sharedCall = shared.computeIfAbsent(key, ELNode.Shared::new);
+      compiled.add(sharedCall);
+      node = call.withSlot(slots++, sharedCall);
+    }
+    calls.put(key, node);
+    return node;
+  }
+
+  /**
+   * Evaluates a node when all its operands are literals.
+   *
+   * @param node to be evaluated.
+   * @param operands of the node.
+   * @return literal of the value of the node, or the node if it can't be evaluated when compiled.
+   */
+  private static ELNode fold(ELNode node, ELNode... operands) {
+    for (ELNode operand : operands) {
+      if (!operand.isLiteral()) {
+        return node;
+      }
+    }
+    try {
+      Object value = node.evaluate(null);
+      return ELNode.isImmutable(value) ? new ELNode.Literal(value) : node;
+    } catch (ELException | RuntimeException e) {
+      // Errors are raised when the expression is executed.
+      return node;
+    }
+  }
+
+  /**
+   * A variable followed by a colon and a function call, in a namespace or not, could be read as a
+   * call in a namespace.
+   */
+  private boolean isAmbiguous() {
+    int next = pos;
+    if (next >= expression.length() || expression.charAt(next) != ':') {
+      return false;
+    }
+    next++;
+    while (next < expression.length() && Character.isWhitespace(expression.charAt(next))) {
+      next++;
+    }
+    int start = next;
+    while (next < expression.length() && Character.isJavaIdentifierPart(expression.charAt(next))) {
+      next++;
+    }
+    while (next < expression.length() && Character.isWhitespace(expression.charAt(next))) {
+      next++;
+    }
+    return next > start && next < expression.length()
+      && (expression.charAt(next) == '(' || expression.charAt(next) == ':');
+  }
+
+  @Nullable
+  private String identifier() {
+    int start = pos;
+    while (pos < expression.length() && Character.isJavaIdentifierPart(expression.charAt(pos))) {
+      pos++;
+    }
+    String identifier = expression.substring(start, pos);
+    // Antish variables and method calls on values are not compiled.
+    if (RESERVED.contains(identifier) || identifier.contains("$")
+      || (pos < expression.length() && (expression.charAt(pos) == '.' || expression.charAt(pos) == '['))) {
+      return null;
+    }
+    return identifier;
+  }
+
+  /**
+   * Natural numbers are compiled as integer, or as long when too large. Numbers with a
+   * fraction, exponent, suffix, radix or leading zero are not compiled.
+   */
+  @Nullable
+  private Object number() {
+    int start = pos;
+    while (pos < expression.length() && Character.isDigit(expression.charAt(pos))) {
+      pos++;
+    }
+    if (pos < expression.length()
+      && (Character.isJavaIdentifierPart(expression.charAt(pos)) || expression.charAt(pos) == '.')) {
+      return null;
+    }
+    String digits = expression.substring(start, pos);
+    if (digits.length() > 1 && digits.charAt(0) == '0') {
+      return null;
+    }
+    try {
+      return Integer.valueOf(digits);
+    } catch (NumberFormatException e) {
+      try {
+        return Long.valueOf(digits);
+      } catch (NumberFormatException ex) {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Strings without any escape sequence.
+   */
+  @Nullable
+  private String string(char quote) {
+    int end = expression.indexOf(quote, pos + 1);
+    if (end == -1) {
+      return null;
+    }
+    String value = expression.substring(pos + 1, end);
+    if (value.indexOf('\\') != -1) {
+      return null;
+    }
+    pos = end + 1;
+    return value;
+  }
+
+  /**
+   * Consumes the operator if it's next, operators being recognized only when not the start of a
+   * longer operator. Operators that are not compiled are left to be read.
+   */
+  private boolean accept(String operator) {
+    skipSpaces();
+    if (!expression.startsWith(operator, pos)) {
+      return false;
+    }
+    int end = pos + operator.length();
+    char next = end < expression.length() ? expression.charAt(end) : ' ';
+    switch (operator) {
+      case "!":
+        if (next == '=' || next == '~' || next == '^' || next == '$') {
+          return false;
+        }
+        break;
+      case "<":
+      case ">":
+        if (next == '=') {
+          return false;
+        }
+        break;
+      case "?":
+        if (next == ':' || next == '?' || next == '.' || next == '[') {
+          return false;
+        }
+        break;
+      case "==":
+      case "!=":
+        if (next == '=') {
+          return false;
+        }
+        break;
+      default:
+        break;
+    }
+    pos = end;
+    return true;
+  }
+
+  private void skipSpaces() {
+    while (pos < expression.length() && Character.isWhitespace(expression.charAt(pos))) {
+      pos++;
+    }
+  }
+}
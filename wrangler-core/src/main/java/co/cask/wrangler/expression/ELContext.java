@@ -22,6 +22,7 @@ import org.apache.commons.jexl3.JexlContext;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Manages variables which can be referenced in a JEXL expression.
@@ -119,6 +120,21 @@ public class ELContext implements JexlContext {
     return this;
   }
 
+  /**
+   * @return results of the computations made on the row evaluated, null if not evaluating a row.
+   */
+  @Nullable
+  Map<String, Object> computed() {
+    return null;
+  }
+
+  /**
+   * Removes all the variables of the context.
+   */
+  void clear() {
+    values.clear();
+  }
+
   /**
    * Checks if a variable exists in the context.
    *
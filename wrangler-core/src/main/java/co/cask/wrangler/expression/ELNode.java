@@ -0,0 +1,863 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.wrangler.expression;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.functions.DataQuality;
+import co.cask.functions.Dates;
+import co.cask.functions.GeoFences;
+import co.cask.functions.Global;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.jexl3.JexlArithmetic;
+import org.apache.commons.jexl3.JexlContext;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang3.StringEscapeUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+/**
+ * Node of an expression compiled by {@link ELCompiler}.
+ *
+ * <p>Operators are evaluated by the {@link JexlArithmetic} of the engine the expression would
+ * otherwise be interpreted by, so the results are the same. Nodes are immutable and can be
+ * evaluated concurrently. The errors are raised the way JEXL reports them once unwrapped by
+ * {@link EL}: undefined variables, functions not resolved and exceptions thrown by the functions
+ * are raised as {@link ELException} with the message JEXL reports, exceptions raised by the
+ * arithmetic are not wrapped.</p>
+ *
+ * <p>The string representation of a node identifies the computation it performs, nodes with the
+ * same representation compute the same value for the same variables.</p>
+ */
+abstract class ELNode {
+  // Types of the values that can't be modified, safe to be shared between evaluations.
+  private static final Set<Class<?>> IMMUTABLE = new HashSet<>(Arrays.asList(
+    String.class, Integer.class, Long.class, Double.class, Float.class, Short.class, Byte.class,
+    Boolean.class, Character.class, BigInteger.class, BigDecimal.class, LocalDate.class, LocalTime.class,
+    LocalDateTime.class, ZonedDateTime.class, OffsetDateTime.class, Instant.class
+  ));
+
+  /**
+   * Evaluates the node, without reusing the results of the calls.
+   *
+   * @param context holding the variables.
+   * @return value of the node.
+   * @throws ELException if a variable is undefined, the function called can't be resolved or it failed.
+   */
+  final Object evaluate(JexlContext context) throws ELException {
+    return evaluate(context, null);
+  }
+
+  /**
+   * Evaluates the node.
+   *
+   * @param context holding the variables.
+   * @param results of the calls of the evaluation, indexed by slot, null if not reused.
+   * @return value of the node.
+   * @throws ELException if a variable is undefined, the function called can't be resolved or it failed.
+   */
+  abstract Object evaluate(JexlContext context, @Nullable Object[] results) throws ELException;
+
+  /**
+   * @return true if the node is a literal.
+   */
+  boolean isLiteral() {
+    return false;
+  }
+
+  /**
+   * @return true if the node has the same value each time it's evaluated with the same variables.
+   */
+  boolean isDeterministic() {
+    return true;
+  }
+
+  /**
+   * @return true if the value is null or of a type that can't be modified.
+   */
+  static boolean isImmutable(@Nullable Object value) {
+    return value == null || IMMUTABLE.contains(value.getClass());
+  }
+
+  /**
+   * Literal value.
+   */
+  static final class Literal extends ELNode {
+    private final Object value;
+
+    Literal(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Object evaluate(JexlContext context, @Nullable Object[] results) {
+      return value;
+    }
+
+    @Override
+    boolean isLiteral() {
+      return true;
+    }
+
+    @Override
+    public String toString() {
+      if (value instanceof String) {
+        return "'" + ((String) value).replace("\\", "\\\\").replace("'", "\\'") + "'";
+      }
+      return value == null ? "null" : value + ":" + value.getClass().getSimpleName();
+    }
+  }
+
+  /**
+   * Variable looked up in the context.
+   */
+  static final class Variable extends ELNode {
+    private final String name;
+
+    Variable(String name) {
+      this.name = name;
+    }
+
+    @Override
+    Object evaluate(JexlContext context, @Nullable Object[] results) throws ELException {
+      if (!context.has(name)) {
+        throw new ELException("undefined variable " + name);
+      }
+      return context.get(name);
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  /**
+   * Operator applied to a single operand.
+   */
+  static final class Unary extends ELNode {
+    private final char operator;
+    private final ELNode operand;
+    private final JexlArithmetic arithmetic;
+
+    Unary(char operator, ELNode operand, JexlArithmetic arithmetic) {
+      this.operator = operator;
+      this.operand = operand;
+      this.arithmetic = arithmetic;
+    }
+
+    @Override
+    Object evaluate(JexlContext context, @Nullable Object[] results) throws ELException {
+      Object value = operand.evaluate(context, results);
+      return operator == '!' ? !arithmetic.toBoolean(value) : arithmetic.negate(value);
+    }
+
+    @Override
+    boolean isDeterministic() {
+      return operand.isDeterministic();
+    }
+
+    @Override
+    public String toString() {
+      return operator + "(" + operand + ")";
+    }
+  }
+
+  /**
+   * Arithmetic and comparison operators applied to two operands.
+   */
+  static final class Binary extends ELNode {
+    private final String operator;
+    private final ELNode left;
+    private final ELNode right;
+    private final JexlArithmetic arithmetic;
+
+    Binary(String operator, ELNode left, ELNode right, JexlArithmetic arithmetic) {
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+      this.arithmetic = arithmetic;
+    }
+
+    @Override
+    Object evaluate(JexlContext context, @Nullable Object[] results) throws ELException {
+      Object l = left.evaluate(context, results);
+      Object r = right.evaluate(context, results);
+      switch (operator) {
+        case "+":
+          return arithmetic.add(l, r);
+        case "-":
+          return arithmetic.subtract(l, r);
+        case "*":
+          return arithmetic.multiply(l, r);
+        case "/":
+          return arithmetic.divide(l, r);
+        case "%":
+          return arithmetic.mod(l, r);
+        case "==":
+          return arithmetic.equals(l, r);
+        case "!=":
+          return !arithmetic.equals(l, r);
+        case "<":
+          return arithmetic.lessThan(l, r);
+        case "<=":
+          return arithmetic.lessThanOrEqual(l, r);
+        case ">":
+          return arithmetic.greaterThan(l, r);
+        case ">=":
+          return arithmetic.greaterThanOrEqual(l, r);
+        default:
+          throw new IllegalStateException("Unsupported operator " + operator);
+      }
+    }
+
+    @Override
+    boolean isDeterministic() {
+      return left.isDeterministic() && right.isDeterministic();
+    }
+
+    @Override
+    public String toString() {
+      return "(" + left + " " + operator + " " + right + ")";
+    }
+  }
+
+  /**
+   * Logical and/or, the right operand being evaluated only if needed.
+   */
+  static final class Logical extends ELNode {
+    private final boolean and;
+    private final ELNode left;
+    private final ELNode right;
+    private final JexlArithmetic arithmetic;
+
+    Logical(boolean and, ELNode left, ELNode right, JexlArithmetic arithmetic) {
+      this.and = and;
+      this.left = left;
+      this.right = right;
+      this.arithmetic = arithmetic;
+    }
+
+    @Override
+    Object evaluate(JexlContext context, @Nullable Object[] results) throws ELException {
+      boolean value = arithmetic.toBoolean(left.evaluate(context, results));
+      if (value != and) {
+        return value;
+      }
+      return arithmetic.toBoolean(right.evaluate(context, results));
+    }
+
+    @Override
+    boolean isDeterministic() {
+      return left.isDeterministic() && right.isDeterministic();
+    }
+
+    @Override
+    public String toString() {
+      return "(" + left + (and ? " && " : " || ") + right + ")";
+    }
+  }
+
+  /**
+   * Conditional operator.
+   */
+  static final class Ternary extends ELNode {
+    private final ELNode condition;
+    private final ELNode then;
+    private final ELNode otherwise;
+    private final JexlArithmetic arithmetic;
+
+    Ternary(ELNode condition, ELNode then, ELNode otherwise, JexlArithmetic arithmetic) {
+      this.condition = condition;
+      this.then = then;
+      this.otherwise = otherwise;
+      this.arithmetic = arithmetic;
+    }
+
+    @Override
+    Object evaluate(JexlContext context, @Nullable Object[] results) throws ELException {
+      return arithmetic.toBoolean(condition.evaluate(context, results))
+        ? then.evaluate(context, results) : otherwise.evaluate(context, results);
+    }
+
+    @Override
+    boolean isDeterministic() {
+      return condition.isDeterministic() && then.isDeterministic() && otherwise.isDeterministic();
+    }
+
+    @Override
+    public String toString() {
+      return "(" + condition + " ? " + then + " : " + otherwise + ")";
+    }
+  }
+
+  /**
+   * Root of an expression repeating deterministic calls, reusing their results within an evaluation.
+   */
+  static final class Root extends ELNode {
+    private final ELNode node;
+    // Number of calls whose results are reused.
+    private final int slots;
+
+    Root(ELNode node, int slots) {
+      this.node = node;
+      this.slots = slots;
+    }
+
+    @Override
+    Object evaluate(JexlContext context, @Nullable Object[] results) throws ELException {
+      // The results are only reused within an evaluation, as the variables change between them.
+      return node.evaluate(context, new Object[slots]);
+    }
+
+    @Override
+    boolean isDeterministic() {
+      return node.isDeterministic();
+    }
+
+    @Override
+    public String toString() {
+      return node.toString();
+    }
+  }
+
+  /**
+   * Deterministic call compiled by the expressions of an engine, identified by its string
+   * representation. Once the call is compiled by more than one expression, its results are kept on
+   * the rows the expressions are evaluated on, so the directives evaluating the call on the same
+   * row call the function once.
+   */
+  static final class Shared {
+    private final String key;
+    // Number of expressions compiled with the call.
+    private final AtomicInteger expressions = new AtomicInteger();
+
+    Shared(String key) {
+      this.key = key;
+    }
+
+    /**
+     * Counts an expression compiled with the call.
+     */
+    void compiled() {
+      expressions.incrementAndGet();
+    }
+
+    /**
+     * @return true if the call was compiled by more than one expression.
+     */
+    boolean isShared() {
+      return expressions.get() > 1;
+    }
+  }
+
+  /**
+   * Call of a static method of a function class.
+   *
+   * <p>The methods are resolved from the types of the arguments the same way JEXL does, picking
+   * the most specific of the methods the arguments can be converted to. The method resolved is
+   * cached for the types of the arguments of the last call.</p>
+   *
+   * <p>Only the functions listed as deterministic are considered to return the same value for
+   * the same arguments. A call of such a function with deterministic arguments is given a slot,
+   * its result being reused by the evaluation when the call is repeated in the expression, if the
+   * result is an immutable value.</p>
+   */
+  static final class Call extends ELNode {
+    // Largest number of arguments passed to a function without an array.
+    private static final int MAX_UNSPREAD = 3;
+    // Largest number of methods resolved kept for the types of arguments of a call.
+    private static final int MAX_TARGETS = 4;
+    // Classes of which all the functions are deterministic.
+    private static final Set<Class<?>> DETERMINISTIC_CLASSES = ImmutableSet.of(
+      Global.class, DataQuality.class, GeoFences.class, StringUtils.class, Strings.class,
+      StringEscapeUtils.class, Bytes.class
+    );
+    // Deterministic functions of the other classes.
+    private static final Map<Class<?>, Set<String>> DETERMINISTIC_FUNCTIONS = ImmutableMap.of(
+      Math.class, ImmutableSet.of(
+        "abs", "max", "min", "ceil", "floor", "rint", "round", "signum", "sqrt", "cbrt", "pow", "exp",
+        "expm1", "log", "log10", "log1p", "sin", "cos", "tan", "asin", "acos", "atan", "atan2", "sinh",
+        "cosh", "tanh", "hypot", "toDegrees", "toRadians", "floorDiv", "floorMod"
+      ),
+      Dates.class, ImmutableSet.of(
+        "UNIXTIMESTAMP_MILLIS", "UNIXTIMESTAMP_SECONDS", "MONTH", "MONTH_SHORT", "MONTH_LONG", "YEAR",
+        "DAY_OF_WEEK", "DAY_OF_WEEK_SHORT", "DAY_OF_WEEK_LONG", "DAY_OF_YEAR", "ERA", "ERA_SHORT",
+        "ERA_LONG", "DAYS_BETWEEN", "SECONDS_TO_DAYS", "SECONDS_TO_HOURS", "SECONDS_TO_MINUTES",
+        "SECONDS_TO_WEEKS", "isDate", "isTime"
+      )
+    );
+
+    private final String name;
+    private final Method[] candidates;
+    private final ELNode[] arguments;
+    private final boolean deterministic;
+    // Slot of the result in the results of an evaluation, -1 if the result is not reused.
+    private final int slot;
+    // Call shared with the other expressions of the engine, null if the result is not reused.
+    private final Shared shared;
+    // Methods resolved for the types of arguments met, most recent first. Replaced only when
+    // the function is called with new types of arguments.
+    private volatile Target target;
+
+    Call(String name, Method[] candidates, ELNode[] arguments) {
+      this(name, candidates, arguments, -1, null);
+    }
+
+    private Call(String name, Method[] candidates, ELNode[] arguments, int slot, @Nullable Shared shared) {
+      this.name = name;
+      this.candidates = candidates;
+      this.arguments = arguments;
+      this.slot = slot;
+      this.shared = shared;
+      Class<?> functions = candidates[0].getDeclaringClass();
+      boolean deterministic = DETERMINISTIC_CLASSES.contains(functions)
+        || DETERMINISTIC_FUNCTIONS.getOrDefault(functions, ImmutableSet.of()).contains(name);
+      for (ELNode argument : arguments) {
+        deterministic &= argument.isDeterministic();
+      }
+      this.deterministic = deterministic;
+    }
+
+    /**
+     * @param slot of the result in the results of an evaluation.
+     * @param shared call of the engine, sharing the result with the other expressions evaluated on a row.
+     * @return the same call, its result being reused in an evaluation and on the row evaluated.
+     */
+    Call withSlot(int slot, Shared shared) {
+      return new Call(name, candidates, arguments, slot, shared);
+    }
+
+    /**
+     * @return true if the function is deterministic and so are its arguments.
+     */
+    @Override
+    boolean isDeterministic() {
+      return deterministic;
+    }
+
+    /**
+     * @return true if all the arguments of the call are literals.
+     */
+    boolean hasLiteralArguments() {
+      for (ELNode argument : arguments) {
+        if (!argument.isLiteral()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @return static methods named as the function that can be called with the number of arguments.
+     */
+    static Method[] candidates(Class<?> functions, String name, int arity) {
+      List<Method> methods = new ArrayList<>();
+      for (Method method : functions.getMethods()) {
+        if (method.getName().equals(name) && Modifier.isStatic(method.getModifiers())
+          && !method.isVarArgs() && method.getParameterCount() == arity) {
+          methods.add(method);
+        }
+      }
+      return methods.toArray(new Method[methods.size()]);
+    }
+
+    @Override
+    Object evaluate(JexlContext context, @Nullable Object[] results) throws ELException {
+      boolean reused = results != null && slot != -1;
+      if (reused && results[slot] != null) {
+        return results[slot];
+      }
+      Object result = arguments.length > MAX_UNSPREAD ? evaluateSpread(context, results)
+        : evaluateUnspread(context, results);
+      // Null results are evaluated again, as not told apart from the results not evaluated.
+      if (reused && isImmutable(result)) {
+        results[slot] = result;
+      }
+      return result;
+    }
+
+    /**
+     * Calls the function with its arguments passed one by one, without allocating arrays.
+     */
+    private Object evaluateUnspread(JexlContext context, @Nullable Object[] results) throws ELException {
+      int arity = arguments.length;
+      Object first = arity > 0 ? arguments[0].evaluate(context, results) : null;
+      Object second = arity > 1 ? arguments[1].evaluate(context, results) : null;
+      Object third = arity > 2 ? arguments[2].evaluate(context, results) : null;
+      Map<String, Object> computed = computed(context);
+      if (computed != null) {
+        Object kept = computed.get(shared.key);
+        if (kept instanceof Computed && ((Computed) kept).isCalledWith(first, second, third)) {
+          return ((Computed) kept).result;
+        }
+      }
+      Target target = this.target;
+      while (target != null && !target.accepts(first, second, third)) {
+        target = target.next;
+      }
+      if (target == null) {
+        Class<?>[] types = {typeOf(first), typeOf(second), typeOf(third)};
+        target = resolve(Arrays.copyOf(types, arity));
+      }
+      Object result;
+      try {
+        switch (arity) {
+          case 0:
+            result = target.handle.invokeExact();
+            break;
+          case 1:
+            result = target.handle.invokeExact(target.convert(0, first));
+            break;
+          case 2:
+            result = target.handle.invokeExact(target.convert(0, first), target.convert(1, second));
+            break;
+          default:
+            result = target.handle.invokeExact(target.convert(0, first), target.convert(1, second),
+                                               target.convert(2, third));
+        }
+      } catch (Error e) {
+        throw e;
+      } catch (Throwable t) {
+        // JEXL reports the exception thrown by the function.
+        throw new ELException(t.getMessage());
+      }
+      if (computed != null && isImmutable(first) && isImmutable(second) && isImmutable(third)
+        && isImmutable(result)) {
+        computed.put(shared.key, new Computed(Arrays.copyOf(new Object[] {first, second, third}, arity), result));
+      }
+      return result;
+    }
+
+    /**
+     * Calls the function with its arguments spread from an array.
+     */
+    private Object evaluateSpread(JexlContext context, @Nullable Object[] results) throws ELException {
+      Object[] values = new Object[arguments.length];
+      for (int i = 0; i < arguments.length; ++i) {
+        values[i] = arguments[i].evaluate(context, results);
+      }
+      Map<String, Object> computed = computed(context);
+      Object[] called = null;
+      if (computed != null) {
+        Object kept = computed.get(shared.key);
+        if (kept instanceof Computed && ((Computed) kept).isCalledWith(values)) {
+          return ((Computed) kept).result;
+        }
+        // The arguments are kept before being converted to the types of the parameters.
+        called = values.clone();
+      }
+      Target target = this.target;
+      while (target != null && !target.accepts(values)) {
+        target = target.next;
+      }
+      if (target == null) {
+        Class<?>[] types = new Class<?>[values.length];
+        for (int i = 0; i < values.length; ++i) {
+          types[i] = typeOf(values[i]);
+        }
+        target = resolve(types);
+      }
+      for (int i = 0; i < values.length; ++i) {
+        values[i] = target.convert(i, values[i]);
+      }
+      Object result;
+      try {
+        result = target.handle.invokeExact(values);
+      } catch (Error e) {
+        throw e;
+      } catch (Throwable t) {
+        // JEXL reports the exception thrown by the function.
+        throw new ELException(t.getMessage());
+      }
+      if (called != null && isImmutable(result)) {
+        for (Object value : called) {
+          if (!isImmutable(value)) {
+            return result;
+          }
+        }
+        computed.put(shared.key, new Computed(called, result));
+      }
+      return result;
+    }
+
+    /**
+     * Returns the results computed on the row evaluated if the call is shared with other
+     * expressions. The results of the calls are kept along with their arguments, the columns of
+     * the row may have changed since they were computed.
+     */
+    @Nullable
+    private Map<String, Object> computed(JexlContext context) {
+      if (shared == null || !shared.isShared() || !(context instanceof ELContext)) {
+        return null;
+      }
+      return ((ELContext) context).computed();
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder();
+      builder.append(candidates[0].getDeclaringClass().getName()).append('.').append(name).append('(');
+      for (int i = 0; i < arguments.length; ++i) {
+        builder.append(i == 0 ? "" : ", ").append(arguments[i]);
+      }
+      return builder.append(')').toString();
+    }
+
+    private Target resolve(Class<?>[] types) throws ELException {
+      List<Method> applicable = new ArrayList<>();
+      for (Method method : candidates) {
+        if (isApplicable(method.getParameterTypes(), types)) {
+          applicable.add(method);
+        }
+      }
+      // The method more specific than all the others applicable, if any.
+      Method best = null;
+      for (Method method : applicable) {
+        boolean specific = true;
+        for (Method other : applicable) {
+          specific &= other == method || isMoreSpecific(method, other);
+        }
+        if (specific) {
+          best = method;
+          break;
+        }
+      }
+      if (best == null) {
+        throw new ELException("unsolvable function/method '" + name + "'");
+      }
+      MethodHandle handle;
+      try {
+        handle = MethodHandles.publicLookup().unreflect(best);
+      } catch (IllegalAccessException e) {
+        throw new ELException("unsolvable function/method '" + name + "'");
+      }
+      if (types.length > MAX_UNSPREAD) {
+        handle = handle.asSpreader(Object[].class, types.length)
+          .asType(MethodType.methodType(Object.class, Object[].class));
+      } else {
+        handle = handle.asType(MethodType.genericMethodType(types.length));
+      }
+      // The targets resolved for other types are kept, up to a limit past which they are dropped.
+      Target previous = this.target;
+      int count = 1;
+      for (Target cached = previous; cached != null; cached = cached.next) {
+        count++;
+      }
+      Target target = new Target(types, best, handle, count <= MAX_TARGETS ? previous : null);
+      this.target = target;
+      return target;
+    }
+
+    private static Class<?> typeOf(@Nullable Object value) {
+      return value == null ? null : value.getClass();
+    }
+
+    private static boolean isApplicable(Class<?>[] parameters, Class<?>[] types) {
+      for (int i = 0; i < parameters.length; ++i) {
+        if (types[i] == null ? parameters[i].isPrimitive() : !isConvertible(types[i], parameters[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static boolean isMoreSpecific(Method method, Method other) {
+      Class<?>[] parameters = method.getParameterTypes();
+      Class<?>[] others = other.getParameterTypes();
+      for (int i = 0; i < parameters.length; ++i) {
+        if (!isConvertible(parameters[i], others[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @return true if a value of type can be passed as parameter, by widening or unboxing.
+     */
+    private static boolean isConvertible(Class<?> type, Class<?> parameter) {
+      if (parameter.isAssignableFrom(type)) {
+        return true;
+      }
+      Class<?> primitive = unbox(type);
+      if (!parameter.isPrimitive() || primitive == null) {
+        return false;
+      }
+      if (primitive == parameter) {
+        return true;
+      }
+      int from = rank(primitive);
+      int to = rank(parameter);
+      // Chars widen to int and above, the other numbers to the numbers ranked above them.
+      return from >= 0 && to >= 0 && from < to && (primitive != char.class || to >= rank(int.class))
+        && parameter != char.class;
+    }
+
+    private static Object convert(Object value, Class<?> parameter) {
+      if (!parameter.isPrimitive() || value == null) {
+        return value;
+      }
+      if (parameter == boolean.class || unbox(value.getClass()) == parameter) {
+        return value;
+      }
+      Number number = value instanceof Character ? (int) (Character) value : (Number) value;
+      if (parameter == int.class) {
+        return number.intValue();
+      } else if (parameter == long.class) {
+        return number.longValue();
+      } else if (parameter == float.class) {
+        return number.floatValue();
+      } else if (parameter == double.class) {
+        return number.doubleValue();
+      } else if (parameter == short.class) {
+        return number.shortValue();
+      }
+      return value;
+    }
+
+    private static Class<?> unbox(Class<?> type) {
+      if (type.isPrimitive()) {
+        return type;
+      } else if (type == Integer.class) {
+        return int.class;
+      } else if (type == Long.class) {
+        return long.class;
+      } else if (type == Double.class) {
+        return double.class;
+      } else if (type == Float.class) {
+        return float.class;
+      } else if (type == Boolean.class) {
+        return boolean.class;
+      } else if (type == Character.class) {
+        return char.class;
+      } else if (type == Short.class) {
+        return short.class;
+      } else if (type == Byte.class) {
+        return byte.class;
+      }
+      return null;
+    }
+
+    private static int rank(Class<?> primitive) {
+      if (primitive == byte.class) {
+        return 0;
+      } else if (primitive == short.class || primitive == char.class) {
+        return 1;
+      } else if (primitive == int.class) {
+        return 2;
+      } else if (primitive == long.class) {
+        return 3;
+      } else if (primitive == float.class) {
+        return 4;
+      } else if (primitive == double.class) {
+        return 5;
+      }
+      return -1;
+    }
+
+    /**
+     * Result of a call kept on a row, along with the arguments it was called with.
+     */
+    private static final class Computed {
+      private final Object[] arguments;
+      private final Object result;
+
+      private Computed(Object[] arguments, @Nullable Object result) {
+        this.arguments = arguments;
+        this.result = result;
+      }
+
+      private boolean isCalledWith(@Nullable Object first, @Nullable Object second, @Nullable Object third) {
+        return (arguments.length < 1 || Objects.equals(arguments[0], first))
+          && (arguments.length < 2 || Objects.equals(arguments[1], second))
+          && (arguments.length < 3 || Objects.equals(arguments[2], third));
+      }
+
+      private boolean isCalledWith(Object[] values) {
+        return Arrays.equals(arguments, values);
+      }
+    }
+
+    /**
+     * Method resolved for the types of arguments.
+     */
+    private static final class Target {
+      private final Class<?>[] types;
+      // Parameter types of the method, copied once from it.
+      private final Class<?>[] parameters;
+      private final MethodHandle handle;
+      // Target resolved before for other types, null if none.
+      private final Target next;
+
+      private Target(Class<?>[] types, Method method, MethodHandle handle, @Nullable Target next) {
+        this.types = types;
+        this.parameters = method.getParameterTypes();
+        this.handle = handle;
+        this.next = next;
+      }
+
+      /**
+       * @return true if the method was resolved for the types of up to three arguments.
+       */
+      private boolean accepts(@Nullable Object first, @Nullable Object second, @Nullable Object third) {
+        return (types.length < 1 || types[0] == typeOf(first))
+          && (types.length < 2 || types[1] == typeOf(second))
+          && (types.length < 3 || types[2] == typeOf(third));
+      }
+
+      /**
+       * @return true if the method was resolved for the types of the arguments.
+       */
+      private boolean accepts(Object[] values) {
+        for (int i = 0; i < types.length; ++i) {
+          if (types[i] != typeOf(values[i])) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      private Object convert(int i, @Nullable Object value) {
+        return Call.convert(value, parameters[i]);
+      }
+    }
+  }
+}
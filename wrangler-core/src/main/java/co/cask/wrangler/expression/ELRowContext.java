@@ -0,0 +1,221 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.expression;
+
+import co.cask.wrangler.api.ColumnVector;
+import co.cask.wrangler.api.ExecutorContext;
+import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.RowBatch;
+import co.cask.wrangler.api.TransientStore;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Context binding a {@link Row} to the variables of an expression, reused across the rows
+ * evaluated by a directive.
+ *
+ * <p>The values of the columns used by the expression are bound to slots allocated once. The
+ * transient variables, runtime arguments, environment and context name are not copied but
+ * looked up when the expression reads them. Variables are resolved in order from the variables
+ * assigned by the expression, the transient store, the columns of the row, then <code>this</code>
+ * (the row), <code>runtime</code>, <code>environment</code> and <code>context</code>. Contexts
+ * created with the columns first resolve the columns present in the row before the transient
+ * store.</p>
+ *
+ * <p>The results of the function calls shared by the expressions of several directives are kept
+ * on the row bound, see {@link Row#getComputed()}.</p>
+ *
+ * <p>Rows of a {@link RowBatch} are bound from the vectors of the columns used, without going
+ * through the rows. <code>this</code> is not bound for them and they don't share the results
+ * of the calls.</p>
+ *
+ * <p>This class is not thread safe.</p>
+ */
+public final class ELRowContext extends ELContext {
+  private final String[] names;
+  private final Object[] slots;
+  // Slots resolved before the transient store.
+  private final boolean[] first;
+  private final boolean columnsFirst;
+  private final Map<String, Integer> index = new HashMap<>();
+
+  private Row row;
+  private ExecutorContext context;
+
+  /**
+   * @param variables used by the expression, as returned by {@link EL#variables()}.
+   */
+  public ELRowContext(Set<String> variables) {
+    this(variables, false);
+  }
+
+  /**
+   * @param variables used by the expression, as returned by {@link EL#variables()}.
+   * @param columnsFirst true if the columns of the row are resolved before the transient variables.
+   */
+  public ELRowContext(Set<String> variables, boolean columnsFirst) {
+    this.names = variables.toArray(new String[variables.size()]);
+    this.slots = new Object[names.length];
+    this.first = new boolean[names.length];
+    this.columnsFirst = columnsFirst;
+    for (int i = 0; i < names.length; ++i) {
+      index.put(names[i], i);
+    }
+  }
+
+  /**
+   * Binds the row to the variables, removing the variables set by the previous evaluation.
+   *
+   * @param row to be evaluated.
+   * @param context of the execution, null if none.
+   * @return 'this' context.
+   */
+  public ELRowContext bind(Row row, @Nullable ExecutorContext context) {
+    clear();
+    this.row = row;
+    this.context = context;
+    for (int i = 0; i < names.length; ++i) {
+      int idx = row.find(names[i]);
+      slots[i] = idx == -1 ? null : row.getValue(idx);
+      first[i] = columnsFirst && idx != -1;
+    }
+    return this;
+  }
+
+  /**
+   * Returns the vectors of the columns used by the expression, to bind the rows of the batch
+   * with {@link #bind(ColumnVector[], int, ExecutorContext)}.
+   *
+   * @param batch of rows to be evaluated.
+   * @return vectors of the columns named after the variables.
+   */
+  public ColumnVector[] columns(RowBatch batch) {
+    ColumnVector[] columns = new ColumnVector[names.length];
+    for (int i = 0; i < names.length; ++i) {
+      columns[i] = batch.column(names[i]);
+    }
+    return columns;
+  }
+
+  /**
+   * Binds a row of a batch to the variables, removing the variables set by the previous evaluation.
+   *
+   * @param columns vectors returned by {@link #columns(RowBatch)} for the batch.
+   * @param idx of the row in the batch.
+   * @param context of the execution, null if none.
+   * @return 'this' context.
+   */
+  public ELRowContext bind(ColumnVector[] columns, int idx, @Nullable ExecutorContext context) {
+    clear();
+    this.row = null;
+    this.context = context;
+    for (int i = 0; i < names.length; ++i) {
+      boolean present = columns[i].isPresent(idx);
+      slots[i] = present ? columns[i].get(idx) : null;
+      first[i] = columnsFirst && present;
+    }
+    return this;
+  }
+
+  /**
+   * Replaces the value bound to a column of the row, without changing its precedence over the
+   * transient variables.
+   *
+   * @param name of the column.
+   * @param value to be bound.
+   */
+  public void setColumn(String name, Object value) {
+    Integer slot = index.get(name);
+    if (slot != null) {
+      slots[slot] = value;
+    }
+  }
+
+  @Override
+  public Object get(String name) {
+    if (super.has(name)) {
+      return super.get(name);
+    }
+    Integer slot = index.get(name);
+    if (slot != null && first[slot]) {
+      return slots[slot];
+    }
+    TransientStore store = store();
+    if (store != null && store.has(name)) {
+      return store.get(name);
+    }
+    if (slot != null) {
+      return slots[slot];
+    }
+    switch (name) {
+      case "this":
+        return row;
+      case "runtime":
+        return context == null ? null : context.getProperties();
+      case "environment":
+        return context == null ? null : context.getEnvironment().name();
+      case "context":
+        return context == null ? null : context.getContextName();
+      default:
+        return null;
+    }
+  }
+
+  @Override
+  public void set(String name, Object value) {
+    Integer slot = index.get(name);
+    if (slot != null) {
+      // Variables assigned by the expression hide the transient ones.
+      slots[slot] = value;
+      first[slot] = true;
+    } else {
+      super.set(name, value);
+    }
+  }
+
+  @Override
+  public ELContext add(String name, Object value) {
+    set(name, value);
+    return this;
+  }
+
+  @Override
+  public boolean has(String name) {
+    if (super.has(name) || index.containsKey(name) || "this".equals(name)) {
+      return true;
+    }
+    TransientStore store = store();
+    if (store != null && store.has(name)) {
+      return true;
+    }
+    return context != null && ("runtime".equals(name) || "environment".equals(name) || "context".equals(name));
+  }
+
+  @Override
+  @Nullable
+  Map<String, Object> computed() {
+    return row == null ? null : row.getComputed();
+  }
+
+  @Nullable
+  private TransientStore store() {
+    return context == null ? null : context.getTransientStore();
+  }
+}
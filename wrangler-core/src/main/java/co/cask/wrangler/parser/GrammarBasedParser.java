@@ -50,7 +50,7 @@ public class GrammarBasedParser implements RecipeParser {
   private Compiler compiler = new RecipeCompiler();
   private DirectiveRegistry  registry;
   private String recipe;
-  private List<Executor> directives;
+  private transient CompileStatus status;
   private DirectiveContext context;
 
   public GrammarBasedParser(String[] directives, DirectiveRegistry registry) {
@@ -64,23 +64,27 @@ public class GrammarBasedParser implements RecipeParser {
   public GrammarBasedParser(String recipe, DirectiveRegistry registry) {
     this.recipe = recipe;
     this.registry = registry;
-    this.directives = new ArrayList<>();
     this.context = new NoOpDirectiveContext();
   }
 
   /**
-   * Generates a configured set of {@link Executor} to be executed.
+   * Generates a configured set of {@link Executor} to be executed. The recipe is compiled
+   * only once, each invocation returns a new set of initialized {@link Executor} instances.
    *
    * @return List of {@link Executor}.
    */
   @Override
   public List<Executor> parse()
     throws DirectiveLoadException, DirectiveNotFoundException, DirectiveParseException {
+    List<Executor> directives = new ArrayList<>();
     try {
-      CompileStatus status = compiler.compile(recipe);
-      if (!status.isSuccess()) {
-        Iterator<SyntaxError> errors = status.getErrors();
-        throw new DirectiveParseException(errors.next().getMessage(), errors);
+      if (status == null) {
+        CompileStatus compiled = compiler.compile(recipe);
+        if (!compiled.isSuccess()) {
+          Iterator<SyntaxError> errors = compiled.getErrors();
+          throw new DirectiveParseException(errors.next().getMessage(), errors);
+        }
+        status = compiled;
       }
 
       Iterator<TokenGroup> tokenGroups = status.getSymbols().iterator();
@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.utils;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.format.UnexpectedFormatException;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.RowHeader;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Converts {@link Row} to {@link StructuredRecord} of a single schema.
+ *
+ * <p>The schema is compiled once into a flat array of fields, each with the type of value that
+ * can be set as is. Values of other types are decoded the same way as {@link RecordConvertor}
+ * does. The positions of the fields in the rows are resolved once per {@link RowHeader}, rows
+ * sharing a header are converted without looking up the columns by name.</p>
+ *
+ * <p>This class is not thread safe.</p>
+ */
+public final class CompiledRecordConvertor {
+  private final RecordConvertor convertor = new RecordConvertor();
+  private final Schema schema;
+  private final String[] names;
+  private final Schema[] schemas;
+  // Type of the values that are set as is, null if the values always need to be decoded.
+  private final Class<?>[] types;
+  // True for the fields of logical types.
+  private final boolean[] logical;
+
+  // Header the positions were resolved for.
+  private RowHeader header;
+  private int[] positions;
+
+  public CompiledRecordConvertor(Schema schema) {
+    this.schema = schema;
+    List<Schema.Field> fields = schema.getFields();
+    this.names = new String[fields.size()];
+    this.schemas = new Schema[fields.size()];
+    this.types = new Class<?>[fields.size()];
+    this.logical = new boolean[fields.size()];
+    for (int i = 0; i < fields.size(); ++i) {
+      Schema.Field field = fields.get(i);
+      Schema fSchema = field.getSchema();
+      Schema nonNullable = fSchema.isNullable() ? fSchema.getNonNullable() : fSchema;
+      names[i] = field.getName();
+      schemas[i] = fSchema;
+      logical[i] = nonNullable.getLogicalType() != null;
+      types[i] = logical[i] ? null : typeOf(nonNullable.getType());
+    }
+  }
+
+  /**
+   * @return schema of the records.
+   */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Converts a Wrangler {@link Row} into a {@link StructuredRecord} of the schema.
+   *
+   * @param row to be converted.
+   * @return Populated {@link StructuredRecord}
+   */
+  public StructuredRecord convert(Row row) throws RecordConvertorException {
+    // Rows holding a single record are copied into the schema.
+    if (row.length() == 1) {
+      Object cell = row.getValue(0);
+      if (cell instanceof StructuredRecord) {
+        return copy((StructuredRecord) cell);
+      }
+    }
+
+    if (row.getHeader() != header) {
+      header = row.getHeader();
+      positions = new int[names.length];
+      for (int i = 0; i < names.length; ++i) {
+        positions[i] = header.find(names[i]);
+      }
+    }
+
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    for (int i = 0; i < names.length; ++i) {
+      int position = positions[i];
+      if (position != -1 && types[i] != null && row.getType(position) == types[i]) {
+        builder.set(names[i], get(row, position, types[i]));
+        continue;
+      }
+      Object value = position == -1 ? null : row.getValue(position);
+      try {
+        Object decoded = convertor.decode(names[i], value, schemas[i]);
+        if (!logical[i]) {
+          builder.set(names[i], decoded);
+        } else if (decoded instanceof LocalDate) {
+          builder.setDate(names[i], (LocalDate) decoded);
+        } else if (decoded instanceof LocalTime) {
+          builder.setTime(names[i], (LocalTime) decoded);
+        } else if (decoded instanceof ZonedDateTime) {
+          builder.setTimestamp(names[i], (ZonedDateTime) decoded);
+        } else {
+          builder.set(names[i], decoded);
+        }
+      } catch (UnexpectedFormatException e) {
+        Schema fSchema = schemas[i];
+        boolean isNullable = fSchema.isNullable();
+        throw new RecordConvertorException(
+          String.format("Field '%s' of type '%s' (Nullable : '%s') cannot be set to '%s'. Possibly the value being " +
+                          "set is not in inline with the schema specified. Check schema for field '%s'.",
+                        names[i],
+                        isNullable ? fSchema.getNonNullable().getType().name() : fSchema.getType().name(),
+                        isNullable ? "YES" : "NO",
+                        value == null ? "NULL" : value,
+                        names[i])
+        );
+      }
+    }
+    return builder.build();
+  }
+
+  private StructuredRecord copy(StructuredRecord record) {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    for (String name : names) {
+      Object value = record.get(name);
+      if (value instanceof String) {
+        builder.convertAndSet(name, (String) value);
+      } else {
+        builder.set(name, value);
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Reads the value through the accessor of its type, values stored unboxed in the row are
+   * boxed only for the record.
+   */
+  private static Object get(Row row, int idx, Class<?> type) {
+    if (type == Integer.class) {
+      return row.getInt(idx);
+    }
+    if (type == Long.class) {
+      return row.getLong(idx);
+    }
+    if (type == Float.class) {
+      return row.getFloat(idx);
+    }
+    if (type == Double.class) {
+      return row.getDouble(idx);
+    }
+    if (type == Boolean.class) {
+      return row.getBoolean(idx);
+    }
+    return row.getValue(idx);
+  }
+
+  /**
+   * @return class of the values that need no decoding for the type.
+   */
+  private static Class<?> typeOf(Schema.Type type) {
+    switch (type) {
+      case BOOLEAN:
+        return Boolean.class;
+      case INT:
+        return Integer.class;
+      case LONG:
+        return Long.class;
+      case FLOAT:
+        return Float.class;
+      case DOUBLE:
+        return Double.class;
+      case STRING:
+        return String.class;
+      default:
+        return null;
+    }
+  }
+}
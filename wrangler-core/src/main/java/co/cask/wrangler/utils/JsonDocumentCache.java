@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.wrangler.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Caches the JSON documents parsed from the values of the columns of the row being wrangled.
+ *
+ * <p>Directives and functions extracting several values from the same column parse the value
+ * once. Documents are looked up by identity of the value, the values of a row are the same
+ * instances as long as the columns are not modified, the value of a column modified is a new
+ * instance. Each thread keeps the last few documents parsed, which are the documents of the
+ * row being wrangled by the thread.</p>
+ *
+ * <p>Cached documents are shared, they must not be modified nor be set as values of the rows.
+ * Use {@link #copy(JsonElement)} to get elements that can be modified.</p>
+ */
+public final class JsonDocumentCache {
+  // Number of documents cached by each thread.
+  private static final int SIZE = 8;
+
+  private static final JsonParser PARSER = new JsonParser();
+
+  private static final ThreadLocal<Documents> DOCUMENTS = ThreadLocal.withInitial(Documents::new);
+
+  private JsonDocumentCache() {
+    // Avoid creation of this object.
+  }
+
+  /**
+   * Parses a JSON document, unless it was parsed already.
+   *
+   * @param json document to be parsed.
+   * @return document parsed, shared with the other readers of the value.
+   */
+  public static JsonElement parse(String json) {
+    Documents documents = DOCUMENTS.get();
+    JsonElement element = documents.get(json);
+    if (element == null) {
+      element = PARSER.parse(json);
+      documents.put(json, element);
+    }
+    return element;
+  }
+
+  /**
+   * @return document parsed from the value, null if the value was not parsed.
+   */
+  @Nullable
+  public static JsonElement get(String json) {
+    return DOCUMENTS.get().get(json);
+  }
+
+  /**
+   * Copies the objects and arrays of the element, primitives being immutable.
+   *
+   * @param element to be copied.
+   * @return copy of the element.
+   */
+  public static JsonElement copy(JsonElement element) {
+    if (element instanceof JsonObject) {
+      JsonObject copy = new JsonObject();
+      for (Map.Entry<String, JsonElement> entry : ((JsonObject) element).entrySet()) {
+        copy.add(entry.getKey(), copy(entry.getValue()));
+      }
+      return copy;
+    }
+    if (element instanceof JsonArray) {
+      JsonArray array = (JsonArray) element;
+      JsonArray copy = new JsonArray();
+      for (int i = 0; i < array.size(); ++i) {
+        copy.add(copy(array.get(i)));
+      }
+      return copy;
+    }
+    return element;
+  }
+
+  /**
+   * Last documents parsed by a thread, replaced in order.
+   */
+  private static final class Documents {
+    private final String[] values = new String[SIZE];
+    private final JsonElement[] elements = new JsonElement[SIZE];
+    // Slot replaced by the next document parsed.
+    private int next;
+
+    @Nullable
+    private JsonElement get(String json) {
+      for (int i = 0; i < SIZE; ++i) {
+        if (values[i] == json) {
+          return elements[i];
+        }
+      }
+      return null;
+    }
+
+    private void put(String json, JsonElement element) {
+      values[next] = json;
+      elements[next] = element;
+      next = (next + 1) % SIZE;
+    }
+  }
+}
@@ -107,7 +107,7 @@ public final class RecordConvertor implements Serializable {
     return builder.build();
   }
 
-  private Object decode(String name, Object object, Schema schema) throws RecordConvertorException {
+  Object decode(String name, Object object, Schema schema) throws RecordConvertorException {
     // Extract the type of the field.
     Schema.Type type = schema.getType();
     Schema.LogicalType logicalType = schema.getLogicalType();
@@ -18,7 +18,9 @@ package co.cask.directives.column;
 
 import co.cask.cdap.api.common.Bytes;
 import co.cask.wrangler.TestingRig;
+import co.cask.wrangler.api.RecipePipeline;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.executor.RecipePipelineExecutor;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -234,4 +236,62 @@ public class SetTypeTest {
       Assert.assertEquals(0, Bytes.compareTo(value, bytesResults[i]));
     }
   }
+
+  @Test
+  public void testStringToPrimitive() throws Exception {
+    List<Row> rows = Arrays.asList(
+      new Row("int_col", "10").add("long_col", "20").add("double_col", "1.5").add("bool_col", "true")
+    );
+    String[] directives = new String[] {
+      "set-type int_col int", "set-type long_col long", "set-type double_col double", "set-type bool_col boolean"
+    };
+
+    List<Row> results = TestingRig.execute(directives, rows);
+    Row row = results.get(0);
+
+    Assert.assertEquals(10, row.getInt(0));
+    Assert.assertEquals(20L, row.getLong(1));
+    Assert.assertEquals(1.5, row.getDouble(2), 0.0001);
+    Assert.assertTrue(row.getBoolean(3));
+    Assert.assertEquals(10, row.getValue("int_col"));
+    Assert.assertEquals(20L, row.getValue("long_col"));
+    Assert.assertEquals(1.5, row.getValue("double_col"));
+    Assert.assertEquals(true, row.getValue("bool_col"));
+  }
+
+  @Test
+  public void testStringToPrimitiveInBatch() throws Exception {
+    List<Row> rows = Arrays.asList(
+      new Row("int_col", "10").add("double_col", "1.5"),
+      new Row("int_col", "").add("double_col", "2.5")
+    );
+    String[] directives = new String[] {
+      "set-type int_col int", "set-type double_col double"
+    };
+
+    RecipePipeline pipeline = new RecipePipelineExecutor(true);
+    pipeline.initialize(TestingRig.parse(directives), null);
+    List<Row> results = pipeline.execute(rows);
+
+    Assert.assertEquals(10, results.get(0).getInt(0));
+    Assert.assertEquals(1.5, results.get(0).getDouble(1), 0.0001);
+    Assert.assertEquals("", results.get(1).getValue("int_col"));
+    Assert.assertEquals(2.5, results.get(1).getValue("double_col"));
+  }
+
+  @Test
+  public void testPrimitiveBoxedOnceWhenRead() throws Exception {
+    List<Row> rows = Arrays.asList(new Row("int_col", "10").add("bool_col", 1));
+    String[] directives = new String[] {
+      "set-type int_col int", "set-type bool_col boolean"
+    };
+
+    Row row = TestingRig.execute(directives, rows).get(0);
+
+    Assert.assertEquals(Integer.class, row.getType(0));
+    Assert.assertEquals(Boolean.class, row.getType(1));
+    Assert.assertTrue(row.getBoolean(1));
+    Assert.assertSame(row.getValue(0), row.getValue(0));
+    Assert.assertEquals(10, row.getInt(0));
+  }
 }
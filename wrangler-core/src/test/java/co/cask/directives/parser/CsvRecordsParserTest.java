@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.directives.parser;
+
+import co.cask.wrangler.TestingRig;
+import co.cask.wrangler.api.Row;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests {@link CsvRecordsParser}
+ */
+public class CsvRecordsParserTest {
+
+  @Test
+  public void testParseWithHeader() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-csv-records :body ',' true"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("file", "a.csv").add("body", "id, name\n1,\"Joltie\nRoot\"\r\n\n2,Bob\n")
+    );
+
+    rows = TestingRig.execute(directives, rows);
+    Assert.assertEquals(2, rows.size());
+    Assert.assertEquals("a.csv", rows.get(0).getValue("file"));
+    Assert.assertEquals(-1, rows.get(0).find("body"));
+    Assert.assertEquals("1", rows.get(0).getValue("id"));
+    Assert.assertEquals("Joltie\nRoot", rows.get(0).getValue("name"));
+    Assert.assertEquals("2", rows.get(1).getValue("id"));
+    Assert.assertEquals("Bob", rows.get(1).getValue("name"));
+  }
+
+  @Test
+  public void testParseBytesWithoutHeader() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-csv-records :body ';'"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "x;y\nz".getBytes(StandardCharsets.UTF_8))
+    );
+
+    rows = TestingRig.execute(directives, rows);
+    Assert.assertEquals(2, rows.size());
+    Assert.assertEquals("x", rows.get(0).getValue("body_1"));
+    Assert.assertEquals("y", rows.get(0).getValue("body_2"));
+    Assert.assertEquals("z", rows.get(1).getValue("body_1"));
+    Assert.assertEquals(1, rows.get(1).length());
+  }
+
+  @Test
+  public void testRowsWithoutValueKept() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-csv-records :body ','"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("file", "a.csv").add("body", null),
+      new Row("file", "b.csv"),
+      new Row("body", "1,2")
+    );
+
+    rows = TestingRig.execute(directives, rows);
+    Assert.assertEquals(3, rows.size());
+    Assert.assertEquals("a.csv", rows.get(0).getValue("file"));
+    Assert.assertNull(rows.get(0).getValue("body"));
+    Assert.assertEquals("b.csv", rows.get(1).getValue("file"));
+    Assert.assertEquals("2", rows.get(2).getValue("body_2"));
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.directives.parser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests {@link CsvTokenizer}
+ */
+public class CsvTokenizerTest {
+
+  private static List<List<String>> tokenize(CsvTokenizer tokenizer) throws IOException {
+    List<List<String>> records = new ArrayList<>();
+    List<String> fields = new ArrayList<>();
+    while (tokenizer.next(fields)) {
+      records.add(new ArrayList<>(fields));
+    }
+    return records;
+  }
+
+  @Test
+  public void testTokenize() throws Exception {
+    CsvTokenizer tokenizer = new CsvTokenizer(',', '"');
+    tokenizer.reset("a, b ,,\"c,\"\"d\"\"\" ,\"\"\r\n\n\"multi\nline\",e,");
+    Assert.assertEquals(
+      Arrays.asList(Arrays.asList("a", " b ", "", "c,\"d\"", ""), Arrays.asList("multi\nline", "e", "")),
+      tokenize(tokenizer)
+    );
+
+    tokenizer.reset("x\"y\"");
+    Assert.assertEquals(Arrays.asList(Arrays.asList("x\"y\"")), tokenize(tokenizer));
+
+    tokenizer.reset("\n\r\n");
+    Assert.assertTrue(tokenize(tokenizer).isEmpty());
+  }
+
+  @Test
+  public void testCustomDelimiter() throws Exception {
+    CsvTokenizer tokenizer = new CsvTokenizer('\t', '"');
+    tokenizer.reset("a,b\t\"c\td\"\t");
+    Assert.assertEquals(Arrays.asList(Arrays.asList("a,b", "c\td", "")), tokenize(tokenizer));
+  }
+
+  @Test
+  public void testReaderAcrossBuffers() throws Exception {
+    StringBuilder text = new StringBuilder();
+    List<List<String>> expected = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      text.append(i).append(",\"value ").append(i).append("\n\"\"quoted\"\"\",").append("end").append('\n');
+      expected.add(Arrays.asList(String.valueOf(i), "value " + i + "\n\"quoted\"", "end"));
+    }
+    CsvTokenizer tokenizer = new CsvTokenizer(',', '"');
+    tokenizer.reset(new StringReader(text.toString()));
+    Assert.assertEquals(expected, tokenize(tokenizer));
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnterminatedQuote() throws Exception {
+    CsvTokenizer tokenizer = new CsvTokenizer(',', '"');
+    tokenizer.reset("a,\"b");
+    tokenize(tokenizer);
+  }
+
+  @Test(expected = IOException.class)
+  public void testCharAfterQuote() throws Exception {
+    CsvTokenizer tokenizer = new CsvTokenizer(',', '"');
+    tokenizer.reset("\"a\"b,c");
+    tokenize(tokenizer);
+  }
+}
@@ -17,7 +17,11 @@
 package co.cask.directives.parser;
 
 import co.cask.wrangler.TestingRig;
+import co.cask.wrangler.api.Pair;
 import co.cask.wrangler.api.Row;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -257,4 +261,41 @@ public class JsParserTest {
     Assert.assertNotEquals(rows.get(0).find("body6_name_first_n"), -1);
     Assert.assertNotEquals(rows.get(0).find("body6_name_first_m"), -1);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testFlattenedValues() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-json body 1"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", " {\"a\": 1, \"b\": 1.5, \"c\": null, \"d\": [1, 2], \"e\": {\"f\": true}, \"g\": \"x\"} ")
+    );
+
+    rows = TestingRig.execute(directives, rows);
+    Assert.assertEquals(1, rows.size());
+    Assert.assertEquals(6, rows.get(0).length());
+    Assert.assertEquals(1L, rows.get(0).getValue("body_a"));
+    Assert.assertEquals(1.5, rows.get(0).getValue("body_b"));
+    Assert.assertEquals(JsonNull.INSTANCE, rows.get(0).getValue("body_c"));
+    Assert.assertTrue(rows.get(0).getValue("body_d") instanceof JsonArray);
+    Assert.assertTrue(rows.get(0).getValue("body_e") instanceof JsonObject);
+    Assert.assertEquals("x", rows.get(0).getValue("body_g"));
+  }
+
+  @Test
+  public void testInvalidDocumentSentToError() throws Exception {
+    String[] directives = new String[] {
+      "parse-as-json body"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "{\"a\": 1, \"b\": {\"c\": }").add("other", 1)
+    );
+
+    Pair<List<Row>, List<Row>> results = TestingRig.executeWithErrors(directives, rows);
+    Assert.assertEquals(0, results.getFirst().size());
+    Assert.assertEquals(1, results.getSecond().size());
+    Assert.assertEquals(2, results.getSecond().get(0).length());
+  }
+}
@@ -17,7 +17,10 @@
 package co.cask.directives.parser;
 
 import co.cask.wrangler.TestingRig;
+import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.Row;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -82,4 +85,39 @@ public class JsPathTest {
 
     Assert.assertTrue(rows.size() == 1);
   }
+
+  @Test
+  public void testPathsOfStringColumn() throws Exception {
+    List<Row> rows = Arrays.asList(
+      new Row("body", "{\"name\": {\"first\": \"Joltie\", \"last\": \"Root\"}, \"numbers\": [1, 2, 3]}")
+    );
+
+    String[] directives = new String[] {
+      "json-path body first $.name.first",
+      "json-path body numbers $.numbers",
+      "json-path body name $.name",
+      "set-column name json:drop(name, \"first\")",
+      "json-path body last $.name.last",
+      "json-path body name2 $.name"
+    };
+
+    rows = TestingRig.execute(directives, rows);
+
+    Assert.assertEquals(1, rows.size());
+    Assert.assertEquals("Joltie", rows.get(0).getValue("first"));
+    Assert.assertEquals("Root", rows.get(0).getValue("last"));
+    Assert.assertEquals(3, ((JsonArray) rows.get(0).getValue("numbers")).size());
+    // Fields dropped from the values extracted are still read from the column afterwards.
+    Assert.assertEquals(1, ((JsonObject) rows.get(0).getValue("name")).size());
+    Assert.assertEquals(2, ((JsonObject) rows.get(0).getValue("name2")).size());
+  }
+
+  @Test(expected = DirectiveParseException.class)
+  public void testInvalidPath() throws Exception {
+    String[] directives = new String[] {
+      "json-path body first $.name[",
+    };
+
+    TestingRig.execute(directives, Arrays.asList(new Row("body", "{}")));
+  }
 }
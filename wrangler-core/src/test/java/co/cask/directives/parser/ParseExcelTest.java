@@ -67,5 +67,46 @@ public class ParseExcelTest {
       Assert.assertEquals(1, pipeline.getSecond().size());
     }
   }
-}
 
+  @Test
+  public void testSheetName() throws Exception {
+    try (InputStream stream = ParseAvroFileTest.class.getClassLoader().getResourceAsStream("titanic.xlsx")) {
+      byte[] data = IOUtils.toByteArray(stream);
+
+      String[] directives = new String[]{
+        "parse-as-excel :body 'Titanic'",
+      };
+
+      List<Row> rows = new ArrayList<>();
+      rows.add(new Row("body", data));
+
+      List<Row> results = TestingRig.execute(directives, rows);
+      Assert.assertEquals(892, results.size());
+      Assert.assertEquals("PassengerId", results.get(0).getValue("A"));
+      Assert.assertEquals(1.0, results.get(1).getValue("A"));
+    }
+  }
+
+  @Test
+  public void testSampleWithHeader() throws Exception {
+    try (InputStream stream = ParseAvroFileTest.class.getClassLoader().getResourceAsStream("titanic.xlsx")) {
+      byte[] data = IOUtils.toByteArray(stream);
+
+      String[] directives = new String[]{
+        "parse-as-excel :body '0' true 10",
+      };
+
+      List<Row> rows = new ArrayList<>();
+      rows.add(new Row("body", data));
+
+      List<Row> results = TestingRig.execute(directives, rows);
+      Assert.assertEquals(10, results.size());
+      Assert.assertEquals(1, results.get(0).getValue("fwd"));
+      Assert.assertEquals(9, results.get(0).getValue("bkd"));
+      Assert.assertEquals("Braund, Mr. Owen Harris", results.get(0).getValue("Name"));
+      Assert.assertEquals(22.0, results.get(0).getValue("Age"));
+      Assert.assertEquals(10, results.get(9).getValue("fwd"));
+      Assert.assertEquals(0, results.get(9).getValue("bkd"));
+    }
+  }
+}
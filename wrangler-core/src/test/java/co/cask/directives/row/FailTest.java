@@ -16,13 +16,22 @@
 
 package co.cask.directives.row;
 
+import co.cask.cdap.etl.api.Lookup;
+import co.cask.cdap.etl.api.StageMetrics;
+import co.cask.directives.aggregates.DefaultTransientStore;
 import co.cask.wrangler.TestingRig;
+import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.RecipeException;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.TransientStore;
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.net.URL;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Tests {@link Fail}
@@ -55,4 +64,74 @@ public class FailTest {
     TestingRig.execute(directives, rows);
   }
 
+  @Test
+  public void testColumnsHideTransientVariables() throws Exception {
+    String[] directives = new String[] {
+      "set-variable count 20",
+      "fail count > 10",
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("count", 1)
+    );
+
+    rows = TestingRig.execute(directives, rows, new StoreContext());
+    Assert.assertEquals(1, rows.size());
+  }
+
+  @Test(expected = RecipeException.class)
+  public void testTransientVariableWithoutColumn() throws Exception {
+    String[] directives = new String[] {
+      "set-variable total 20",
+      "fail total > 10",
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("count", 1)
+    );
+
+    TestingRig.execute(directives, rows, new StoreContext());
+  }
+
+  /**
+   * Context providing a transient store.
+   */
+  private static final class StoreContext implements ExecutorContext {
+    private final TransientStore store = new DefaultTransientStore();
+
+    @Override
+    public Environment getEnvironment() {
+      return Environment.TESTING;
+    }
+
+    @Override
+    public StageMetrics getMetrics() {
+      return null;
+    }
+
+    @Override
+    public String getContextName() {
+      return "test";
+    }
+
+    @Override
+    public Map<String, String> getProperties() {
+      return Collections.emptyMap();
+    }
+
+    @Override
+    public URL getService(String applicationId, String serviceId) {
+      return null;
+    }
+
+    @Override
+    public TransientStore getTransientStore() {
+      return store;
+    }
+
+    @Override
+    public <T> Lookup<T> provide(String s, Map<String, String> map) {
+      return null;
+    }
+  }
 }
@@ -18,7 +18,9 @@ package co.cask.directives.row;
 
 import co.cask.wrangler.TestingRig;
 import co.cask.wrangler.api.RecipeException;
+import co.cask.wrangler.api.RecipePipeline;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.executor.RecipePipelineExecutor;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -70,4 +72,29 @@ public class RowConditionFilterTest {
     Assert.assertTrue(rows.size() == 1);
   }
 
-}
\ No newline at end of file
+  @Test
+  public void testFilteredOnColumnsInBatch() throws Exception {
+    String[] directives = new String[] {
+      "set-type age int",
+      "filter-row-if-true age < 30.0 || name == 'skip'"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("name", "a").add("age", "22"),
+      new Row("name", "b").add("age", "38"),
+      new Row("name", "skip").add("age", "40"),
+      new Row("name", "c").add("age", "31")
+    );
+
+    for (boolean batch : new boolean[] { true, false }) {
+      RecipePipeline pipeline = new RecipePipelineExecutor(batch);
+      pipeline.initialize(TestingRig.parse(directives), null);
+      List<Row> results = pipeline.execute(rows);
+
+      Assert.assertEquals(2, results.size());
+      Assert.assertEquals("b", results.get(0).getValue("name"));
+      Assert.assertEquals(38, results.get(0).getInt(1));
+      Assert.assertEquals("c", results.get(1).getValue("name"));
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.executor;
+
+import co.cask.wrangler.TestingRig;
+import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.ColumnDirective;
+import co.cask.wrangler.api.Executor;
+import co.cask.wrangler.api.ExecutorContext;
+import co.cask.wrangler.api.RecipeException;
+import co.cask.wrangler.api.RecipePipeline;
+import co.cask.wrangler.api.ReportErrorAndProceed;
+import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.parser.UsageDefinition;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests {@link FusedColumnRun}.
+ */
+public class FusedColumnRunTest {
+
+  @Test
+  public void testFuseRunsOnSameColumn() throws Exception {
+    String[] commands = new String[] {
+      "trim a",
+      "lowercase a",
+      "fill-null-or-empty a '0'",
+      "uppercase b",
+      "drop c",
+      "trim a",
+      "lowercase b"
+    };
+
+    List<Executor> directives = FusedColumnRun.fuse(TestingRig.parse(commands).parse());
+    Assert.assertEquals(5, directives.size());
+    Assert.assertTrue(directives.get(0) instanceof FusedColumnRun);
+    Assert.assertFalse(directives.get(1) instanceof FusedColumnRun);
+  }
+
+  @Test
+  public void testFuseIgnoresColumnCase() throws Exception {
+    String[] commands = new String[] {
+      "trim a",
+      "lowercase A"
+    };
+
+    List<Executor> directives = FusedColumnRun.fuse(TestingRig.parse(commands).parse());
+    Assert.assertEquals(1, directives.size());
+    Assert.assertTrue(directives.get(0) instanceof FusedColumnRun);
+  }
+
+  @Test
+  public void testReportedErrorsDontStopRun() throws Exception {
+    List<Executor> directives = FusedColumnRun.fuse(Arrays.<Executor>asList(
+      new ReportingDirective("1"), new ReportingDirective("2"), new ReportingDirective("3")
+    ));
+    Assert.assertEquals(1, directives.size());
+
+    Row row = new Row("b", "x");
+    try {
+      directives.get(0).execute(Arrays.asList(row), null);
+      Assert.fail();
+    } catch (ReportErrorAndProceed e) {
+      Assert.assertEquals(1, e.getCode());
+      Assert.assertEquals("missing,2:missing", e.getMessage());
+    }
+    Assert.assertEquals("-3", row.getValue("a"));
+  }
+
+  @Test
+  public void testFusedExecution() throws Exception {
+    String[] commands = new String[] {
+      "trim a",
+      "lowercase a",
+      "fill-null-or-empty a '0'",
+      "set-type a int",
+      "mask-number b ####"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("a", "  10 ").add("b", "1234"),
+      new Row("a", "   "),
+      new Row("b", "5678")
+    );
+
+    List<Row> results = TestingRig.execute(commands, rows);
+
+    Assert.assertEquals(3, results.size());
+    Assert.assertEquals(10, results.get(0).getValue("a"));
+    Assert.assertEquals(0, results.get(1).getValue("a"));
+    Assert.assertEquals("", results.get(1).getValue("b"));
+    Assert.assertEquals(0, results.get(2).getValue("a"));
+    Assert.assertEquals("5678", results.get(2).getValue("b"));
+  }
+
+  @Test
+  public void testErrorsNameOriginalDirective() throws Exception {
+    String[] commands = new String[] {
+      "trim a",
+      "set-type a int",
+      "lowercase a"
+    };
+
+    RecipePipeline pipeline = TestingRig.execute(commands);
+    try {
+      pipeline.execute(Arrays.asList(new Row("a", " abc ")));
+      Assert.fail();
+    } catch (RecipeException e) {
+      Assert.assertEquals("Invalid data: Column 'a' can not be converted to 'int'", e.getMessage());
+    }
+  }
+
+  /**
+   * Appends its name to the column, reporting an error and adding the column when it's missing.
+   */
+  private static final class ReportingDirective implements ColumnDirective {
+    private final String name;
+
+    private ReportingDirective(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public UsageDefinition define() {
+      return UsageDefinition.builder("reporting-directive").build();
+    }
+
+    @Override
+    public void initialize(Arguments args) {
+      // no-op
+    }
+
+    @Override
+    public List<Row> execute(List<Row> rows, ExecutorContext context) throws ReportErrorAndProceed {
+      for (Row row : rows) {
+        if (row.find("a") == -1) {
+          if (!name.equals("3")) {
+            throw new ReportErrorAndProceed("missing", Integer.parseInt(name));
+          }
+          row.add("a", "-" + name);
+        }
+      }
+      return rows;
+    }
+
+    @Override
+    public String getColumn() {
+      return "a";
+    }
+
+    @Override
+    public Object apply(Object value) {
+      return value + name;
+    }
+
+    @Override
+    public void destroy() {
+      // no-op
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.executor;
+
+import co.cask.wrangler.TestingRig;
+import co.cask.wrangler.api.ErrorRecord;
+import co.cask.wrangler.api.RecipePipeline;
+import co.cask.wrangler.api.Row;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Tests {@link ParallelRecipePipelineExecutor}.
+ */
+public class ParallelRecipePipelineExecutorTest {
+
+  @Test
+  public void testOutputAndErrorsInInputOrder() throws Exception {
+    String[] commands = new String[] {
+      "parse-as-csv body ,",
+      "drop body",
+      "send-to-error body_2 == 'bad'",
+      "uppercase body_2"
+    };
+
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 20000; ++i) {
+      rows.add(new Row("body", String.format("%d,%s", i, i % 10 == 0 ? "bad" : "good")));
+    }
+
+    RecipePipeline pipeline = new ParallelRecipePipelineExecutor(4);
+    pipeline.initialize(TestingRig.parse(commands), null);
+    try {
+      List<Row> results = pipeline.execute(rows);
+      List<ErrorRecord> errors = pipeline.errors();
+
+      Assert.assertEquals(18000, results.size());
+      Assert.assertEquals(2000, errors.size());
+
+      int expected = 0;
+      for (Row row : results) {
+        if (expected % 10 == 0) {
+          expected++;
+        }
+        Assert.assertEquals(String.valueOf(expected), row.getValue("body_1"));
+        Assert.assertEquals("GOOD", row.getValue("body_2"));
+        expected++;
+      }
+
+      for (int i = 0; i < errors.size(); ++i) {
+        Assert.assertEquals(String.valueOf(i * 10), errors.get(i).getRow().getValue("body_1"));
+      }
+    } finally {
+      pipeline.destroy();
+    }
+  }
+
+  @Test
+  public void testIteratorExecutedInChunks() throws Exception {
+    String[] commands = new String[] {
+      "send-to-error body == 'bad'",
+      "uppercase body"
+    };
+
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 10000; ++i) {
+      rows.add(new Row("body", i % 100 == 0 ? "bad" : "good"));
+    }
+
+    RecipePipeline pipeline = new ParallelRecipePipelineExecutor(2);
+    pipeline.initialize(TestingRig.parse(commands), null);
+    try {
+      Iterator<Row> iterator = pipeline.execute(rows.iterator());
+      Assert.assertEquals("GOOD", iterator.next().getValue("body"));
+      // Only the first chunk of the input has been executed.
+      Assert.assertEquals(20, pipeline.errors().size());
+
+      int count = 1;
+      while (iterator.hasNext()) {
+        iterator.next();
+        count++;
+      }
+      Assert.assertEquals(9900, count);
+      Assert.assertEquals(100, pipeline.errors().size());
+    } finally {
+      pipeline.destroy();
+    }
+  }
+
+  @Test
+  public void testCsvHeaderExecutedSequentially() throws Exception {
+    String[] commands = new String[] {
+      "parse-as-csv body , true",
+      "drop body"
+    };
+
+    List<Row> rows = new ArrayList<>();
+    rows.add(new Row("body", "id,name"));
+    for (int i = 0; i < 20000; ++i) {
+      rows.add(new Row("body", i + ",n" + i));
+    }
+
+    RecipePipeline pipeline = new ParallelRecipePipelineExecutor(4);
+    pipeline.initialize(TestingRig.parse(commands), null);
+    try {
+      List<Row> results = pipeline.execute(rows);
+      Assert.assertEquals(20000, results.size());
+      // Every row is named after the header of the first row.
+      Assert.assertEquals("19999", results.get(19999).getValue("id"));
+      Assert.assertEquals("n19999", results.get(19999).getValue("name"));
+    } finally {
+      pipeline.destroy();
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.executor;
+
+import co.cask.directives.column.Drop;
+import co.cask.directives.column.Keep;
+import co.cask.directives.row.RecordConditionFilter;
+import co.cask.directives.transformation.ColumnExpression;
+import co.cask.directives.transformation.Lower;
+import co.cask.directives.transformation.Upper;
+import co.cask.wrangler.TestingRig;
+import co.cask.wrangler.api.Executor;
+import co.cask.wrangler.api.Row;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests {@link RecipeOptimizer}.
+ */
+public class RecipeOptimizerTest {
+
+  private static List<Executor> optimize(String[] commands, Iterable<String> outputs) throws Exception {
+    List<Executor> directives = TestingRig.parse(commands).parse();
+    return RecipeOptimizer.optimize(directives, outputs == null ? null : ImmutableSet.copyOf(outputs));
+  }
+
+  @Test
+  public void testFilterMovedAheadOfIndependentDirectives() throws Exception {
+    String[] commands = new String[] {
+      "uppercase c",
+      "lowercase a",
+      "set-column b a + '!'",
+      "filter-row-if-true c == 'X'"
+    };
+
+    List<Executor> directives = optimize(commands, null);
+    Assert.assertEquals(4, directives.size());
+    Assert.assertTrue(directives.get(0) instanceof Upper);
+    Assert.assertTrue(directives.get(1) instanceof RecordConditionFilter);
+    Assert.assertTrue(directives.get(2) instanceof Lower);
+    Assert.assertTrue(directives.get(3) instanceof ColumnExpression);
+  }
+
+  @Test
+  public void testFilterNotMovedAheadOfUnknownDirectives() throws Exception {
+    String[] commands = new String[] {
+      "lowercase a",
+      "parse-as-csv body ,",
+      "filter-row-if-true a == 'x'"
+    };
+
+    List<Executor> directives = optimize(commands, null);
+    Assert.assertTrue(directives.get(2) instanceof RecordConditionFilter);
+  }
+
+  @Test
+  public void testCombineDropAndKeep() throws Exception {
+    String[] commands = new String[] {
+      "drop a",
+      "drop b,c",
+      "keep d,e,f",
+      "keep e,f,g"
+    };
+
+    List<Executor> directives = optimize(commands, null);
+    Assert.assertEquals(1, directives.size());
+    Assert.assertEquals(ImmutableSet.of("e", "f"), ((Keep) directives.get(0)).getColumns());
+
+    directives = optimize(new String[] { "drop a", "drop b,c", "keep a,d" }, null);
+    Assert.assertEquals(2, directives.size());
+    Assert.assertTrue(directives.get(0) instanceof Drop);
+    Assert.assertTrue(directives.get(1) instanceof Keep);
+
+    // Keep matches the case of the columns, the first keep only keeps 'a' and the second one drops it.
+    directives = optimize(new String[] { "keep a,b", "keep A,b" }, null);
+    Assert.assertEquals(2, directives.size());
+  }
+
+  @Test
+  public void testRemoveUnusedDirectives() throws Exception {
+    String[] commands = new String[] {
+      "lowercase a",
+      "set-column b c + '!'",
+      "uppercase d",
+      "keep b,c"
+    };
+
+    List<Executor> directives = optimize(commands, null);
+    Assert.assertEquals(2, directives.size());
+    Assert.assertTrue(directives.get(0) instanceof ColumnExpression);
+    Assert.assertTrue(directives.get(1) instanceof Keep);
+
+    directives = optimize(new String[] { "lowercase a", "uppercase b", "drop b" }, null);
+    Assert.assertEquals(2, directives.size());
+    Assert.assertTrue(directives.get(0) instanceof Lower);
+
+    directives = optimize(new String[] { "lowercase a", "set-column b a", "uppercase c" }, Arrays.asList("b"));
+    Assert.assertEquals(2, directives.size());
+    Assert.assertTrue(directives.get(0) instanceof Lower);
+    Assert.assertTrue(directives.get(1) instanceof ColumnExpression);
+  }
+
+  @Test
+  public void testInputsUsedForOutputs() throws Exception {
+    String[] commands = new String[] {
+      "lowercase A",
+      "set-column b a + c",
+      "uppercase d",
+      "filter-row-if-true e == 'x'"
+    };
+
+    List<Executor> directives = optimize(commands, Arrays.asList("b", "f"));
+    Assert.assertEquals(ImmutableSet.of("a", "c", "e", "f"),
+                        RecipeOptimizer.inputs(directives, Arrays.asList("b", "f")));
+
+    directives = optimize(new String[] { "parse-as-csv body ,", "lowercase a" }, Arrays.asList("a"));
+    Assert.assertNull(RecipeOptimizer.inputs(directives, Arrays.asList("a")));
+  }
+
+  @Test
+  public void testOptimizedExecution() throws Exception {
+    String[] commands = new String[] {
+      "lowercase a",
+      "uppercase b",
+      "filter-row-if-true b == 'X'",
+      "drop c",
+      "drop d",
+      "keep a,b"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("a", "A").add("b", "x").add("c", "1").add("d", "2"),
+      new Row("a", "B").add("b", "y").add("c", "1").add("d", "2")
+    );
+
+    List<Row> results = TestingRig.execute(commands, rows);
+    Assert.assertEquals(1, results.size());
+    Assert.assertEquals(2, results.get(0).length());
+    Assert.assertEquals("b", results.get(0).getValue("a"));
+    Assert.assertEquals("Y", results.get(0).getValue("b"));
+  }
+}
@@ -19,12 +19,25 @@ package co.cask.wrangler.executor;
 import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.wrangler.TestingRig;
+import co.cask.wrangler.api.Arguments;
+import co.cask.wrangler.api.Directive;
+import co.cask.wrangler.api.DirectiveContext;
+import co.cask.wrangler.api.ErrorRecord;
+import co.cask.wrangler.api.ErrorRowException;
+import co.cask.wrangler.api.Executor;
+import co.cask.wrangler.api.ExecutorContext;
+import co.cask.wrangler.api.RecipeParser;
 import co.cask.wrangler.api.RecipePipeline;
+import co.cask.wrangler.api.ReportErrorAndProceed;
 import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.parser.UsageDefinition;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 
 /**
  * Tests {@link RecipePipelineExecutor}.
@@ -96,4 +109,337 @@ public class RecipePipelineExecutorTest {
     Assert.assertEquals(1481666448L, record.<Long>get("timestamp").longValue());
     Assert.assertEquals(186.66f, record.get("weight"), 0.0001f);
   }
+
+  @Test
+  public void testBatchExecutionWithErrors() throws Exception {
+    String[] commands = new String[] {
+      "parse-as-csv body , true",
+      "drop body",
+      "send-to-error C == 1",
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "A,B,C,D"),
+      new Row("body", "X,Y,1,2.0"),
+      new Row("body", "U,V,2,3.0"),
+      new Row("body", "P,Q,3,4.0")
+    );
+
+    RecipeParser parser = TestingRig.parse(commands);
+    RecipePipeline pipeline = new RecipePipelineExecutor(true);
+    pipeline.initialize(parser, null);
+    List<Row> results = pipeline.execute(rows);
+    List<ErrorRecord> errors = pipeline.errors();
+
+    Assert.assertEquals(2, results.size());
+    Assert.assertEquals(1, errors.size());
+    Assert.assertEquals("2.0", errors.get(0).getRow().getValue("D"));
+    Assert.assertEquals("2", results.get(0).getValue("C"));
+    Assert.assertEquals("3", results.get(1).getValue("C"));
+  }
+
+  @Test
+  public void testBatchExecutionWithoutErrors() throws Exception {
+    String[] commands = new String[] {
+      "parse-as-csv body , true",
+      "drop body",
+      "lowercase A"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "A,B"),
+      new Row("body", "X,Y"),
+      new Row("body", "U,V")
+    );
+
+    RecipeParser parser = TestingRig.parse(commands);
+    RecipePipeline pipeline = new RecipePipelineExecutor(true);
+    pipeline.initialize(parser, null);
+    List<Row> results = pipeline.execute(rows);
+
+    Assert.assertEquals(2, results.size());
+    Assert.assertEquals(0, pipeline.errors().size());
+    Assert.assertEquals("x", results.get(0).getValue("A"));
+    Assert.assertEquals("u", results.get(1).getValue("A"));
+  }
+
+  @Test
+  public void testStreamingExecution() throws Exception {
+    String[] commands = new String[] {
+      "split-to-rows body ,",
+      "send-to-error body == 'x'",
+      "uppercase body"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "a,b"),
+      new Row("body", "x"),
+      new Row("body", "c")
+    );
+
+    RecipePipeline pipeline = TestingRig.execute(commands);
+    Iterator<Row> iterator = pipeline.execute(rows.iterator());
+
+    // Rows are pulled through the recipe only as the output is consumed.
+    Assert.assertTrue(iterator.hasNext());
+    Assert.assertEquals("A", iterator.next().getValue("body"));
+    Assert.assertEquals("B", iterator.next().getValue("body"));
+    Assert.assertEquals(0, pipeline.errors().size());
+
+    Assert.assertEquals("C", iterator.next().getValue("body"));
+    Assert.assertEquals(1, pipeline.errors().size());
+    Assert.assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  public void testVectorizedBatchExecution() throws Exception {
+    String[] commands = new String[] {
+      "trim name",
+      "lowercase name",
+      "set-column greeting 'hi ' + name",
+      "mask-number ssn xxxxx####",
+      "lowercase greeting"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("name", "  JOLTIE ").add("ssn", "000112222"),
+      new Row("name", "ROOT")
+    );
+
+    RecipeParser parser = TestingRig.parse(commands);
+    RecipePipeline pipeline = new RecipePipelineExecutor(true);
+    pipeline.initialize(parser, null);
+    List<Row> results = pipeline.execute(rows);
+
+    Assert.assertEquals(2, results.size());
+    Assert.assertEquals("joltie", results.get(0).getValue("name"));
+    Assert.assertEquals("hi joltie", results.get(0).getValue("greeting"));
+    Assert.assertEquals("xxxxx2222", results.get(0).getValue("ssn"));
+    Assert.assertEquals("root", results.get(1).getValue("name"));
+    Assert.assertEquals("hi root", results.get(1).getValue("greeting"));
+    Assert.assertEquals("", results.get(1).getValue("ssn"));
+    Assert.assertEquals(3, results.get(1).length());
+  }
+
+  @Test
+  public void testFilteredBatchExecution() throws Exception {
+    String[] commands = new String[] {
+      "trim name",
+      "lowercase name",
+      "filter-row-if-true name == 'skip'",
+      "filter-by-regex if-matched :name 'b.*'",
+      "filter-empty-or-null :ssn",
+      "uppercase name"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("name", "  A ").add("ssn", "1"),
+      new Row("name", " SKIP").add("ssn", "2"),
+      new Row("name", "Bob").add("ssn", "3"),
+      new Row("name", "c").add("ssn", null),
+      new Row("name", "d")
+    );
+
+    for (boolean batch : new boolean[] { true, false }) {
+      RecipePipeline pipeline = new RecipePipelineExecutor(batch);
+      pipeline.initialize(TestingRig.parse(commands), null);
+      List<Row> results = pipeline.execute(rows);
+
+      Assert.assertEquals(2, results.size());
+      Assert.assertEquals("A", results.get(0).getValue("name"));
+      Assert.assertEquals("1", results.get(0).getValue("ssn"));
+      Assert.assertEquals("D", results.get(1).getValue("name"));
+      Assert.assertEquals(1, results.get(1).length());
+    }
+  }
+
+  @Test
+  public void testJsonFlattenedToColumnsOutput() throws Exception {
+    String[] commands = new String[] {
+      "parse-as-json body",
+      "rename body_b_c c"
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "{\"a\": 1, \"b\": {\"c\": \"x\", \"d\": 2}, \"e\": [1, 2]}")
+    );
+
+    RecipePipeline pipeline = new RecipePipelineExecutor(false, Arrays.asList("body_a", "c"), true);
+    pipeline.initialize(TestingRig.parse(commands), null);
+    List<Row> results = pipeline.execute(rows);
+
+    Assert.assertEquals(1, results.size());
+    Assert.assertEquals(2, results.get(0).length());
+    Assert.assertEquals(1L, results.get(0).getValue("body_a"));
+    Assert.assertEquals("x", results.get(0).getValue("c"));
+  }
+
+  @Test
+  public void testBatchExecutionIsolatesErrors() throws Exception {
+    final RowDirective report = new RowDirective("r", false);
+    final RowDirective error = new RowDirective("e", true);
+    RecipeParser parser = new RecipeParser() {
+      @Override
+      public List<Executor> parse() {
+        return Arrays.<Executor>asList(report, error);
+      }
+
+      @Override
+      public void initialize(DirectiveContext context) {
+        // no-op
+      }
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "a"),
+      new Row("body", "e"),
+      new Row("body", "r"),
+      new Row("body", "re"),
+      new Row("body", "b")
+    );
+
+    RecipePipeline pipeline = new RecipePipelineExecutor(true);
+    pipeline.initialize(parser, null);
+    List<Row> results = pipeline.execute(rows);
+
+    // Each row goes once through each directive, the rows that didn't error are kept.
+    Assert.assertEquals(5, report.executed);
+    Assert.assertEquals(5, error.executed);
+    Assert.assertEquals(3, results.size());
+    Assert.assertEquals("a", results.get(0).getValue("body"));
+    Assert.assertEquals("r", results.get(1).getValue("body"));
+    Assert.assertEquals("b", results.get(2).getValue("body"));
+
+    List<ErrorRecord> errors = pipeline.errors();
+    Assert.assertEquals(2, errors.size());
+    Assert.assertEquals("e", errors.get(0).getRow().getValue("body"));
+    Assert.assertEquals("error", errors.get(0).getMessage());
+    Assert.assertEquals("re", errors.get(1).getRow().getValue("body"));
+    Assert.assertEquals("1:report,error", errors.get(1).getMessage());
+  }
+
+  @Test
+  public void testBatchExecutesDirectivesOnce() throws Exception {
+    final CountingDirective split = new CountingDirective(true);
+    final CountingDirective count = new CountingDirective(false);
+    final RowDirective error = new RowDirective("e", true);
+    RecipeParser parser = new RecipeParser() {
+      @Override
+      public List<Executor> parse() {
+        return Arrays.<Executor>asList(split, count, error);
+      }
+
+      @Override
+      public void initialize(DirectiveContext context) {
+        // no-op
+      }
+    };
+
+    List<Row> rows = Arrays.asList(
+      new Row("body", "a"),
+      new Row("body", "xe"),
+      new Row("body", "b")
+    );
+
+    RecipePipeline pipeline = new RecipePipelineExecutor(true);
+    pipeline.initialize(parser, null);
+    List<Row> results = pipeline.execute(rows);
+
+    // Directives that can't raise row errors are executed once on the whole batch.
+    Assert.assertEquals(1, split.calls);
+    Assert.assertEquals(1, count.calls);
+    Assert.assertEquals(6, count.rows);
+    // Rows split from the input row in error are all sent to error.
+    Assert.assertEquals(4, results.size());
+    Assert.assertEquals("a", results.get(0).getValue("body"));
+    Assert.assertEquals("b", results.get(3).getValue("body"));
+    Assert.assertEquals(1, pipeline.errors().size());
+    Assert.assertEquals("xe", pipeline.errors().get(0).getRow().getValue("body"));
+  }
+
+  /**
+   * Directive counting its invocations, optionally duplicating each row.
+   */
+  private static final class CountingDirective implements Directive {
+    private final boolean duplicate;
+    private int calls;
+    private int rows;
+
+    private CountingDirective(boolean duplicate) {
+      this.duplicate = duplicate;
+    }
+
+    @Override
+    public UsageDefinition define() {
+      return UsageDefinition.builder("counting-directive").build();
+    }
+
+    @Override
+    public void initialize(Arguments args) {
+      // no-op
+    }
+
+    @Override
+    public List<Row> execute(List<Row> rows, ExecutorContext context) {
+      calls++;
+      this.rows += rows.size();
+      if (!duplicate) {
+        return rows;
+      }
+      List<Row> results = new ArrayList<>();
+      for (Row row : rows) {
+        results.add(row);
+        results.add(new Row(row));
+      }
+      return results;
+    }
+
+    @Override
+    public void destroy() {
+      // no-op
+    }
+  }
+
+  /**
+   * Directive reporting an error or sending to error the rows whose body contains its marker.
+   */
+  private static final class RowDirective implements Directive {
+    private final String marker;
+    private final boolean error;
+    private int executed;
+
+    private RowDirective(String marker, boolean error) {
+      this.marker = marker;
+      this.error = error;
+    }
+
+    @Override
+    public UsageDefinition define() {
+      return UsageDefinition.builder("row-directive").build();
+    }
+
+    @Override
+    public void initialize(Arguments args) {
+      // no-op
+    }
+
+    @Override
+    public List<Row> execute(List<Row> rows, ExecutorContext context) throws ErrorRowException, ReportErrorAndProceed {
+      for (Row row : rows) {
+        executed++;
+        if (((String) row.getValue("body")).contains(marker)) {
+          if (error) {
+            throw new ErrorRowException("error", 2);
+          }
+          throw new ReportErrorAndProceed("report", 1);
+        }
+      }
+      return rows;
+    }
+
+    @Override
+    public void destroy() {
+      // no-op
+    }
+  }
 }
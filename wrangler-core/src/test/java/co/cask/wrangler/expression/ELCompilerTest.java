@@ -0,0 +1,245 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.wrangler.expression;
+
+import org.apache.commons.jexl3.JexlBuilder;
+import org.apache.commons.jexl3.JexlEngine;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests {@link ELCompiler}
+ */
+public class ELCompilerTest {
+  private static final Map<String, Object> FUNCTIONS = new EL.DefaultFunctions().functions();
+  private static final JexlEngine JEXL = new JexlBuilder()
+    .namespaces(FUNCTIONS)
+    .silent(false)
+    .strict(true)
+    .create();
+
+  private static ELContext context() {
+    return new ELContext()
+      .add("a", 3)
+      .add("b", 4L)
+      .add("d", 2.5)
+      .add("s", "Hello")
+      .add("n", null)
+      .add("t", true);
+  }
+
+  @Test
+  public void testCompiledSameAsInterpreted() throws Throwable {
+    String[] expressions = new String[] {
+      "a + b",
+      "a - b * 2",
+      "(a + b) % 2",
+      "a / 2",
+      "d * a",
+      "-a + 1",
+      "s + ' ' + a",
+      "a == 3 && s != 'x'",
+      "a > b || b >= 4",
+      "a <= d",
+      "!t",
+      "n == null",
+      "a > 2 ? s : 'small'",
+      "math:max(a, b)",
+      "math:abs(-7)",
+      "string:upperCase(s)",
+      "strings:isNullOrEmpty(s)",
+      "2147483648 + a"
+    };
+    for (String expression : expressions) {
+      ELNode node = ELCompiler.compile(expression, FUNCTIONS, JEXL.getArithmetic());
+      Assert.assertNotNull(expression, node);
+      Assert.assertEquals(expression, JEXL.createScript(expression).execute(context()), node.evaluate(context()));
+    }
+  }
+
+  @Test
+  public void testUnsupportedNotCompiled() throws Exception {
+    String[] expressions = new String[] {
+      "a.b",
+      "s.length()",
+      "a[0]",
+      "x = 1",
+      "s =~ 'H.*'",
+      "1.5",
+      "010",
+      "'a\\'b'",
+      "n ?: 1",
+      "size(s)",
+      "a ? b : math:abs(a)",
+      "a and t",
+      "a; b",
+      "unknown:fn(a)"
+    };
+    for (String expression : expressions) {
+      Assert.assertNull(expression, ELCompiler.compile(expression, FUNCTIONS, JEXL.getArithmetic()));
+    }
+  }
+
+  @Test
+  public void testConstantsFolded() throws Throwable {
+    String[] expressions = new String[] {
+      "1 + 2 * 3",
+      "'a' + 'b'",
+      "!(1 > 2) && true",
+      "math:max(2, 5) - 1",
+      "string:upperCase('abc')",
+      "false ? a : 'x'"
+    };
+    for (String expression : expressions) {
+      ELNode node = ELCompiler.compile(expression, FUNCTIONS, JEXL.getArithmetic());
+      Assert.assertTrue(expression, node.isLiteral());
+      Assert.assertEquals(expression, JEXL.createScript(expression).execute(context()), node.evaluate(null));
+    }
+    // Errors are left to be reported when executed.
+    Assert.assertFalse(ELCompiler.compile("1 / 0", FUNCTIONS, JEXL.getArithmetic()).isLiteral());
+    Assert.assertFalse(ELCompiler.compile("a + 1 + 2", FUNCTIONS, JEXL.getArithmetic()).isLiteral());
+  }
+
+  @Test
+  public void testRepeatedCallsEvaluatedOnce() throws Throwable {
+    String expression = "math:abs(a) + math:abs(a) * 2";
+    ELNode node = ELCompiler.compile(expression, FUNCTIONS, JEXL.getArithmetic());
+    CountingContext context = new CountingContext();
+    context.add("a", -3);
+
+    Assert.assertEquals(JEXL.createScript(expression).execute(context()), node.evaluate(context));
+    Assert.assertEquals(1, context.reads);
+    // Results are not reused between evaluations.
+    context.add("a", 5);
+    Assert.assertEquals(15, ((Number) node.evaluate(context)).intValue());
+    Assert.assertEquals(2, context.reads);
+  }
+
+  @Test
+  public void testOnlyDeterministicCallsReused() throws Throwable {
+    Map<String, Object> functions = new HashMap<>(FUNCTIONS);
+    functions.put("test", Counter.class);
+    ELNode node = ELCompiler.compile("test:tag(s) + test:tag(s)", functions, JEXL.getArithmetic());
+
+    Counter.calls = 0;
+    Assert.assertEquals("Hello!Hello!", node.evaluate(context()));
+    // Functions not listed as deterministic are called each time.
+    Assert.assertEquals(2, Counter.calls);
+    Assert.assertFalse(ELCompiler.compile("math:random() * a", FUNCTIONS, JEXL.getArithmetic()).isDeterministic());
+    Assert.assertTrue(ELCompiler.compile("math:abs(a) > 2", FUNCTIONS, JEXL.getArithmetic()).isDeterministic());
+  }
+
+  @Test
+  public void testCallsResolvedForEachTypeOfArguments() throws Throwable {
+    Map<String, Object> functions = new HashMap<>(FUNCTIONS);
+    functions.put("test", Counter.class);
+    ELNode node = ELCompiler.compile("test:type(x)", functions, JEXL.getArithmetic());
+    Object[] values = new Object[] {3, 2.5, "s", 4L, 3, null, 'c', 2.5f, "s", 3};
+    String[] types = new String[] {"int", "double", "String", "double", "int", "String", "int", "double",
+      "String", "int"};
+
+    // More types of arguments than the methods kept for the call are resolved.
+    for (int i = 0; i < values.length; ++i) {
+      Assert.assertEquals(String.valueOf(values[i]), types[i], node.evaluate(new ELContext("x", values[i])));
+    }
+    node = ELCompiler.compile("test:concat(s, a, x, s)", functions, JEXL.getArithmetic());
+    Assert.assertEquals("Hello3xHello", node.evaluate(context().add("x", 'x')));
+    Assert.assertEquals("Hello3yHello", node.evaluate(context().add("x", "y")));
+  }
+
+  /**
+   * Context counting the reads of the variable 'a'.
+   */
+  private static final class CountingContext extends ELContext {
+    private int reads;
+
+    @Override
+    public Object get(String name) {
+      if ("a".equals(name)) {
+        reads++;
+      }
+      return super.get(name);
+    }
+  }
+
+  /**
+   * Functions counting the number of times they are called.
+   */
+  public static final class Counter {
+    private static int calls;
+
+    public static String tag(String value) {
+      calls++;
+      return value + "!";
+    }
+
+    public static String type(int value) {
+      return "int";
+    }
+
+    public static String type(double value) {
+      return "double";
+    }
+
+    public static String type(String value) {
+      return "String";
+    }
+
+    public static String concat(String first, int second, Object third, String fourth) {
+      return first + second + third + fourth;
+    }
+
+    public static String fail(String value) {
+      calls++;
+      throw new IllegalArgumentException("Failed " + value);
+    }
+  }
+
+  @Test
+  public void testFailuresReported() throws Exception {
+    EL el = new EL(new EL.DefaultFunctions());
+    el.compile("a + 1");
+    try {
+      el.execute(new ELContext("b", 1), false);
+      Assert.fail();
+    } catch (ELException e) {
+      Assert.assertTrue(e.getMessage().contains("undefined variable a"));
+    }
+  }
+
+  @Test
+  public void testFunctionFailureReportedOnce() throws Exception {
+    Map<String, Object> functions = new HashMap<>(FUNCTIONS);
+    functions.put("test", Counter.class);
+    EL el = new EL(() -> functions);
+    el.compile("test:fail(s) + a");
+
+    Counter.calls = 0;
+    try {
+      el.execute(context());
+      Assert.fail();
+    } catch (ELException e) {
+      Assert.assertEquals("Failed Hello", e.getMessage());
+    }
+    // The expression is not executed again to report the error.
+    Assert.assertEquals(1, Counter.calls);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.wrangler.expression;
+
+import co.cask.wrangler.api.Row;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link ELRowContext}
+ */
+public class ELRowContextTest {
+
+  @Test
+  public void testRowsBoundToVariables() throws Exception {
+    EL el = new EL(new EL.DefaultFunctions());
+    el.compile("a + b");
+    ELRowContext ctx = new ELRowContext(el.variables());
+
+    Assert.assertEquals(new Integer(3), el.execute(ctx.bind(new Row("a", 1).add("b", 2), null)).getInteger());
+    Assert.assertEquals(new Integer(7), el.execute(ctx.bind(new Row("a", 3).add("b", 4), null)).getInteger());
+    // Columns missing are bound to null.
+    Assert.assertTrue(ctx.bind(new Row("a", 3), null).has("b"));
+    Assert.assertNull(ctx.get("b"));
+  }
+
+  @Test
+  public void testRowAndScriptVariables() throws Exception {
+    EL el = new EL(new EL.DefaultFunctions());
+    el.compile("a + 1");
+    ELRowContext ctx = new ELRowContext(el.variables());
+    Row row = new Row("a", 1);
+    ctx.bind(row, null);
+    Assert.assertSame(row, ctx.get("this"));
+    // Runtime values are not available without an executor context.
+    Assert.assertFalse(ctx.has("runtime"));
+    Assert.assertNull(ctx.get("context"));
+  }
+
+  @Test
+  public void testScriptVariablesCleared() throws Exception {
+    EL el = new EL(new EL.DefaultFunctions());
+    el.compile("x = a * 2; x + 1");
+    ELRowContext ctx = new ELRowContext(el.variables());
+    Assert.assertEquals(new Integer(5), el.execute(ctx.bind(new Row("a", 2), null)).getInteger());
+    Assert.assertEquals(new Integer(7), el.execute(ctx.bind(new Row("a", 3), null)).getInteger());
+  }
+
+  @Test
+  public void testColumnValueReplaced() throws Exception {
+    EL el = new EL(new EL.DefaultFunctions());
+    el.compile("a + 'b'");
+    ELRowContext ctx = new ELRowContext(el.variables(), true);
+    ctx.bind(new Row("a", 1), null);
+    ctx.setColumn("a", "1");
+    Assert.assertEquals("1b", el.execute(ctx).getObject());
+  }
+
+  @Test
+  public void testCallsSharedOnRow() throws Exception {
+    EL first = new EL(new EL.DefaultFunctions());
+    first.compile("math:abs(a) + 1");
+    EL second = new EL(new EL.DefaultFunctions());
+    second.compile("math:abs(a) * 2");
+    ELRowContext firstContext = new ELRowContext(first.variables());
+    ELRowContext secondContext = new ELRowContext(second.variables());
+    Row row = new Row("a", -3);
+
+    Assert.assertEquals(new Integer(4), first.execute(firstContext.bind(row, null)).getInteger());
+    // The result of the call compiled by both expressions is kept on the row.
+    Assert.assertEquals(1, row.getComputed().size());
+    Assert.assertEquals(new Integer(6), second.execute(secondContext.bind(row, null)).getInteger());
+    // The call is evaluated again once the column changed.
+    row.setValue(0, -5);
+    Assert.assertEquals(new Integer(10), second.execute(secondContext.bind(row, null)).getInteger());
+    Assert.assertTrue(new Row(row).getComputed().isEmpty());
+  }
+}
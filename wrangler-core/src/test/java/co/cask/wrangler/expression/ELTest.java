@@ -64,4 +64,31 @@ public class ELTest {
     ELResult execute = el.execute(ctx);
     Assert.assertEquals(true, execute.getBoolean());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testScriptsSharedAcrossInstances() throws Exception {
+    EL first = new EL(new EL.DefaultFunctions());
+    EL second = new EL(new EL.DefaultFunctions());
+    first.compile("a * 2");
+    second.compile("a * 2");
+    Assert.assertEquals(first.variables(), second.variables());
+    Assert.assertEquals(new Integer(4), first.execute(new ELContext().add("a", 2)).getInteger());
+    Assert.assertEquals(new Integer(6), second.execute(new ELContext().add("a", 3)).getInteger());
+
+    // Compiling another expression doesn't change the other instance.
+    second.compile("b");
+    Assert.assertTrue(first.variables().contains("a"));
+    Assert.assertFalse(first.variables().contains("b"));
+  }
+
+  @Test(expected = ELException.class)
+  public void testInvalidExpressionNotCached() throws Exception {
+    EL el = new EL(new EL.DefaultFunctions());
+    try {
+      el.compile("a + ");
+    } catch (ELException e) {
+      // Fails again, the failure is not cached.
+      el.compile("a + ");
+    }
+  }
+}
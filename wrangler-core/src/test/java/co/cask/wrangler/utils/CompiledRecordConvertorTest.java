@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler.utils;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.wrangler.api.Row;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+/**
+ * Tests {@link CompiledRecordConvertor}
+ */
+public class CompiledRecordConvertorTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("price", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("date", Schema.nullableOf(Schema.of(Schema.LogicalType.DATE)))
+  );
+
+  @Test
+  public void testConversionMatchesRecordConvertor() throws Exception {
+    CompiledRecordConvertor convertor = new CompiledRecordConvertor(SCHEMA);
+    Row[] rows = new Row[] {
+      new Row("id", 1).add("name", "joltie").add("price", 1.5).add("date", LocalDate.of(2018, 1, 1)),
+      new Row("id", "2").add("name", null).add("price", "2.5").add("extra", "x"),
+      new Row("price", 3.0f).add("ID", 3).add("name", 10)
+    };
+
+    for (Row row : rows) {
+      StructuredRecord expected = new RecordConvertor().decodeRecord(row, SCHEMA);
+      StructuredRecord actual = convertor.convert(row);
+      for (Schema.Field field : SCHEMA.getFields()) {
+        Assert.assertEquals(expected.get(field.getName()), actual.get(field.getName()));
+      }
+    }
+  }
+
+  @Test
+  public void testRowsSharingHeader() throws Exception {
+    CompiledRecordConvertor convertor = new CompiledRecordConvertor(SCHEMA);
+    StructuredRecord first = convertor.convert(new Row("name", "a").add("id", 1));
+    StructuredRecord second = convertor.convert(new Row("name", "b").add("id", 2));
+    StructuredRecord third = convertor.convert(new Row("id", 3).add("name", "c"));
+
+    Assert.assertEquals("a", first.get("name"));
+    Assert.assertEquals(2, (int) second.get("id"));
+    Assert.assertEquals("b", second.get("name"));
+    Assert.assertEquals(3, (int) third.get("id"));
+    Assert.assertEquals("c", third.get("name"));
+  }
+
+  @Test(expected = RecordConvertorException.class)
+  public void testMissingRequiredField() throws Exception {
+    new CompiledRecordConvertor(SCHEMA).convert(new Row("name", "a"));
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.wrangler.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests {@link JsonDocumentCache}.
+ */
+public class JsonDocumentCacheTest {
+
+  @Test
+  public void testDocumentParsedOnce() throws Exception {
+    String json = "{\"a\": 1, \"b\": [1, 2]}";
+    JsonElement element = JsonDocumentCache.parse(json);
+    Assert.assertSame(element, JsonDocumentCache.parse(json));
+    Assert.assertSame(element, JsonDocumentCache.get(json));
+
+    // Documents are looked up by identity of the value.
+    String other = new String(json);
+    Assert.assertNull(JsonDocumentCache.get(other));
+    Assert.assertNotSame(element, JsonDocumentCache.parse(other));
+    Assert.assertEquals(element, JsonDocumentCache.parse(other));
+  }
+
+  @Test
+  public void testOldestDocumentsReplaced() throws Exception {
+    String first = "{\"a\": 0}";
+    JsonDocumentCache.parse(first);
+    for (int i = 1; i < 100; ++i) {
+      JsonDocumentCache.parse("{\"a\": " + i + "}");
+    }
+    Assert.assertNull(JsonDocumentCache.get(first));
+  }
+
+  @Test
+  public void testCopy() throws Exception {
+    JsonElement element = JsonDocumentCache.parse("{\"a\": {\"b\": [1, {\"c\": 2}]}, \"d\": \"x\"}");
+    JsonElement copy = JsonDocumentCache.copy(element);
+    Assert.assertEquals(element, copy);
+
+    JsonArray array = copy.getAsJsonObject().getAsJsonObject("a").getAsJsonArray("b");
+    array.get(1).getAsJsonObject().remove("c");
+    array.add(new JsonObject());
+    copy.getAsJsonObject().remove("d");
+
+    JsonObject object = element.getAsJsonObject();
+    Assert.assertEquals("x", object.get("d").getAsString());
+    Assert.assertEquals(2, object.getAsJsonObject("a").getAsJsonArray("b").size());
+    Assert.assertEquals(2, object.getAsJsonObject("a").getAsJsonArray("b").get(1).getAsJsonObject().get("c").getAsInt());
+  }
+}
@@ -44,6 +44,7 @@ import co.cask.wrangler.api.DirectiveRegistry;
 import co.cask.wrangler.api.ExecutorContext;
 import co.cask.wrangler.api.GrammarMigrator;
 import co.cask.wrangler.api.Pair;
+import co.cask.wrangler.api.RecipeException;
 import co.cask.wrangler.api.RecipeParser;
 import co.cask.wrangler.api.RecipeSymbol;
 import co.cask.wrangler.api.Row;
@@ -54,7 +55,7 @@ import co.cask.wrangler.api.parser.TokenType;
 import co.cask.wrangler.dataset.workspace.DataType;
 import co.cask.wrangler.dataset.workspace.WorkspaceDataset;
 import co.cask.wrangler.dataset.workspace.WorkspaceException;
-import co.cask.wrangler.executor.RecipePipelineExecutor;
+import co.cask.wrangler.executor.ParallelRecipePipelineExecutor;
 import co.cask.wrangler.parser.ConfigDirectiveContext;
 import co.cask.wrangler.parser.GrammarBasedParser;
 import co.cask.wrangler.parser.MigrateToV2;
@@ -610,7 +611,7 @@ public class DirectivesService extends AbstractHttpServiceHandler {
           int min = Math.min(records.size(), limit);
           return records.subList(0, min);
         }
-      });
+      }, user.getWorkspace().getResults());
 
       JsonArray values = new JsonArray();
       JsonArray headers = new JsonArray();
@@ -1211,6 +1212,22 @@ public class DirectivesService extends AbstractHttpServiceHandler {
   private List<Row> executeDirectives(String id, @Nullable Request user,
                                       Function<List<Row>, List<Row>> sample)
     throws Exception {
+    return executeDirectives(id, user, sample, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Executes directives by extracting them from request. Execution stops once the
+   * directives have generated {@code limit} records.
+   *
+   * @param id data to be used for executing directives.
+   * @param user request passed on http.
+   * @param sample sampling function.
+   * @param limit maximum number of records to be generated.
+   * @return records generated from the directives.
+   */
+  private List<Row> executeDirectives(String id, @Nullable Request user,
+                                      Function<List<Row>, List<Row>> sample, int limit)
+    throws Exception {
     if (user == null) {
       throw new Exception("Request is empty. Please check if the request is sent as HTTP POST body.");
     }
@@ -1222,15 +1239,28 @@ public class DirectivesService extends AbstractHttpServiceHandler {
     ExecutorContext context = new ServicePipelineContext(ExecutorContext.Environment.SERVICE,
                                                          getContext(),
                                                          store);
-    RecipePipelineExecutor executor = new RecipePipelineExecutor();
+    // Each worker executes the directives once on its partition of the sample, vectorized
+    // directives running over the columns of the partition.
+    ParallelRecipePipelineExecutor executor =
+      new ParallelRecipePipelineExecutor(Runtime.getRuntime().availableProcessors(), true);
     if (user.getRecipe().getDirectives().size() > 0) {
       GrammarMigrator migrator = new MigrateToV2(user.getRecipe().getDirectives());
       String migrate = migrator.migrate();
       RecipeParser recipe = new GrammarBasedParser(migrate, composite);
       recipe.initialize(new ConfigDirectiveContext(table.getConfigString()));
       executor.initialize(recipe, context);
-      rows = executor.execute(sample.apply(rows));
-      executor.destroy();
+      try {
+        Iterator<Row> iterator = executor.execute(sample.apply(rows).iterator());
+        List<Row> results = new ArrayList<>();
+        while (results.size() < limit && iterator.hasNext()) {
+          results.add(iterator.next());
+        }
+        rows = results;
+      } catch (IllegalStateException e) {
+        throw e.getCause() instanceof RecipeException ? (RecipeException) e.getCause() : e;
+      } finally {
+        executor.destroy();
+      }
     }
     return rows;
   }
@@ -0,0 +1,386 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.etl.api.Lookup;
+import co.cask.cdap.etl.api.StageMetrics;
+import co.cask.directives.aggregates.DefaultTransientStore;
+import co.cask.wrangler.api.ErrorRecord;
+import co.cask.wrangler.api.ExecutorContext;
+import co.cask.wrangler.api.RecipeException;
+import co.cask.wrangler.api.RecipeParser;
+import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.TransientStore;
+import co.cask.wrangler.api.TransientVariableScope;
+import co.cask.wrangler.executor.RecipePipelineExecutor;
+import co.cask.wrangler.parser.GrammarBasedParser;
+import co.cask.wrangler.parser.MigrateToV2;
+import co.cask.wrangler.registry.CompositeDirectiveRegistry;
+import co.cask.wrangler.registry.SystemDirectiveRegistry;
+import co.cask.wrangler.utils.CompiledRecordConvertor;
+import co.cask.wrangler.utils.RecordConvertorException;
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+
+/**
+ * Wrangles the records of a Spark partition.
+ *
+ * <p>The recipe is parsed and the pipeline is initialized once per partition. The records of
+ * the partition are pulled through the pipeline as the output is consumed, so only the rows
+ * generated from a single record are held in memory.</p>
+ *
+ * <p>With a batch size greater than one, the records are pulled a batch at a time and each
+ * directive is executed once on all the rows of the batch, the rows generated from a batch being
+ * held in memory. Records sent to error are isolated the same way. When a directive fails on a
+ * batch, its records are wrangled anew one at a time, so only the failing record is counted as
+ * failed. Recipes setting transient variables are always wrangled one record at a time.</p>
+ *
+ * <p>Spark compute stages have no error output, records sent to error by the recipe count against
+ * the error threshold as the records failing do, so they are not dropped silently.</p>
+ */
+final class PartitionWrangler implements FlatMapFunction<Iterator<StructuredRecord>, StructuredRecord> {
+  private static final Logger LOG = LoggerFactory.getLogger(PartitionWrangler.class);
+
+  private final String directives;
+  private final String precondition;
+  private final String field;
+  private final String schema;
+  private final int threshold;
+  private final boolean optimize;
+  private final int batchSize;
+  private final String stageName;
+  private final StageMetrics metrics;
+  private final Map<String, String> properties;
+
+  PartitionWrangler(String directives, String precondition, String field, String schema, int threshold,
+                    boolean optimize, int batchSize, String stageName, StageMetrics metrics,
+                    Map<String, String> properties) {
+    this.directives = directives;
+    this.precondition = precondition;
+    this.field = field;
+    this.schema = schema;
+    this.threshold = threshold;
+    this.optimize = optimize;
+    this.batchSize = batchSize;
+    this.stageName = stageName;
+    this.metrics = metrics;
+    this.properties = properties;
+  }
+
+  @Override
+  public Iterator<StructuredRecord> call(Iterator<StructuredRecord> records) throws Exception {
+    return new Output(records);
+  }
+
+  /**
+   * Records output by the recipe for the records of a partition.
+   */
+  private final class Output implements Iterator<StructuredRecord> {
+    private final Iterator<StructuredRecord> records;
+    private final TransientStore store = new DefaultTransientStore();
+    private final RecipePipelineExecutor executor;
+    private final CompiledRecordConvertor convertor;
+    private final RecordRowFactory rowFactory;
+    private final Precondition condition;
+    // True if the records are wrangled a batch at a time.
+    private final boolean batched;
+
+    private Iterator<Row> rows;
+    private StructuredRecord next;
+    private boolean done;
+    // Number of errors of the pipeline already counted.
+    private int errors;
+    private long errorCounter;
+
+    private Output(Iterator<StructuredRecord> records) throws Exception {
+      this.records = records;
+      Schema oSchema = Schema.parseJson(schema);
+      this.convertor = new CompiledRecordConvertor(oSchema);
+      this.condition = precondition == null || precondition.trim().isEmpty() ? null : new Precondition(precondition);
+
+      List<String> outputs = new ArrayList<>();
+      for (Schema.Field output : oSchema.getFields()) {
+        outputs.add(output.getName());
+      }
+      RecipeParser recipe = new GrammarBasedParser(new MigrateToV2(directives).migrate(),
+                                                   new CompositeDirectiveRegistry(new SystemDirectiveRegistry()));
+      this.executor = new RecipePipelineExecutor(batchSize > 1, outputs, optimize);
+      executor.initialize(recipe, new PartitionContext(stageName, metrics, properties, store));
+      this.batched = executor.isBatched();
+
+      // The precondition is evaluated on all the fields of the row.
+      this.rowFactory = new RecordRowFactory(condition == null ? executor.getInputs() : null);
+      this.rows = batched ? Collections.<Row>emptyIterator() : executor.execute(new InputRows());
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (next == null && !done) {
+        Row row;
+        try {
+          if (!rows.hasNext()) {
+            if (batched && executeBatch()) {
+              continue;
+            }
+            countErrors();
+            executor.destroy();
+            done = true;
+            break;
+          }
+          row = rows.next();
+        } catch (IllegalStateException e) {
+          // The record being wrangled failed, the records following it are wrangled anew.
+          countErrors();
+          fail(e.getCause() == null ? e : e.getCause());
+          if (!batched) {
+            errors = 0;
+            rows = executor.execute(new InputRows());
+          }
+          continue;
+        }
+        countErrors();
+
+        try {
+          next = convertor.convert(row);
+        } catch (RecordConvertorException e) {
+          fail(e);
+        }
+      }
+      return next != null;
+    }
+
+    @Override
+    public StructuredRecord next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException("No more records output by the recipe.");
+      }
+      StructuredRecord record = next;
+      next = null;
+      return record;
+    }
+
+    /**
+     * Wrangles the next batch of records. If a directive fails on the batch, the records of the
+     * batch are wrangled anew one at a time.
+     *
+     * @return false if there are no more records in the partition.
+     */
+    private boolean executeBatch() {
+      countErrors();
+      InputRows input = new InputRows();
+      List<StructuredRecord> records = new ArrayList<>(batchSize);
+      List<Row> batch = new ArrayList<>(batchSize);
+      while (batch.size() < batchSize && input.hasNext()) {
+        records.add(input.record);
+        batch.add(input.next());
+      }
+      if (batch.isEmpty()) {
+        return false;
+      }
+      errors = 0;
+      try {
+        rows = executor.execute(batch).iterator();
+      } catch (RecipeException e) {
+        // Directives mutate the rows, the records are wrangled from new rows.
+        rows = executor.execute(new RecordRows(records.iterator()));
+      }
+      return true;
+    }
+
+    /**
+     * Counts the records sent to error by the pipeline since last counted, terminating the
+     * processing once the error threshold is reached.
+     */
+    private void countErrors() {
+      List<ErrorRecord> records = executor.errors();
+      for (; errors < records.size(); ++errors) {
+        ErrorRecord error = records.get(errors);
+        metrics.count("errors", 1);
+        String message = String.format("Record sent to error with code %d: %s", error.getCode(), error.getMessage());
+        checkThreshold(message, null);
+        LOG.warn("Stage:{} - {}", stageName, message);
+      }
+    }
+
+    /**
+     * Counts a record failing, terminating the processing once the error threshold is reached.
+     */
+    private void fail(Throwable e) {
+      metrics.count("failures", 1);
+      checkThreshold(e.getMessage(), e);
+      LOG.debug("Stage:{} - Record failed: {}", stageName, e.getMessage());
+    }
+
+    /**
+     * Counts an error, terminating the processing once the error threshold is reached.
+     */
+    private void checkThreshold(String message, @Nullable Throwable cause) {
+      errorCounter++;
+      // If threshold is set to -1, it tolerant unlimited errors
+      if (threshold != -1 && errorCounter > threshold) {
+        throw new RuntimeException(String.format("Stage:%s - Reached error threshold %d, terminating processing " +
+                                                   "due to error : %s", stageName, threshold, message), cause);
+      }
+    }
+
+    /**
+     * Rows created from the records of the partition that pass the precondition.
+     */
+    private final class InputRows implements Iterator<Row> {
+      private Row row;
+      // Record the next row was created from.
+      private StructuredRecord record;
+
+      @Override
+      public boolean hasNext() {
+        while (row == null && records.hasNext()) {
+          StructuredRecord record = records.next();
+          try {
+            Row created = create(record);
+            if (condition != null && condition.apply(created)) {
+              metrics.count("precondition.filtered", 1);
+              continue;
+            }
+            row = created;
+            this.record = record;
+          } catch (Exception e) {
+            fail(e);
+          }
+        }
+        return row != null;
+      }
+
+      @Override
+      public Row next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException("No more records in the partition.");
+        }
+        // The row is wrangled as soon as it's pulled, reset the record aggregation store.
+        store.reset(TransientVariableScope.GLOBAL);
+        Row pulled = row;
+        row = null;
+        return pulled;
+      }
+
+    }
+
+    /**
+     * Rows created from records that already passed the precondition.
+     */
+    private final class RecordRows implements Iterator<Row> {
+      private final Iterator<StructuredRecord> records;
+
+      private RecordRows(Iterator<StructuredRecord> records) {
+        this.records = records;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return records.hasNext();
+      }
+
+      @Override
+      public Row next() {
+        store.reset(TransientVariableScope.GLOBAL);
+        return create(records.next());
+      }
+    }
+
+    private Row create(StructuredRecord record) {
+      if ("*".equalsIgnoreCase(field)) {
+        return rowFactory.create(record);
+      } else if ("#".equalsIgnoreCase(field)) {
+        return new Row(record.getSchema().getRecordName(), record);
+      }
+      return new Row(field, Wrangler.getValue(record, field));
+    }
+  }
+
+  /**
+   * Runtime context of the directives executed on a partition.
+   */
+  private static final class PartitionContext implements ExecutorContext {
+    private final String name;
+    private final StageMetrics metrics;
+    private final Map<String, String> properties;
+    private final TransientStore store;
+
+    private PartitionContext(String name, StageMetrics metrics, Map<String, String> properties,
+                             TransientStore store) {
+      this.name = name;
+      this.metrics = metrics;
+      this.properties = properties;
+      this.store = store;
+    }
+
+    @Override
+    public Environment getEnvironment() {
+      return Environment.TRANSFORM;
+    }
+
+    @Override
+    public StageMetrics getMetrics() {
+      return metrics;
+    }
+
+    @Override
+    public String getContextName() {
+      return name;
+    }
+
+    @Override
+    public Map<String, String> getProperties() {
+      return properties;
+    }
+
+    /**
+     * Services are not reachable from the Spark executors, recipes using them are rejected
+     * by {@link WranglerCompute}.
+     */
+    @Override
+    public URL getService(String applicationId, String serviceId) {
+      throw new IllegalStateException(String.format("Service '%s' of application '%s' is not reachable from Spark.",
+                                                    serviceId, applicationId));
+    }
+
+    @Override
+    public TransientStore getTransientStore() {
+      return store;
+    }
+
+    /**
+     * Lookups are not available to the Spark executors, recipes using them are rejected by
+     * {@link WranglerCompute}.
+     */
+    @Override
+    public <T> Lookup<T> provide(String s, Map<String, String> map) {
+      throw new IllegalStateException(String.format("Lookup of '%s' is not available on Spark.", s));
+    }
+  }
+}
@@ -17,57 +17,53 @@
 package co.cask.wrangler;
 
 import co.cask.wrangler.api.Row;
-import org.apache.commons.jexl3.scripting.JexlScriptEngine;
-
-import javax.script.Bindings;
-import javax.script.CompiledScript;
-import javax.script.ScriptException;
-import javax.script.SimpleBindings;
+import co.cask.wrangler.expression.EL;
+import co.cask.wrangler.expression.ELException;
+import co.cask.wrangler.expression.ELResult;
+import co.cask.wrangler.expression.ELRowContext;
 
 /**
  * A precondition expression that filters data into the directives.
+ *
+ * <p>The condition is compiled once, and the columns it references are bound to a context
+ * reused for all the rows. Simple conditions, such as comparisons of columns with constants,
+ * are evaluated without interpreting the expression.</p>
  */
 public class Precondition {
   private final String condition;
-  private final CompiledScript script;
+  private final EL el;
+  private final ELRowContext context;
 
   public Precondition(String condition) throws PreconditionException {
     this.condition = condition;
-    JexlScriptEngine engine = new JexlScriptEngine();
+    this.el = new EL(new EL.DefaultFunctions());
     try {
-      script = engine.compile(condition);
-    } catch (ScriptException e) {
-      if (e.getCause() != null) {
-        throw new PreconditionException(e.getCause().getMessage());
-      } else {
-        throw new PreconditionException(e.getMessage());
-      }
+      el.compile(condition);
+    } catch (ELException e) {
+      throw new PreconditionException(e.getMessage());
     }
+    this.context = new ELRowContext(el.variables());
   }
 
   public boolean apply(Row row) throws PreconditionException {
-    Bindings ctx = new SimpleBindings();
-    for (int i = 0; i < row.length(); ++i) {
-      ctx.put(row.getColumn(i), row.getValue(i));
+    for (String variable : el.variables()) {
+      if (row.find(variable) == -1) {
+        throw new PreconditionException(
+          String.format("Precondition '%s' references undefined variable '%s'.", condition, variable)
+        );
+      }
     }
 
     try {
-      Object result = script.eval(ctx);
-      if (!(result instanceof Boolean)) {
+      ELResult result = el.execute(context.bind(row, null), false);
+      if (!(result.getObject() instanceof Boolean)) {
         throw new PreconditionException(
           String.format("Precondition '%s' does not result in true or false.", condition)
         );
       }
-      return (Boolean) result;
-    } catch (ScriptException e) {
-      // Generally JexlException wraps the original exception, so it's good idea
-      // to check if there is a inner exception, if there is wrap it in 'DirectiveExecutionException'
-      // else just print the error message.
-      if (e.getCause() != null) {
-        throw new PreconditionException(e.getCause().getMessage());
-      } else {
-        throw new PreconditionException(e.getMessage());
-      }
+      return result.getBoolean();
+    } catch (ELException e) {
+      throw new PreconditionException(e.getMessage());
     }
   }
 }
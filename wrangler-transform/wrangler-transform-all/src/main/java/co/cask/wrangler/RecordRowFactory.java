@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.format.UnexpectedFormatException;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.wrangler.api.Row;
+import co.cask.wrangler.api.RowHeader;
+import co.cask.wrangler.api.ValueLoader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Creates the {@link Row}s wrangled from the fields of the input {@link StructuredRecord}s.
+ *
+ * <p>Rows wrap the input record, the value of a field is read from the record only when a
+ * directive first reads the column. The header of the rows and the loader reading the fields
+ * are resolved once per input schema and shared by the rows created. Fields of types that
+ * can't be wrangled fail the creation of the rows.</p>
+ */
+final class RecordRowFactory {
+  // Kind of accessor used to read a field from the record.
+  private static final byte VALUE = 0;
+  private static final byte DATE = 1;
+  private static final byte TIME = 2;
+  private static final byte TIMESTAMP = 3;
+
+  // Names of the fields loaded in lower case, null to load all the fields.
+  private final Set<String> fields;
+
+  // Schema the header and loader were resolved for.
+  private Schema schema;
+  private RowHeader header;
+  private FieldLoader loader;
+
+  /**
+   * @param fields names of the fields to be loaded in lower case, null to load all the fields.
+   */
+  RecordRowFactory(@Nullable Set<String> fields) {
+    this.fields = fields;
+  }
+
+  /**
+   * Creates a row over the fields of the record.
+   *
+   * @param record to be wrangled.
+   * @return row loading the fields from the record when read.
+   * @throws UnexpectedFormatException if a field of the record is of a type not supported.
+   */
+  Row create(StructuredRecord record) {
+    if (record.getSchema() != schema && !record.getSchema().equals(schema)) {
+      resolve(record.getSchema());
+    }
+    return new Row(header, loader, record);
+  }
+
+  private void resolve(Schema schema) {
+    List<String> names = new ArrayList<>();
+    List<Byte> kinds = new ArrayList<>();
+    for (Schema.Field field : schema.getFields()) {
+      Schema fieldSchema = field.getSchema();
+      fieldSchema = fieldSchema.isNullable() ? fieldSchema.getNonNullable() : fieldSchema;
+      // Fields not loaded are still validated, as when all the fields are loaded.
+      byte accessor = accessor(fieldSchema.getLogicalType());
+      if (fields != null && !fields.contains(field.getName().toLowerCase())) {
+        continue;
+      }
+      names.add(field.getName());
+      kinds.add(accessor);
+    }
+
+    byte[] accessors = new byte[kinds.size()];
+    for (int i = 0; i < accessors.length; ++i) {
+      accessors[i] = kinds.get(i);
+    }
+    this.header = RowHeader.of(names);
+    this.loader = new FieldLoader(header, accessors);
+    this.schema = schema;
+  }
+
+  private static byte accessor(@Nullable Schema.LogicalType logicalType) {
+    if (logicalType == null) {
+      return VALUE;
+    }
+    switch (logicalType) {
+      case DATE:
+        return DATE;
+      case TIME_MILLIS:
+      case TIME_MICROS:
+        return TIME;
+      case TIMESTAMP_MILLIS:
+      case TIMESTAMP_MICROS:
+        return TIMESTAMP;
+      default:
+        throw new UnexpectedFormatException("Field type " + logicalType + " is not supported.");
+    }
+  }
+
+  /**
+   * Reads the fields of records of the same schema. Rows hold on the loader they were created
+   * with, so they can be read after rows of another schema are created.
+   */
+  private static final class FieldLoader implements ValueLoader<StructuredRecord> {
+    private final RowHeader header;
+    private final byte[] accessors;
+
+    private FieldLoader(RowHeader header, byte[] accessors) {
+      this.header = header;
+      this.accessors = accessors;
+    }
+
+    @Override
+    public Object load(StructuredRecord record, int idx) {
+      String name = header.getName(idx);
+      switch (accessors[idx]) {
+        case DATE:
+          return record.getDate(name);
+        case TIME:
+          return record.getTime(name);
+        case TIMESTAMP:
+          return record.getTimestamp(name);
+        default:
+          // If the logical type is present in complex types, it will be retrieved as corresponding
+          // simple type (int/long).
+          return record.get(name);
+      }
+    }
+  }
+}
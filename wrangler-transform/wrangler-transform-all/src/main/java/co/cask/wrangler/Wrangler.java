@@ -44,6 +44,7 @@ import co.cask.wrangler.api.DirectiveParseException;
 import co.cask.wrangler.api.DirectiveRegistry;
 import co.cask.wrangler.api.ErrorRecord;
 import co.cask.wrangler.api.ExecutorContext;
+import co.cask.wrangler.api.RecipeException;
 import co.cask.wrangler.api.RecipeParser;
 import co.cask.wrangler.api.RecipePipeline;
 import co.cask.wrangler.api.RecipeSymbol;
@@ -59,6 +60,8 @@ import co.cask.wrangler.parser.RecipeCompiler;
 import co.cask.wrangler.registry.CompositeDirectiveRegistry;
 import co.cask.wrangler.registry.SystemDirectiveRegistry;
 import co.cask.wrangler.registry.UserDirectiveRegistry;
+import co.cask.wrangler.utils.CompiledRecordConvertor;
+import co.cask.wrangler.utils.RecordConvertorException;
 import com.google.common.collect.ImmutableMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -104,6 +107,9 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
   // Output Schema associated with transform output.
   private Schema oSchema = null;
 
+  // Converts the rows wrangled into records of the output schema.
+  private CompiledRecordConvertor convertor;
+
   // Error counter.
   private long errorCounter;
 
@@ -116,6 +122,12 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
   // Directive registry.
   private DirectiveRegistry registry;
 
+  // Input fields used by the recipe when wrangling all the fields, null if all the fields are used.
+  private Set<String> inputs = null;
+
+  // Creates the rows loading the input fields lazily when wrangling all the fields.
+  private RecordRowFactory rowFactory;
+
   // This is used only for tests, otherwise this is being injected by the ingestion framework.
   public Wrangler(Config config) {
     this.config = config;
@@ -323,6 +335,7 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
                       context.getStageName())
       );
     }
+    convertor = new CompiledRecordConvertor(oSchema);
 
     // Check if pre-condition is not null or empty and if so compile expression.
     if (config.precondition != null && !config.precondition.trim().isEmpty()) {
@@ -357,9 +370,21 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
     }
 
     try {
-      // Create the pipeline executor with context being set.
-      pipeline = new RecipePipelineExecutor();
-      pipeline.initialize(recipe, ctx);
+      // Create the pipeline executor with context being set. Only the fields of the output
+      // schema are output, when optimized the directives not contributing to them are skipped.
+      List<String> outputs = new ArrayList<>();
+      for (Schema.Field field : oSchema.getFields()) {
+        outputs.add(field.getName());
+      }
+      RecipePipelineExecutor executor = new RecipePipelineExecutor(false, outputs, config.isOptimize());
+      executor.initialize(recipe, ctx);
+      pipeline = executor;
+
+      // The precondition is evaluated on all the fields of the row.
+      if ("*".equalsIgnoreCase(config.field) && condition == null) {
+        inputs = executor.getInputs();
+      }
+      rowFactory = new RecordRowFactory(inputs);
     } catch (Exception e) {
       throw new Exception(
         String.format("Stage:%s - %s", getContext().getStageName(), e.getMessage())
@@ -396,15 +421,14 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
     List<StructuredRecord> records;
     try {
       // Creates a row as starting point for input to the pipeline.
-      Row row = new Row();
+      Row row;
       if ("*".equalsIgnoreCase(config.field)) {
-        for (Schema.Field field : input.getSchema().getFields()) {
-          row.add(field.getName(), getValue(input, field.getName()));
-        }
+        // Fields not used by the recipe nor output are left out, the others are read when used.
+        row = rowFactory.create(input);
       } else if ("#".equalsIgnoreCase(config.field)) {
-        row.add(input.getSchema().getRecordName(), input);
+        row = new Row(input.getSchema().getRecordName(), input);
       } else {
-        row.add(config.field, getValue(input, config.field));
+        row = new Row(config.field, getValue(input, config.field));
       }
 
       // If pre-condition is set, then evaluate the precondition
@@ -421,7 +445,15 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
       store.reset(TransientVariableScope.LOCAL);
 
       start = System.nanoTime();
-      records = pipeline.execute(Arrays.asList(row), oSchema);
+      List<Row> rows = pipeline.execute(Arrays.asList(row));
+      records = new ArrayList<>(rows.size());
+      try {
+        for (Row wrangled : rows) {
+          records.add(convertor.convert(wrangled));
+        }
+      } catch (RecordConvertorException e) {
+        throw new RecipeException("Problem converting into output record. Reason : " + e.getMessage());
+      }
       // We now extract errors from the execution and pass it on to the error emitter.
       List<ErrorRecord> errors = pipeline.errors();
       if (errors.size() > 0) {
@@ -463,28 +495,11 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
     }
 
     for (StructuredRecord record : records) {
-      StructuredRecord.Builder builder = StructuredRecord.builder(oSchema);
-      // Iterate through output schema, if the 'record' doesn't have it, then
-      // attempt to take if from 'input'.
-      for (Schema.Field field : oSchema.getFields()) {
-        Object wObject = record.get(field.getName()); // wrangled records
-        if (wObject == null) {
-          builder.set(field.getName(), null);
-        } else {
-          if (wObject instanceof String) {
-            builder.convertAndSet(field.getName(), (String) wObject);
-          } else {
-            // No need to use specific methods for fields of logical type - timestamp, date and time. This is because
-            // the wObject should already have correct values for corresponding primitive types.
-            builder.set(field.getName(), wObject);
-          }
-        }
-      }
-      emitter.emit(builder.build());
+      emitter.emit(record);
     }
   }
 
-  private Object getValue(StructuredRecord input, String fieldName) {
+  static Object getValue(StructuredRecord input, String fieldName) {
     Schema fieldSchema = input.getSchema().getField(fieldName).getSchema();
     fieldSchema = fieldSchema.isNullable() ? fieldSchema.getNonNullable() : fieldSchema;
     Schema.LogicalType logicalType = fieldSchema.getLogicalType();
@@ -562,6 +577,20 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
     @Macro
     private final String schema;
 
+    @Name("optimize")
+    @Description("True to reorder the filters of the recipe and skip the directives not contributing to the " +
+      "output schema. Records might then not be sent to error by the directives skipped. Defaults to false.")
+    @Macro
+    @Nullable
+    private Boolean optimize;
+
+    @Name("batchSize")
+    @Description("Number of records of a partition wrangled together by WranglerCompute, each directive being " +
+      "executed once on all the records of the batch. Set to 1 to wrangle the records one at a time. Defaults to 1.")
+    @Macro
+    @Nullable
+    private Integer batchSize;
+
     public Config(String precondition, String directives, String udds,
                   String field, int threshold, String schema) {
       this.precondition = precondition;
@@ -571,6 +600,41 @@ public class Wrangler extends Transform<StructuredRecord, StructuredRecord> {
       this.threshold = threshold;
       this.schema = schema;
     }
+
+    @Nullable
+    String getPrecondition() {
+      return precondition;
+    }
+
+    @Nullable
+    String getDirectives() {
+      return directives;
+    }
+
+    @Nullable
+    String getUdds() {
+      return udds;
+    }
+
+    String getField() {
+      return field;
+    }
+
+    int getThreshold() {
+      return threshold;
+    }
+
+    String getSchema() {
+      return schema;
+    }
+
+    boolean isOptimize() {
+      return optimize != null && optimize;
+    }
+
+    int getBatchSize() {
+      return batchSize == null ? 1 : Math.max(1, batchSize);
+    }
   }
 }
 
@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.wrangler;
+
+import co.cask.cdap.api.annotation.Description;
+import co.cask.cdap.api.annotation.Name;
+import co.cask.cdap.api.annotation.Plugin;
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.etl.api.PipelineConfigurer;
+import co.cask.cdap.etl.api.batch.SparkCompute;
+import co.cask.cdap.etl.api.batch.SparkExecutionPluginContext;
+import co.cask.directives.lookup.TableLookup;
+import co.cask.directives.parser.ParseAvro;
+import co.cask.directives.parser.ParseProtobuf;
+import co.cask.wrangler.api.CompileException;
+import co.cask.wrangler.api.CompileStatus;
+import co.cask.wrangler.api.TokenGroup;
+import co.cask.wrangler.api.parser.DirectiveName;
+import co.cask.wrangler.parser.MigrateToV2;
+import co.cask.wrangler.parser.RecipeCompiler;
+import com.google.common.collect.ImmutableSet;
+import org.apache.spark.api.java.JavaRDD;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * WranglerCompute - Wrangler for Spark pipelines.
+ *
+ * This plugin applies the same recipe as the {@link Wrangler} transform, but on whole partitions
+ * of the input. The recipe is parsed once per partition and the records of the partition are
+ * streamed through the directives, without the dispatch of each record to the plugin. Records
+ * can be wrangled in batches, each directive being executed once on all the records of a batch.
+ *
+ * Spark compute plugins have no error output, records sent to error by the recipe or failing are
+ * counted in the 'errors' and 'failures' metrics and against the error threshold. User Defined
+ * Directives can't be loaded in the Spark executors, and the dataprep service and lookups are not
+ * reachable from them, recipes using them are rejected.
+ */
+@Plugin(type = SparkCompute.PLUGIN_TYPE)
+@Name("WranglerCompute")
+@Description("Wrangler - A interactive tool for data cleansing and transformation, executed on Spark partitions.")
+public class WranglerCompute extends SparkCompute<StructuredRecord, StructuredRecord> {
+  // Directives using the dataprep service or lookups.
+  private static final Set<String> UNSUPPORTED = ImmutableSet.of(TableLookup.NAME, ParseAvro.NAME, ParseProtobuf.NAME);
+
+  // Plugin configuration, the same as the one of the transform.
+  private final Wrangler.Config config;
+
+  // This is used only for tests, otherwise this is being injected by the ingestion framework.
+  public WranglerCompute(Wrangler.Config config) {
+    this.config = config;
+  }
+
+  /**
+   * Configures the plugin the same way the {@link Wrangler} transform is configured, rejecting
+   * the User Defined Directives and the directives not supported on Spark.
+   */
+  @Override
+  public void configurePipeline(PipelineConfigurer configurer) throws IllegalArgumentException {
+    super.configurePipeline(configurer);
+    if (config.getUdds() != null && !config.getUdds().trim().isEmpty()) {
+      throw new IllegalArgumentException("User Defined Directives are not supported by WranglerCompute, " +
+                                           "use the Wrangler transform instead.");
+    }
+    new Wrangler(config).configurePipeline(configurer);
+    if (!config.containsMacro("directives")) {
+      validate(config.getDirectives());
+    }
+  }
+
+  @Override
+  public JavaRDD<StructuredRecord> transform(SparkExecutionPluginContext context,
+                                             JavaRDD<StructuredRecord> input) throws Exception {
+    Map<String, String> properties = new HashMap<>(context.getPluginProperties().getProperties());
+    Iterator<Map.Entry<String, String>> iterator = context.getArguments().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, String> next = iterator.next();
+      properties.put(next.getKey(), next.getValue());
+    }
+
+    // Macros of the directives are only known once the pipeline runs.
+    validate(config.getDirectives());
+    PartitionWrangler wrangler = new PartitionWrangler(config.getDirectives(), config.getPrecondition(),
+                                                       config.getField(), config.getSchema(), config.getThreshold(),
+                                                       config.isOptimize(), config.getBatchSize(),
+                                                       context.getStageName(), context.getMetrics(), properties);
+    return input.mapPartitions(wrangler);
+  }
+
+  /**
+   * Checks that the recipe doesn't use directives not supported on Spark.
+   *
+   * @param directives recipe to be validated.
+   * @throws IllegalArgumentException if the recipe uses a directive not supported.
+   */
+  static void validate(@Nullable String directives) {
+    if (directives == null) {
+      return;
+    }
+    CompileStatus status;
+    try {
+      status = new RecipeCompiler().compile(new MigrateToV2(directives).migrate());
+    } catch (CompileException e) {
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
+    if (!status.isSuccess()) {
+      // Syntax errors are reported by the configuration of the transform.
+      return;
+    }
+    Iterator<TokenGroup> iterator = status.getSymbols().iterator();
+    while (iterator.hasNext()) {
+      TokenGroup group = iterator.next();
+      if (group == null) {
+        continue;
+      }
+      String directive = ((DirectiveName) group.get(0)).value();
+      if (UNSUPPORTED.contains(directive)) {
+        throw new IllegalArgumentException(
+          String.format("Directive '%s' is not supported by WranglerCompute as it uses the dataprep service or " +
+                          "lookups, use the Wrangler transform instead.", directive)
+        );
+      }
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.etl.mock.common.MockStageMetrics;
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Tests {@link PartitionWrangler} and the validation of {@link WranglerCompute}.
+ */
+public class PartitionWranglerTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "input",
+    Schema.Field.of("name", Schema.of(Schema.Type.STRING))
+  );
+
+  @Test
+  public void testPartitionWrangled() throws Exception {
+    MockStageMetrics metrics = new MockStageMetrics("wrangler");
+    List<StructuredRecord> output = wrangle("uppercase name", -1, metrics, "a", "b");
+
+    Assert.assertEquals(2, output.size());
+    Assert.assertEquals("A", output.get(0).get("name"));
+    Assert.assertEquals("B", output.get(1).get("name"));
+    Assert.assertEquals(0, metrics.getCount("errors"));
+  }
+
+  @Test
+  public void testErrorsCounted() throws Exception {
+    MockStageMetrics metrics = new MockStageMetrics("wrangler");
+    List<StructuredRecord> output = wrangle("send-to-error name == 'b'", -1, metrics, "a", "b", "c", "b");
+
+    Assert.assertEquals(2, output.size());
+    Assert.assertEquals("a", output.get(0).get("name"));
+    Assert.assertEquals("c", output.get(1).get("name"));
+    Assert.assertEquals(2, metrics.getCount("errors"));
+  }
+
+  @Test
+  public void testPartitionWrangledInBatches() throws Exception {
+    MockStageMetrics metrics = new MockStageMetrics("wrangler");
+    List<StructuredRecord> output = wrangle("uppercase name\nsend-to-error name == 'B'", -1, 2, metrics,
+                                            "a", "b", "c", "b", "d");
+
+    Assert.assertEquals(3, output.size());
+    Assert.assertEquals("A", output.get(0).get("name"));
+    Assert.assertEquals("C", output.get(1).get("name"));
+    Assert.assertEquals("D", output.get(2).get("name"));
+    Assert.assertEquals(2, metrics.getCount("errors"));
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void testErrorsCountAgainstThreshold() throws Exception {
+    wrangle("send-to-error name == 'b'", 1, new MockStageMetrics("wrangler"), "a", "b", "c", "b");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testLookupsRejected() throws Exception {
+    WranglerCompute.validate("uppercase name\ntable-lookup :name 'names'");
+  }
+
+  @Test
+  public void testSupportedRecipeValidated() throws Exception {
+    WranglerCompute.validate("uppercase name\nsend-to-error name == 'b'");
+    WranglerCompute.validate(null);
+  }
+
+  private static List<StructuredRecord> wrangle(String directives, int threshold, MockStageMetrics metrics,
+                                                String... names) throws Exception {
+    return wrangle(directives, threshold, 1, metrics, names);
+  }
+
+  private static List<StructuredRecord> wrangle(String directives, int threshold, int batchSize,
+                                                MockStageMetrics metrics, String... names) throws Exception {
+    List<StructuredRecord> records = new ArrayList<>();
+    for (String name : names) {
+      records.add(StructuredRecord.builder(SCHEMA).set("name", name).build());
+    }
+    PartitionWrangler wrangler = new PartitionWrangler(directives, null, "*", SCHEMA.toString(), threshold, false,
+                                                       batchSize, "wrangler", metrics, Collections.<String, String>emptyMap());
+    Iterator<StructuredRecord> output = wrangler.call(records.iterator());
+    return ImmutableList.copyOf(output);
+  }
+}
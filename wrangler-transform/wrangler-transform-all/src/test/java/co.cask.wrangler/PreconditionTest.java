@@ -34,6 +34,19 @@ public class PreconditionTest {
     Assert.assertEquals(false, new Precondition("false").apply(row));
   }
 
+  @Test
+  public void testPreconditionReusedAcrossRows() throws Exception {
+    Precondition precondition = new Precondition("offset < 2 || body == ''");
+    Assert.assertEquals(true, precondition.apply(new Row("offset", 1).add("body", "x")));
+    Assert.assertEquals(false, precondition.apply(new Row("offset", 5).add("body", "x")));
+    Assert.assertEquals(true, precondition.apply(new Row("body", "").add("offset", 5)));
+  }
+
+  @Test(expected = PreconditionException.class)
+  public void testUndefinedVariable() throws Exception {
+    new Precondition("a == 1").apply(new Row("b", 1));
+  }
+
   @Test(expected = PreconditionException.class)
   public void testBadCondition() throws Exception {
     Row row = new Row("a", 1).add("b", "x").add("c", 2.06);
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2018 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.wrangler;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.format.UnexpectedFormatException;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.wrangler.api.Row;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+/**
+ * Tests {@link RecordRowFactory}.
+ */
+public class RecordRowFactoryTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "input",
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("Name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("day", Schema.of(Schema.LogicalType.DATE))
+  );
+
+  @Test
+  public void testRowsReadRecordFields() throws Exception {
+    RecordRowFactory factory = new RecordRowFactory(null);
+    StructuredRecord first = StructuredRecord.builder(SCHEMA)
+      .set("id", 1).set("Name", "a").setDate("day", LocalDate.of(2018, 1, 2)).build();
+    StructuredRecord second = StructuredRecord.builder(SCHEMA)
+      .set("id", 2).setDate("day", LocalDate.of(2018, 3, 4)).build();
+
+    Row row = factory.create(first);
+    Row other = factory.create(second);
+
+    // Rows of the same schema share the header.
+    Assert.assertSame(row.getHeader(), other.getHeader());
+    Assert.assertEquals(3, row.length());
+    Assert.assertEquals(1, row.getValue("id"));
+    Assert.assertEquals("a", row.getValue("name"));
+    Assert.assertEquals(LocalDate.of(2018, 1, 2), row.getValue("day"));
+    Assert.assertEquals(2, other.getValue("id"));
+    Assert.assertNull(other.getValue("Name"));
+    Assert.assertEquals(LocalDate.of(2018, 3, 4), other.getValue("day"));
+  }
+
+  @Test
+  public void testOnlyFieldsUsedLoaded() throws Exception {
+    RecordRowFactory factory = new RecordRowFactory(ImmutableSet.of("name"));
+    Row row = factory.create(StructuredRecord.builder(SCHEMA)
+                               .set("id", 1).set("Name", "a").setDate("day", LocalDate.of(2018, 1, 2)).build());
+
+    Assert.assertEquals(1, row.length());
+    Assert.assertEquals("a", row.getValue("Name"));
+    Assert.assertEquals(-1, row.find("id"));
+  }
+
+  @Test(expected = UnexpectedFormatException.class)
+  public void testUnsupportedTypeFailsCreation() throws Exception {
+    Schema schema = Schema.recordOf(
+      "input",
+      Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("amount", Schema.nullableOf(Schema.decimalOf(10, 2)))
+    );
+    // Fields not used are validated too.
+    new RecordRowFactory(ImmutableSet.of("id")).create(StructuredRecord.builder(schema).set("id", 1).build());
+  }
+}